@@ -0,0 +1,36 @@
+package net.erply.demo;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import net.erply.demo.base.entity.Task;
+import net.erply.demo.base.shard.TenantContext;
+import net.erply.demo.task.dao.TaskDao;
+import net.erply.demo.task.entity.TaskStatus;
+
+@Configuration
+@Profile("embedded")
+@ComponentScan
+public class EmbeddedIntegrationTestConfiguration {
+
+    private static final int SEEDED_TASKS = 4;
+
+    /**
+     * The first of the tasks {@code V1_1__tasks_init.sql} seeds into the database.
+     */
+    @Bean
+    InitializingBean seedTasks(TaskDao dao) {
+        return () -> {
+            for (int i = 1; i <= SEEDED_TASKS; i++) {
+                dao.save(Task.builder()
+                        .tenantId(TenantContext.DEFAULT_TENANT)
+                        .name("Task #" + i)
+                        .description("Task #" + i + " description")
+                        .status(TaskStatus.AVAILABLE)
+                        .build());
+            }
+        };
+    }
+}
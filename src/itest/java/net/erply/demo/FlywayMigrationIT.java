@@ -0,0 +1,124 @@
+package net.erply.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Runs the migrations the way a deployed database met them: up to V1_7 first, with tasks of several
+ * tenants and statuses in place, then the rest. The partitioning of V1_8 has to keep every row, claim
+ * every name in {@code task_name} and bring the change notifications along.
+ */
+@Testcontainers
+public class FlywayMigrationIT {
+
+    private static final String USERNAME = "taskapp_admin";
+
+    @Container
+    private static final PostgreSQLContainer<?> DATABASE = new PostgreSQLContainer<>("postgres:12")
+            .withUsername(USERNAME)
+            .withPassword(USERNAME)
+            .withDatabaseName("taskapp");
+
+    @Test
+    public void shouldKeepTasksNamesAndNotificationsThroughPartitioning() throws Exception {
+        migrate("1.7");
+        try (Connection connection = connect(); Statement st = connection.createStatement()) {
+            st.execute("INSERT INTO public.task (tenant_id, name, description, status, due_at) VALUES"
+                    + " ('acme', 'locked', 'descr', 'LOCKED', now() + INTERVAL '1 hour'),"
+                    + " ('acme', 'completed', 'descr', 'COMPLETED', NULL),"
+                    + " ('other', 'locked', 'descr', 'AVAILABLE', NULL),"
+                    + " ('other', 'legacy', 'descr', NULL, NULL)");
+        }
+        List<String> before = tasks();
+
+        migrate(null);
+
+        assertEquals(before, tasks());
+        assertEquals(0, count("SELECT count(*) FROM public.task t FULL JOIN public.task_name n"
+                + " ON n.task_id = t.id AND n.tenant_id = t.tenant_id AND n.name = t.name"
+                + " WHERE t.id IS NULL OR n.task_id IS NULL"));
+        assertEquals(1, count("SELECT count(*) FROM public.task_locked WHERE tenant_id = 'acme'"));
+        assertEquals(1, count("SELECT count(*) FROM public.task_completed WHERE tenant_id = 'acme'"));
+        assertEquals(1, count("SELECT count(*) FROM public.task_available WHERE name = 'legacy'"));
+
+        try (Connection listener = connect(); Connection writer = connect();
+             Statement listen = listener.createStatement(); Statement write = writer.createStatement()) {
+            listen.execute("LISTEN task_changes");
+            ResultSet inserted = write.executeQuery("INSERT INTO public.task (tenant_id, name, description)"
+                    + " VALUES ('acme', 'after migration', 'descr') RETURNING id");
+            inserted.next();
+            int id = inserted.getInt(1);
+            assertTrue(id > maxSeededId(before), "Ids continue after the copied rows");
+
+            PGNotification[] notifications = listener.unwrap(PGConnection.class).getNotifications(5000);
+            assertNotNull(notifications);
+            assertEquals(1, notifications.length);
+            assertEquals(String.valueOf(id), notifications[0].getParameter());
+
+            SQLException duplicate = assertThrows(SQLException.class, () -> write.execute(
+                    "INSERT INTO public.task (id, tenant_id, name, description, status)"
+                    + " VALUES (" + id + ", 'moved', 'same id', 'descr', 'COMPLETED')"));
+            assertTrue(duplicate.getMessage().contains("task_name_task_id_key"), duplicate::getMessage);
+        }
+    }
+
+    private static void migrate(String target) {
+        Flyway.configure()
+                .dataSource(DATABASE.getJdbcUrl(), USERNAME, USERNAME)
+                .placeholderReplacement(false)
+                .target(target == null ? "latest" : target)
+                .load()
+                .migrate();
+    }
+
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(DATABASE.getJdbcUrl(), USERNAME, USERNAME);
+    }
+
+    /**
+     * Every task as one line, in id order; a missing status is what V1_8 makes AVAILABLE.
+     */
+    private static List<String> tasks() throws SQLException {
+        List<String> tasks = new ArrayList<>();
+        try (Connection connection = connect(); Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT id, tenant_id, name, description,"
+                     + " COALESCE(status, 'AVAILABLE'), due_at FROM public.task ORDER BY id")) {
+            while (rs.next()) {
+                tasks.add(rs.getInt(1) + "|" + rs.getString(2) + "|" + rs.getString(3) + "|" + rs.getString(4)
+                        + "|" + rs.getString(5) + "|" + rs.getString(6));
+            }
+        }
+        return tasks;
+    }
+
+    private static int maxSeededId(List<String> tasks) {
+        return tasks.stream().mapToInt(task -> Integer.parseInt(task.substring(0, task.indexOf('|')))).max()
+                .orElse(0);
+    }
+
+    private static long count(String sql) throws SQLException {
+        try (Connection connection = connect(); Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -2,16 +2,19 @@ package net.erply.demo;
 
 import javax.sql.DataSource;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.jdbc.DataSourceBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.testcontainers.containers.JdbcDatabaseContainer;
 import org.testcontainers.containers.PostgreSQLContainer;
 
 @Configuration
+@Profile("!embedded")
 @ComponentScan
 @EnableJpaRepositories
 public class IntegrationTestConfiguration {
@@ -20,14 +23,15 @@ public class IntegrationTestConfiguration {
     private static final String USERNAME = "taskapp_admin";
     private static final String PASSWORD = "taskapp_admin";
     private static final String PORT = "5432";
-    private static final String INIT_SCRIPT_PATH="data.sql";
+    /** The version of the Dockerfile; partitioned tables need 12. */
+    private static final String IMAGE = "postgres:12";
 
 
 
     @Bean(initMethod = "start")
+    @ConditionalOnProperty(name = "task.sharding.enabled", havingValue = "false", matchIfMissing = true)
     JdbcDatabaseContainer databaseContainer() {
-        return new PostgreSQLContainer()
-                .withInitScript(INIT_SCRIPT_PATH)
+        return new PostgreSQLContainer(IMAGE)
                 .withUsername(USERNAME)
                 .withPassword(PASSWORD)
                 .withDatabaseName(DB_NAME);
@@ -35,6 +39,7 @@ public class IntegrationTestConfiguration {
 
     @Bean
     @Primary
+    @ConditionalOnProperty(name = "task.sharding.enabled", havingValue = "false", matchIfMissing = true)
     DataSource dataSource(JdbcDatabaseContainer container) {
 
         System.out.println("Connecting to test container " + container.getUsername() + ":" + container.getPassword() + "@" + container.getJdbcUrl());
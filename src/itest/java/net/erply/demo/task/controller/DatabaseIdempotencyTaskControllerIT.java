@@ -0,0 +1,10 @@
+package net.erply.demo.task.controller;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Runs the {@link TaskControllerIT} contract with idempotency keys claimed in {@code public.idempotency_key}.
+ */
+@TestPropertySource(properties = "task.idempotency.store=database")
+public class DatabaseIdempotencyTaskControllerIT extends TaskControllerIT {
+}
@@ -0,0 +1,26 @@
+package net.erply.demo.task.controller;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import net.erply.demo.EmbeddedIntegrationTestConfiguration;
+
+/**
+ * Runs the {@link TaskControllerIT} contract against the database-less task store.
+ */
+@ActiveProfiles("embedded")
+@ContextConfiguration(classes = EmbeddedIntegrationTestConfiguration.class, inheritLocations = false)
+public class EmbeddedTaskControllerIT extends TaskControllerIT {
+
+    @DynamicPropertySource
+    static void journal(DynamicPropertyRegistry registry) throws IOException {
+        Path dir = Files.createTempDirectory("tasks");
+        registry.add("task.embedded.journal-path", () -> dir.resolve("tasks.journal").toString());
+        registry.add("task.embedded.journal-initial-size-mb", () -> 1);
+    }
+}
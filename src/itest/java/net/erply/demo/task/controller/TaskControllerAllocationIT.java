@@ -0,0 +1,239 @@
+package net.erply.demo.task.controller;
+
+import static net.erply.demo.alloc.AllocationAssertions.assertThatAllocation;
+import static net.erply.demo.task.controller.TaskControllerIT.asJsonString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.erply.demo.IntegrationTestConfiguration;
+import net.erply.demo.alloc.AllocationBaseline;
+import net.erply.demo.alloc.AllocationMeter;
+import net.erply.demo.alloc.AllocationReport;
+import net.erply.demo.task.api.TaskDto;
+
+/**
+ * Allocation budget of each endpoint in bytes per call, measured on the request thread at several table
+ * sizes; MockMvc's own request and response objects are included. Budgets are the figures of
+ * {@code allocation/task-controller.properties} plus {@link AllocationBaseline#HEADROOM}; the tests are
+ * skipped while that file is missing. A failing test here means an endpoint started allocating more than its
+ * budget; rebaseline only on purpose. Measurements are written to
+ * {@code build/reports/allocation/task-controller.txt}.
+ */
+@SpringBootTest
+@TestPropertySource(locations="classpath:application.yml")
+@ContextConfiguration(classes = IntegrationTestConfiguration.class)
+@AutoConfigureMockMvc
+public class TaskControllerAllocationIT {
+
+    private static final AllocationReport REPORT = new AllocationReport("task-controller");
+
+    private static final AllocationBaseline BASELINE = new AllocationBaseline("task-controller");
+
+    private static final String TENANT_HEADER = "X-Tenant-Id";
+
+    private static final int WARMUP = 50;
+
+    private static final int ITERATIONS = 50;
+
+    private static final int RETAINED_TASKS = 5000;
+
+    private static final Set<String> SEEDED = new HashSet<>();
+
+    private static final AtomicInteger NAMES = new AtomicInteger();
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterAll
+    static void writeReport() {
+        REPORT.write();
+        BASELINE.write();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 10, 100, 1000 })
+    public void listWithinBudget(int tasks) throws Exception {
+        String tenant = seed("alloc-list-" + tasks, tasks);
+        AllocationMeter meter = measure("list", tasks, () -> get("/api/v1/task/list")
+                .header(TENANT_HEADER, tenant)
+                .contentType(MediaType.APPLICATION_JSON));
+        assertThatAllocation(meter).atMost(BASELINE.budget("list." + tasks));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 10, 100, 1000 })
+    public void addWithinBudget(int tasks) throws Exception {
+        String tenant = seed("alloc-" + tasks, tasks);
+        AllocationMeter meter = measure("add", tasks, () -> post("/api/v1/task/add")
+                .header(TENANT_HEADER, tenant)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(task())));
+        assertThatAllocation(meter).atMost(BASELINE.budget("add." + tasks));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 10, 100, 1000 })
+    public void getWithinBudget(int tasks) throws Exception {
+        String tenant = seed("alloc-" + tasks, tasks);
+        Integer id = create(tenant);
+        AllocationMeter meter = measure("get", tasks, () -> get("/api/v1/task/get/" + id)
+                .header(TENANT_HEADER, tenant));
+        assertThatAllocation(meter).atMost(BASELINE.budget("get." + tasks));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 10, 100, 1000 })
+    public void editWithinBudget(int tasks) throws Exception {
+        String tenant = seed("alloc-" + tasks, tasks);
+        Integer id = create(tenant);
+        AllocationMeter meter = measure("edit", tasks, () -> post("/api/v1/task/edit/" + id)
+                .header(TENANT_HEADER, tenant)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(task())));
+        assertThatAllocation(meter).atMost(BASELINE.budget("edit." + tasks));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 10, 100, 1000 })
+    public void completeWithinBudget(int tasks) throws Exception {
+        String tenant = seed("alloc-" + tasks, tasks);
+        AllocationMeter meter = measure("complete", tasks, () -> post("/api/v1/task/complete/" + create(tenant))
+                .header(TENANT_HEADER, tenant)
+                .contentType(MediaType.APPLICATION_JSON));
+        assertThatAllocation(meter).atMost(BASELINE.budget("complete." + tasks));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 10, 100, 1000 })
+    public void deleteWithinBudget(int tasks) throws Exception {
+        String tenant = seed("alloc-" + tasks, tasks);
+        AllocationMeter meter = measure("delete", tasks, () -> delete("/api/v1/task/delete/" + create(tenant))
+                .header(TENANT_HEADER, tenant)
+                .contentType(MediaType.APPLICATION_JSON));
+        assertThatAllocation(meter).atMost(BASELINE.budget("delete." + tasks));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 10, 100, 1000 })
+    public void historyWithinBudget(int tasks) throws Exception {
+        String tenant = seed("alloc-" + tasks, tasks);
+        Integer id = create(tenant);
+        AllocationMeter meter = measure("history", tasks, () -> get("/api/v1/task/history/" + id)
+                .header(TENANT_HEADER, tenant));
+        assertThatAllocation(meter).atMost(BASELINE.budget("history." + tasks));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 10, 100, 1000 })
+    public void suggestWithinBudget(int tasks) throws Exception {
+        String tenant = seed("alloc-list-" + tasks, tasks);
+        AllocationMeter meter = measure("suggest", tasks, () -> get("/api/v1/task/suggest")
+                .header(TENANT_HEADER, tenant)
+                .param("prefix", "seeded #1"));
+        assertThatAllocation(meter).atMost(BASELINE.budget("suggest." + tasks));
+    }
+
+    /**
+     * What serving a table keeps on the heap afterwards, per task: the read caches, not the request.
+     */
+    @Test
+    public void retainedHeapPerTaskWithinBudget() throws Exception {
+        String tenant = "alloc-retained";
+        list(tenant);
+        long before = AllocationMeter.retainedHeap();
+        seed(tenant, RETAINED_TASKS);
+        list(tenant);
+        long perTask = Math.max(0, AllocationMeter.retainedHeap() - before) / RETAINED_TASKS;
+        REPORT.note("retained heap @ " + RETAINED_TASKS + " listed tasks", perTask + " B/task");
+        BASELINE.record("retained.per-task", perTask);
+        long budget = BASELINE.budget("retained.per-task");
+        assertTrue(perTask <= budget, () -> "Retained heap budget of " + budget + " B/task exceeded: " + perTask);
+    }
+
+    private AllocationMeter measure(String operation, int tasks, Callable<RequestBuilder> prepare) throws Exception {
+        AllocationMeter meter = new AllocationMeter(ITERATIONS);
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            RequestBuilder request = prepare.call();
+            boolean measured = i >= WARMUP;
+            if (measured) {
+                meter.start();
+            }
+            MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+            if (measured) {
+                meter.stop();
+            }
+            assertEquals(200, response.getStatus(), response::getContentAsString);
+        }
+        BASELINE.record(operation + "." + tasks, meter.median());
+        return REPORT.add(operation, tasks, meter);
+    }
+
+    /**
+     * Bulk imports {@code tasks} tasks into a tenant of their own, once per test run.
+     */
+    private String seed(String tenant, int tasks) throws Exception {
+        if (SEEDED.add(tenant)) {
+            StringBuilder csv = new StringBuilder("name,description\n");
+            for (int i = 0; i < tasks; i++) {
+                csv.append("seeded #").append(i).append(",seeded task description #").append(i).append('\n');
+            }
+            mvc.perform(post("/api/v1/task/import")
+                    .header(TENANT_HEADER, tenant)
+                    .contentType("text/csv")
+                    .content(csv.toString()))
+                    .andExpect(status().isOk());
+        }
+        return tenant;
+    }
+
+    private void list(String tenant) throws Exception {
+        mvc.perform(get("/api/v1/task/list")
+                .header(TENANT_HEADER, tenant)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+    }
+
+    private Integer create(String tenant) throws Exception {
+        String body = mvc.perform(post("/api/v1/task/add")
+                .header(TENANT_HEADER, tenant)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(task())))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(body, TaskDto.class).getId();
+    }
+
+    private static TaskDto task() {
+        String name = "allocation #" + NAMES.incrementAndGet();
+        return TaskDto.builder()
+                .name(name)
+                .description(name + " description")
+                .build();
+    }
+}
@@ -1,12 +1,20 @@
 package net.erply.demo.task.controller;
 
+import static net.erply.demo.base.entity.ErrorCode.DUPLICATED_TASK_NAME;
+import static net.erply.demo.base.entity.ErrorCode.IDEMPOTENCY_KEY_REUSED;
+import static net.erply.demo.base.entity.ErrorCode.TASK_NOT_FOUND;
+import static net.erply.demo.base.entity.ErrorCode.WRONG_TENANT_ID;
 import static net.erply.demo.base.entity.ErrorCode.WRONG_TASK_ID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.util.concurrent.TimeUnit;
+
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -15,9 +23,13 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
 import net.erply.demo.IntegrationTestConfiguration;
 import net.erply.demo.task.api.TaskDto;
+import net.erply.demo.task.service.IdempotencyService;
 import net.erply.demo.task.service.TaskService;
 
 @SpringBootTest
@@ -33,6 +45,8 @@ public class TaskControllerIT {
     private MockMvc mvc;
 
 
+    private static final String TENANT_HEADER = "X-Tenant-Id";
+
     private static final String TASK_NAME_BEFORE_EDIT = "task name before update";
     private static final String TASK_DESCR_BEFORE_EDIT = "task descr before update";
     private static final String TASK_NAME_AFTER_EDIT = "Task #1 edited";
@@ -111,6 +125,206 @@ public class TaskControllerIT {
                         .value(WRONG_TASK_ID.name()));
     }
 
+    @Test
+    public void shouldGetTask() throws Exception {
+        mvc.perform(get("/api/v1/task/get/4"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name")
+                        .value("Task #4"));
+    }
+
+    @Test
+    public void shouldShowErrorIfTaskNotFound() throws Exception {
+        mvc.perform(get("/api/v1/task/get/100000"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code")
+                        .value(TASK_NOT_FOUND.name()));
+    }
+
+    @Test
+    public void shouldImportCsvAndReportRejectedRows() throws Exception {
+        mvc.perform(post("/api/v1/task/import")
+                .contentType("text/csv")
+                .content("name,description\nimported #1,descr\n,no name\nimported #2,descr\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(3))
+                .andExpect(jsonPath("$.inserted").value(2))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.rejectedReportId").isNotEmpty());
+    }
+
+    @Test
+    public void shouldImportNdjsonSkippingExistingNames() throws Exception {
+        mvc.perform(post("/api/v1/task/import")
+                .contentType("application/x-ndjson")
+                .content("{\"name\":\"Task #4\",\"description\":\"descr\"}\n"
+                        + "{\"name\":\"imported #3\",\"description\":\"descr\"}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted").value(1))
+                .andExpect(jsonPath("$.skipped").value(1))
+                .andExpect(jsonPath("$.rejected").value(0));
+    }
+
+    @Test
+    public void shouldRecordHistoryOfImportedTasks() throws Exception {
+        mvc.perform(post("/api/v1/task/add")
+                .header(TENANT_HEADER, "import-history")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(TaskDto.builder().name("history existing").description("descr").build())))
+                .andExpect(status().isOk());
+        mvc.perform(post("/api/v1/task/import")
+                .header(TENANT_HEADER, "import-history")
+                .param("overwrite", "true")
+                .contentType("text/csv")
+                .content("name,description,status\nhistory existing,changed,LOCKED\nhistory new,descr,AVAILABLE\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted").value(1))
+                .andExpect(jsonPath("$.updated").value(1));
+
+        String suggestions = mvc.perform(get("/api/v1/task/suggest")
+                .header(TENANT_HEADER, "import-history")
+                .param("prefix", "history "))
+                .andReturn().getResponse().getContentAsString();
+        String existing = awaitHistory(JsonPath.<Integer>read(suggestions, "$[0].id"), 2);
+        assertEquals("ADD", JsonPath.read(existing, "$[0].operation"));
+        assertEquals("EDIT", JsonPath.read(existing, "$[1].operation"));
+        assertEquals("LOCKED", JsonPath.read(existing, "$[1].toStatus"));
+        String inserted = awaitHistory(JsonPath.<Integer>read(suggestions, "$[1].id"), 1);
+        assertEquals("ADD", JsonPath.read(inserted, "$[0].operation"));
+        assertEquals("AVAILABLE", JsonPath.read(inserted, "$[0].toStatus"));
+    }
+
+    /**
+     * History is written in the background; waits until {@code events} of the task are there.
+     */
+    private String awaitHistory(Integer id, int events) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            String body = mvc.perform(get("/api/v1/task/history/" + id)
+                    .header(TENANT_HEADER, "import-history"))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            if (JsonPath.<Integer>read(body, "$.length()") >= events || System.nanoTime() > deadline) {
+                return body;
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    @Test
+    public void shouldKeepTasksOfTenantsApart() throws Exception {
+        TaskDto task = TaskDto.builder().name("tenant task").description("descr").build();
+        String body = mvc.perform(post("/api/v1/task/add")
+                .header(TENANT_HEADER, "acme")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(task)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Integer id = JsonPath.read(body, "$.id");
+
+        mvc.perform(post("/api/v1/task/add")
+                .header(TENANT_HEADER, "globex")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(task)))
+                .andExpect(status().isOk());
+        mvc.perform(get("/api/v1/task/get/" + id)
+                .header(TENANT_HEADER, "globex"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code")
+                        .value(TASK_NOT_FOUND.name()));
+        mvc.perform(get("/api/v1/task/get/" + id)
+                .header(TENANT_HEADER, "acme"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name")
+                        .value("tenant task"));
+    }
+
+    @Test
+    public void shouldSuggestTasksByPrefix() throws Exception {
+        for (String name : new String[] { "suggest 100%", "Suggest me", "suggest-me", "other" }) {
+            mvc.perform(post("/api/v1/task/add")
+                    .header(TENANT_HEADER, "suggest")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(asJsonString(TaskDto.builder().name(name).description("descr").build())))
+                    .andExpect(status().isOk());
+        }
+
+        mvc.perform(get("/api/v1/task/suggest")
+                .header(TENANT_HEADER, "suggest")
+                .param("prefix", "SUGGEST")
+                .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("suggest 100%"))
+                .andExpect(jsonPath("$[1].name").value("Suggest me"))
+                .andExpect(jsonPath("$[1].id").isNumber())
+                .andExpect(jsonPath("$[1].description").doesNotExist());
+        mvc.perform(get("/api/v1/task/suggest")
+                .header(TENANT_HEADER, "suggest")
+                .param("prefix", "suggest 100%"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+        mvc.perform(get("/api/v1/task/suggest")
+                .header(TENANT_HEADER, "suggest")
+                .param("prefix", "suggest%"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+        mvc.perform(get("/api/v1/task/suggest")
+                .header(TENANT_HEADER, "suggest")
+                .param("prefix", "suggest_"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    public void shouldReplayWriteWithSameIdempotencyKey() throws Exception {
+        TaskDto task = TaskDto.builder().name("idempotent add").description("descr").build();
+        String first = idempotentAdd("add-1", task)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String replay = idempotentAdd("add-1", task)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(JsonPath.<Integer>read(first, "$.id"), JsonPath.<Integer>read(replay, "$.id"));
+
+        idempotentAdd("add-1", TaskDto.builder().name("idempotent other").description("descr").build())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(IDEMPOTENCY_KEY_REUSED.name()));
+        idempotentAdd("add-2", task)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(DUPLICATED_TASK_NAME.name()));
+    }
+
+    @Test
+    public void shouldReplayBusinessErrorWithSameIdempotencyKey() throws Exception {
+        TaskDto task = TaskDto.builder().name("idempotent duplicate").description("descr").build();
+        idempotentAdd(null, task).andExpect(status().isOk());
+        idempotentAdd("duplicate-1", task)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(DUPLICATED_TASK_NAME.name()));
+        idempotentAdd("duplicate-1", task)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(DUPLICATED_TASK_NAME.name()));
+    }
+
+    private ResultActions idempotentAdd(String key, TaskDto task) throws Exception {
+        MockHttpServletRequestBuilder request = post("/api/v1/task/add")
+                .header(TENANT_HEADER, "idempotent")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(task));
+        return mvc.perform(key == null ? request : request.header(IdempotencyService.HEADER, key));
+    }
+
+    @Test
+    public void shouldShowErrorIfWrongTenant() throws Exception {
+        mvc.perform(get("/api/v1/task/list")
+                .header(TENANT_HEADER, "no spaces allowed")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code")
+                        .value(WRONG_TENANT_ID.name()));
+    }
+
     public static String asJsonString(final Object obj) {
         try {
             return new ObjectMapper().writeValueAsString(obj);
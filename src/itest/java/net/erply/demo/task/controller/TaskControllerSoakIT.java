@@ -0,0 +1,141 @@
+package net.erply.demo.task.controller;
+
+import static net.erply.demo.task.controller.TaskControllerIT.asJsonString;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.erply.demo.IntegrationTestConfiguration;
+import net.erply.demo.alloc.AllocationMeter;
+import net.erply.demo.alloc.AllocationReport;
+import net.erply.demo.task.api.TaskDto;
+
+/**
+ * Runs mixed traffic over a table of constant size for {@code soak.duration-seconds} and samples the
+ * retained heap every {@code soak.sample-seconds}. Whatever it keeps growing after the first sample is
+ * a leak in a cache, a buffer or the persistence context; the test fails when the growth exceeds
+ * {@code soak.max-growth-mb}. Skipped unless a duration is given:
+ * {@code ./gradlew itest -Psoak.duration-seconds=600}. Samples go to {@code build/reports/allocation/soak.txt}.
+ */
+@SpringBootTest
+@TestPropertySource(locations="classpath:application.yml")
+@ContextConfiguration(classes = IntegrationTestConfiguration.class)
+@AutoConfigureMockMvc
+public class TaskControllerSoakIT {
+
+    private static final String TENANT_HEADER = "X-Tenant-Id";
+
+    private static final int TENANTS = 8;
+
+    private static final int TASKS_PER_TENANT = 200;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    public void retainedHeapStaysFlatUnderMixedTraffic() throws Exception {
+        long durationSeconds = Long.getLong("soak.duration-seconds", 0);
+        Assumptions.assumeTrue(durationSeconds > 0, "soak.duration-seconds not set");
+        long sampleNanos = Duration.ofSeconds(Long.getLong("soak.sample-seconds", 10)).toNanos();
+        long maxGrowth = Long.getLong("soak.max-growth-mb", 32) * 1024 * 1024;
+
+        for (int tenant = 0; tenant < TENANTS; tenant++) {
+            for (int i = 0; i < TASKS_PER_TENANT; i++) {
+                create(tenant(tenant), "soak seed " + tenant + "/" + i);
+            }
+        }
+
+        AllocationReport report = new AllocationReport("soak");
+        List<Long> samples = new ArrayList<>();
+        long start = System.nanoTime();
+        long end = start + Duration.ofSeconds(durationSeconds).toNanos();
+        long nextSample = start + sampleNanos;
+        long requests = 0;
+        long round = 0;
+        while (System.nanoTime() < end) {
+            requests += round(tenant((int) (round % TENANTS)), round);
+            round++;
+            if (System.nanoTime() >= nextSample) {
+                long retained = AllocationMeter.retainedHeap();
+                samples.add(retained);
+                report.note(String.format("sample %04d", samples.size()),
+                        retained / 1024 + " KB retained after " + requests + " requests");
+                nextSample = System.nanoTime() + sampleNanos;
+            }
+        }
+        Assumptions.assumeTrue(samples.size() >= 2, "soak too short for two heap samples");
+        long growth = samples.get(samples.size() - 1) - samples.get(0);
+        report.note("growth", growth / 1024 + " KB over " + durationSeconds + " s, " + requests + " requests");
+        report.write();
+        assertTrue(growth <= maxGrowth, () -> "Retained heap grew by " + growth / 1024 + " KB");
+    }
+
+    /**
+     * One task through its whole life, plus the reads around it; the table size is unchanged afterwards.
+     */
+    private int round(String tenant, long round) throws Exception {
+        Integer id = create(tenant, "soak task " + round);
+        mvc.perform(get("/api/v1/task/get/" + id).header(TENANT_HEADER, tenant))
+                .andExpect(status().isOk());
+        mvc.perform(post("/api/v1/task/edit/" + id)
+                .header(TENANT_HEADER, tenant)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(task("soak task " + round + " edited"))))
+                .andExpect(status().isOk());
+        mvc.perform(get("/api/v1/task/list")
+                .header(TENANT_HEADER, tenant)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        mvc.perform(post("/api/v1/task/complete/" + id)
+                .header(TENANT_HEADER, tenant)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        mvc.perform(get("/api/v1/task/history/" + id).header(TENANT_HEADER, tenant))
+                .andExpect(status().isOk());
+        mvc.perform(delete("/api/v1/task/delete/" + id)
+                .header(TENANT_HEADER, tenant)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        return 7;
+    }
+
+    private Integer create(String tenant, String name) throws Exception {
+        String body = mvc.perform(post("/api/v1/task/add")
+                .header(TENANT_HEADER, tenant)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(task(name))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(body, TaskDto.class).getId();
+    }
+
+    private static String tenant(int index) {
+        return "soak-" + index;
+    }
+
+    private static TaskDto task(String name) {
+        return TaskDto.builder()
+                .name(name)
+                .description(name + " description")
+                .build();
+    }
+}
@@ -0,0 +1,140 @@
+package net.erply.demo.task.controller;
+
+import static net.erply.demo.sql.SqlAssertions.assertThatSql;
+import static net.erply.demo.task.controller.TaskControllerIT.asJsonString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.erply.demo.IntegrationTestConfiguration;
+import net.erply.demo.sql.SqlCostReport;
+import net.erply.demo.sql.SqlRecordingConfiguration;
+import net.erply.demo.sql.SqlStatementRecorder;
+import net.erply.demo.sql.SqlStatements;
+import net.erply.demo.task.api.TaskDto;
+
+/**
+ * Pins the number of statements and round-trips each endpoint costs. A failing test here means an
+ * endpoint started talking to the database more (or less) than before; update the numbers only on purpose.
+ */
+@SpringBootTest
+@TestPropertySource(locations="classpath:application.yml")
+@ContextConfiguration(classes = { IntegrationTestConfiguration.class, SqlRecordingConfiguration.class })
+@AutoConfigureMockMvc
+public class TaskControllerSqlCostIT {
+
+    private static final SqlCostReport REPORT = new SqlCostReport("task-controller");
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private SqlStatementRecorder recorder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterAll
+    static void writeReport() {
+        REPORT.write();
+    }
+
+    @Test
+    public void addCostsOneInsert() throws Exception {
+        SqlStatements sql = record("add", post("/api/v1/task/add")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(task("sql cost add"))));
+        assertThatSql(sql).inserts(1).selects(0).updates(0).deletes(0);
+    }
+
+    @Test
+    public void listCostsOneSelect() throws Exception {
+        SqlStatements sql = record("list", get("/api/v1/task/list")
+                .contentType(MediaType.APPLICATION_JSON));
+        assertThatSql(sql).selects(1).roundTrips(1).noNPlusOne();
+    }
+
+    @Test
+    public void getCostsOneSelect() throws Exception {
+        Integer id = create("sql cost get");
+        SqlStatements sql = record("get", get("/api/v1/task/get/" + id));
+        assertThatSql(sql).selects(1).roundTrips(1);
+    }
+
+    @Test
+    public void editCostsOneUpdate() throws Exception {
+        Integer id = create("sql cost edit");
+        SqlStatements sql = record("edit", post("/api/v1/task/edit/" + id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(task("sql cost edited"))));
+        // tenant-scoped single-statement update, the task is not loaded first
+        assertThatSql(sql).selects(0).updates(1).inserts(0).roundTrips(1);
+    }
+
+    @Test
+    public void completeCostsOneUpdate() throws Exception {
+        Integer id = create("sql cost complete");
+        SqlStatements sql = record("complete", post("/api/v1/task/complete/" + id)
+                .contentType(MediaType.APPLICATION_JSON));
+        assertThatSql(sql).selects(0).updates(1).roundTrips(1);
+    }
+
+    @Test
+    public void deleteCostsOneDelete() throws Exception {
+        Integer id = create("sql cost delete");
+        SqlStatements sql = record("delete", delete("/api/v1/task/delete/" + id)
+                .contentType(MediaType.APPLICATION_JSON));
+        assertThatSql(sql).selects(0).deletes(1).roundTrips(1);
+    }
+
+    @Test
+    public void suggestCostsOneSelect() throws Exception {
+        SqlStatements sql = record("suggest", get("/api/v1/task/suggest").param("prefix", "task"));
+        assertThatSql(sql).selects(1).roundTrips(1);
+    }
+
+    @Test
+    public void historyCostsOneSelect() throws Exception {
+        SqlStatements sql = record("history", get("/api/v1/task/history/1"));
+        assertThatSql(sql).selects(1).roundTrips(1);
+    }
+
+    private SqlStatements record(String operation, RequestBuilder request) throws Exception {
+        SqlStatements sql;
+        recorder.start();
+        try {
+            mvc.perform(request).andExpect(status().isOk());
+        } finally {
+            sql = recorder.stop();
+        }
+        return REPORT.add(operation, sql);
+    }
+
+    private Integer create(String name) throws Exception {
+        String body = mvc.perform(post("/api/v1/task/add")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(task(name))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(body, TaskDto.class).getId();
+    }
+
+    private static TaskDto task(String name) {
+        return TaskDto.builder()
+                .name(name)
+                .description(name + " description")
+                .build();
+    }
+}
@@ -0,0 +1,136 @@
+package net.erply.demo.task.controller;
+
+import static net.erply.demo.base.entity.ErrorCode.DUPLICATED_TASK_NAME;
+import static net.erply.demo.task.controller.TaskControllerIT.asJsonString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.erply.demo.IntegrationTestConfiguration;
+import net.erply.demo.task.api.TaskDto;
+import net.erply.demo.task.entity.TaskStatus;
+
+/**
+ * Rows of {@code public.task} follow their status between partitions, while names stay unique per tenant
+ * over all of them.
+ */
+@SpringBootTest
+@TestPropertySource(locations="classpath:application.yml")
+@ContextConfiguration(classes = IntegrationTestConfiguration.class)
+@AutoConfigureMockMvc
+public class TaskPartitionIT {
+
+    private static final String TENANT_HEADER = "X-Tenant-Id";
+
+    private static final String TENANT = "partitioned";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void shouldMoveTaskBetweenPartitionsOnStatusChange() throws Exception {
+        Integer id = create("partition move");
+        assertEquals("task_available", partitionOf(id));
+
+        edit(id, task("partition move", TaskStatus.LOCKED)).andExpect(status().isOk());
+        assertEquals("task_locked", partitionOf(id));
+
+        mvc.perform(post("/api/v1/task/complete/" + id)
+                .header(TENANT_HEADER, TENANT)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        assertEquals("task_completed", partitionOf(id));
+    }
+
+    @Test
+    public void shouldKeepNamesUniqueAcrossPartitions() throws Exception {
+        Integer id = create("partition unique");
+        edit(id, task("partition unique", TaskStatus.COMPLETED)).andExpect(status().isOk());
+
+        add(task("partition unique", null))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(DUPLICATED_TASK_NAME.name()));
+        Integer other = create("partition other");
+        edit(other, task("partition unique", TaskStatus.LOCKED))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(DUPLICATED_TASK_NAME.name()));
+
+        edit(id, task("partition renamed", TaskStatus.COMPLETED)).andExpect(status().isOk());
+        create("partition unique");
+        mvc.perform(delete("/api/v1/task/delete/" + other)
+                .header(TENANT_HEADER, TENANT)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        create("partition other");
+    }
+
+    @Test
+    public void shouldImportIntoPartitionsByName() throws Exception {
+        Integer id = create("partition import");
+        mvc.perform(post("/api/v1/task/import")
+                .header(TENANT_HEADER, TENANT)
+                .param("overwrite", "true")
+                .contentType("text/csv")
+                .content("name,description,status\npartition import,imported,COMPLETED\n"
+                        + "partition imported,imported,LOCKED\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted").value(1))
+                .andExpect(jsonPath("$.updated").value(1));
+        assertEquals("task_completed", partitionOf(id));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM public.task_locked"
+                + " WHERE tenant_id = ? AND name = 'partition imported'", Integer.class, TENANT));
+    }
+
+    private String partitionOf(Integer id) {
+        return jdbcTemplate.queryForObject("SELECT tableoid::regclass::text FROM public.task WHERE id = ?",
+                String.class, id);
+    }
+
+    private Integer create(String name) throws Exception {
+        String body = add(task(name, null))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(body, TaskDto.class).getId();
+    }
+
+    private ResultActions add(TaskDto task) throws Exception {
+        return mvc.perform(post("/api/v1/task/add")
+                .header(TENANT_HEADER, TENANT)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(task)));
+    }
+
+    private ResultActions edit(Integer id, TaskDto task) throws Exception {
+        return mvc.perform(post("/api/v1/task/edit/" + id)
+                .header(TENANT_HEADER, TENANT)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(task)));
+    }
+
+    private static TaskDto task(String name, TaskStatus status) {
+        return TaskDto.builder()
+                .name(name)
+                .description(name + " description")
+                .status(status)
+                .build();
+    }
+}
@@ -0,0 +1,192 @@
+package net.erply.demo.task.controller;
+
+import static net.erply.demo.task.controller.TaskControllerIT.asJsonString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import com.jayway.jsonpath.JsonPath;
+import net.erply.demo.IntegrationTestConfiguration;
+import net.erply.demo.base.shard.ShardRouter;
+import net.erply.demo.task.api.TaskDto;
+import net.erply.demo.task.entity.TaskStatus;
+import net.erply.demo.task.service.IdempotencyService;
+
+/**
+ * Moves a tenant between two shards, each a database of its own: its tasks, history and idempotency keys
+ * end up on the target only, its writes are refused while it moves, and its history reads the same afterwards.
+ */
+@SpringBootTest
+@TestPropertySource(locations = "classpath:application.yml", properties = {
+        "task.sharding.enabled=true",
+        "task.sharding.placement-refresh-ms=200",
+        "task.idempotency.store=database" })
+@ContextConfiguration(classes = IntegrationTestConfiguration.class)
+@AutoConfigureMockMvc
+@Testcontainers
+public class TenantMoveIT {
+
+    private static final String TENANT_HEADER = "X-Tenant-Id";
+
+    private static final String TENANT = "moving";
+
+    @Container
+    private static final PostgreSQLContainer<?> SHARD_0 = shard();
+
+    @Container
+    private static final PostgreSQLContainer<?> SHARD_1 = shard();
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ShardRouter router;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void shards(DynamicPropertyRegistry registry) {
+        register(registry, 0, SHARD_0);
+        register(registry, 1, SHARD_1);
+    }
+
+    @Test
+    public void shouldMoveTenantToAnotherShard() throws Exception {
+        Integer kept = create("move kept", "move-key");
+        Integer changed = create("move changed", null);
+        mvc.perform(post("/api/v1/task/edit/" + changed)
+                .header(TENANT_HEADER, TENANT)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(TaskDto.builder()
+                        .name("move changed")
+                        .description("locked")
+                        .status(TaskStatus.LOCKED)
+                        .build())))
+                .andExpect(status().isOk());
+        mvc.perform(post("/api/v1/task/complete/" + changed)
+                .header(TENANT_HEADER, TENANT)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        awaitHistory(kept, 1);
+        String history = awaitHistory(changed, 3);
+        String source = router.shardFor(TENANT);
+        String target = source.equals("shard-0") ? "shard-1" : "shard-0";
+
+        CompletableFuture<MockHttpServletResponse> move = CompletableFuture.supplyAsync(() -> perform(
+                post("/api/v1/admin/tenant/" + TENANT + "/move").param("to", target)));
+        boolean refused = false;
+        while (!move.isDone()) {
+            MockHttpServletResponse write = perform(post("/api/v1/task/complete/999999")
+                    .header(TENANT_HEADER, TENANT)
+                    .contentType(MediaType.APPLICATION_JSON));
+            refused |= write.getStatus() == 503;
+            Thread.sleep(20);
+        }
+        MockHttpServletResponse moved = move.get(30, TimeUnit.SECONDS);
+
+        assertEquals(200, moved.getStatus(), moved::getContentAsString);
+        assertTrue(refused, "Writes are refused while the tenant moves");
+        assertEquals(2, JsonPath.<Integer>read(moved.getContentAsString(), "$.tasks"));
+        assertEquals(4, JsonPath.<Integer>read(moved.getContentAsString(), "$.historyEvents"));
+        assertEquals(target, router.shardFor(TENANT));
+        assertEquals(2, count(target, "task"));
+        assertEquals(4, count(target, "task_history"));
+        assertEquals(1, count(target, "idempotency_key"));
+        assertEquals(0, count(source, "task"));
+        assertEquals(0, count(source, "task_history"));
+        assertEquals(0, count(source, "idempotency_key"));
+
+        assertEquals(history, history(changed));
+        mvc.perform(get("/api/v1/task/list")
+                .header(TENANT_HEADER, TENANT)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+        assertEquals(kept, create("move kept", "move-key"));
+        create("move after", null);
+        assertEquals(3, count(target, "task"));
+    }
+
+    private Integer create(String name, String idempotencyKey) throws Exception {
+        MockHttpServletRequestBuilder request = post("/api/v1/task/add")
+                .header(TENANT_HEADER, TENANT)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(TaskDto.builder().name(name).description("descr").build()));
+        if (idempotencyKey != null) {
+            request.header(IdempotencyService.HEADER, idempotencyKey);
+        }
+        MockHttpServletResponse response = perform(request);
+        assertEquals(200, response.getStatus(), response::getContentAsString);
+        return JsonPath.read(response.getContentAsString(), "$.id");
+    }
+
+    private String history(Integer id) throws Exception {
+        return mvc.perform(get("/api/v1/task/history/" + id).header(TENANT_HEADER, TENANT))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    /**
+     * History is written in the background; waits until {@code events} of the task are there.
+     */
+    private String awaitHistory(Integer id, int events) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String body = history(id);
+        while (JsonPath.<Integer>read(body, "$.length()") < events && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+            body = history(id);
+        }
+        return body;
+    }
+
+    private long count(String shard, String table) {
+        return router.callOn(shard, () -> jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM public." + table + " WHERE tenant_id = ?", Long.class, TENANT));
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequestBuilder request) {
+        try {
+            return mvc.perform(request).andReturn().getResponse();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static PostgreSQLContainer<?> shard() {
+        return new PostgreSQLContainer<>("postgres:12")
+                .withUsername("taskapp_admin")
+                .withPassword("taskapp_admin")
+                .withDatabaseName("taskapp");
+    }
+
+    private static void register(DynamicPropertyRegistry registry, int index, PostgreSQLContainer<?> container) {
+        String prefix = "task.sharding.shards[" + index + "].";
+        registry.add(prefix + "name", () -> "shard-" + index);
+        registry.add(prefix + "url", container::getJdbcUrl);
+        registry.add(prefix + "username", container::getUsername);
+        registry.add(prefix + "password", container::getPassword);
+    }
+}
@@ -0,0 +1,116 @@
+package net.erply.demo.task.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.containers.JdbcDatabaseContainer;
+import net.erply.demo.IntegrationTestConfiguration;
+
+/**
+ * Changes written by another node, here a plain second connection, reach the subscribers through the
+ * {@code task_notify_*} triggers and {@link TaskChangeListener}.
+ */
+@SpringBootTest
+@TestPropertySource(locations="classpath:application.yml")
+@ContextConfiguration(classes = { IntegrationTestConfiguration.class, TaskChangeListenerIT.RecordingSubscriber.class })
+public class TaskChangeListenerIT {
+
+    private static final String RESYNC = "resync";
+
+    @Autowired
+    private RecordingSubscriber subscriber;
+
+    @Autowired
+    private JdbcDatabaseContainer<?> container;
+
+    @BeforeEach
+    void awaitListening() throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (subscriber.events.poll(200, TimeUnit.MILLISECONDS) == null) {
+            assertTrue(System.nanoTime() < deadline, "Task change listener did not start listening");
+            write("UPDATE public.task SET description = description WHERE id = 1");
+        }
+        Thread.sleep(200);
+        subscriber.events.clear();
+    }
+
+    @Test
+    public void shouldPublishIdsWrittenElsewhere() throws Exception {
+        Set<Object> ids = write("INSERT INTO public.task (tenant_id, name, description) VALUES"
+                + " ('notify', 'notified #1', 'descr'), ('notify', 'notified #2', 'descr') RETURNING id");
+
+        Set<Object> received = new HashSet<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!received.containsAll(ids) && System.nanoTime() < deadline) {
+            Object event = subscriber.events.poll(100, TimeUnit.MILLISECONDS);
+            if (event != null) {
+                received.add(event);
+            }
+        }
+        assertEquals(ids, received);
+    }
+
+    @Test
+    public void shouldAskForResyncAboveHundredRows() throws Exception {
+        write("INSERT INTO public.task (tenant_id, name, description)"
+                + " SELECT 'notify', 'bulk #' || i, 'descr' FROM generate_series(1, 101) i RETURNING id");
+
+        assertEquals(RESYNC, subscriber.events.poll(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Runs {@code sql} on a connection of its own, outside of the application's pool.
+     *
+     * @return ids the statement returned, if any
+     */
+    private Set<Object> write(String sql) throws SQLException {
+        Set<Object> ids = new HashSet<>();
+        try (Connection connection = DriverManager.getConnection(container.getJdbcUrl(), container.getUsername(),
+                container.getPassword());
+             Statement st = connection.createStatement()) {
+            if (st.execute(sql)) {
+                try (ResultSet rs = st.getResultSet()) {
+                    while (rs.next()) {
+                        ids.add(rs.getInt(1));
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Queues every id it is told about, and {@link #RESYNC} for a resync.
+     */
+    static class RecordingSubscriber implements TaskChangeSubscriber {
+
+        final BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onTasksChanged(Set<Integer> ids) {
+            events.addAll(ids);
+        }
+
+        @Override
+        public void onResync() {
+            events.add(RESYNC);
+        }
+    }
+}
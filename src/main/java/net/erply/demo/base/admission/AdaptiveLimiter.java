@@ -0,0 +1,85 @@
+package net.erply.demo.base.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limiter with an AIMD adjusted limit: grows by one while requests finish under
+ * the target latency and the limit is actually used, shrinks multiplicatively when they don't.
+ * One overload is reported by every request in flight at the time, so after a decrease the next
+ * one waits for a limit's worth of further samples.
+ */
+public class AdaptiveLimiter {
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long targetLatencyNanos;
+
+    private final double backoffRatio;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+
+    private long samples;
+
+    private long nextDecreaseAt;
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, long targetLatencyMs, double backoffRatio) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMs);
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * @param share fraction of the limit available to the caller, lower priorities get a smaller share
+     */
+    public boolean tryAcquire(double share) {
+        int allowed = Math.max(1, (int) (limit * share));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release(long latencyNanos) {
+        int current = inFlight.getAndDecrement();
+        adjust(latencyNanos, current);
+    }
+
+    /**
+     * Releases without feeding the latency into the limit, for requests that are slow by design.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    private synchronized void adjust(long latencyNanos, int inFlightAtRelease) {
+        samples++;
+        if (latencyNanos > targetLatencyNanos) {
+            if (samples >= nextDecreaseAt) {
+                nextDecreaseAt = samples + (long) Math.ceil(limit);
+                limit = Math.max(minLimit, limit * backoffRatio);
+            }
+        } else if (inFlightAtRelease * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
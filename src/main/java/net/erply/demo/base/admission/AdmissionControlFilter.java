@@ -0,0 +1,129 @@
+package net.erply.demo.base.admission;
+
+import static net.erply.demo.base.entity.ErrorCode.SERVICE_OVERLOADED;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import net.erply.demo.base.api.ErrorDto;
+
+/**
+ * Load shedding in front of the task API. A request has to fit both into its endpoint limiter and
+ * into its priority share of the global limiter, otherwise it is rejected at once with 503 and
+ * {@code Retry-After} instead of queueing for a JDBC connection.
+ */
+@Slf4j
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final Set<String> ENDPOINTS = Set.of("add", "edit", "delete", "complete", "list", "get",
+            "history", "import", "suggest");
+
+    private static final String OTHER_ENDPOINT = "other";
+
+    private final String pathPrefix;
+
+    private final AdaptiveLimiter globalLimiter;
+
+    private final Supplier<AdaptiveLimiter> endpointLimiterFactory;
+
+    private final Map<String, AdaptiveLimiter> endpointLimiters = new ConcurrentHashMap<>();
+
+    private final String retryAfterSeconds;
+
+    private final byte[] overloadedBody;
+
+    public AdmissionControlFilter(String pathPrefix, AdaptiveLimiter globalLimiter,
+                                  Supplier<AdaptiveLimiter> endpointLimiterFactory, int retryAfterSeconds,
+                                  ObjectMapper objectMapper) throws IOException {
+        this.pathPrefix = pathPrefix;
+        this.globalLimiter = globalLimiter;
+        this.endpointLimiterFactory = endpointLimiterFactory;
+        this.retryAfterSeconds = String.valueOf(retryAfterSeconds);
+        this.overloadedBody = objectMapper.writeValueAsBytes(ErrorDto.builder()
+                .code(SERVICE_OVERLOADED.name())
+                .build());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String endpoint = endpoint(request);
+        RequestPriority priority = priority(endpoint, request.getMethod());
+        AdaptiveLimiter endpointLimiter = endpointLimiters.computeIfAbsent(endpoint,
+                e -> endpointLimiterFactory.get());
+
+        if (!endpointLimiter.tryAcquire(1.0)) {
+            reject(response, endpoint, endpointLimiter);
+            return;
+        }
+        if (!globalLimiter.tryAcquire(priority.getShare())) {
+            endpointLimiter.release();
+            reject(response, endpoint, globalLimiter);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long latency = System.nanoTime() - start;
+            if (priority == RequestPriority.BULK) {
+                endpointLimiter.release();
+                globalLimiter.release();
+            } else {
+                endpointLimiter.release(latency);
+                globalLimiter.release(latency);
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !path(request).startsWith(pathPrefix);
+    }
+
+    public Map<String, AdaptiveLimiter> getEndpointLimiters() {
+        return endpointLimiters;
+    }
+
+    private String endpoint(HttpServletRequest request) {
+        String path = path(request).substring(pathPrefix.length());
+        int slash = path.indexOf('/');
+        String endpoint = slash < 0 ? path : path.substring(0, slash);
+        return ENDPOINTS.contains(endpoint) ? endpoint : OTHER_ENDPOINT;
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static RequestPriority priority(String endpoint, String method) {
+        if (HttpMethod.GET.matches(method)) {
+            return RequestPriority.READ;
+        }
+        return "import".equals(endpoint) ? RequestPriority.BULK : RequestPriority.WRITE;
+    }
+
+    private void reject(HttpServletResponse response, String endpoint, AdaptiveLimiter limiter) throws IOException {
+        log.debug("Shedding {} request: limit {}, in flight {}", endpoint, limiter.getLimit(), limiter.getInFlight());
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(overloadedBody);
+    }
+}
@@ -0,0 +1,20 @@
+package net.erply.demo.base.admission;
+
+/**
+ * Share of the global concurrency limit each kind of request may occupy.
+ */
+public enum RequestPriority {
+    READ(1.0),
+    WRITE(0.7),
+    BULK(0.2);
+
+    private final double share;
+
+    RequestPriority(double share) {
+        this.share = share;
+    }
+
+    public double getShare() {
+        return share;
+    }
+}
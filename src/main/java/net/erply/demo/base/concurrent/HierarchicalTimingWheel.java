@@ -0,0 +1,192 @@
+package net.erply.demo.base.concurrent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timing wheel keyed by {@code T}. Level {@code l} has {@code wheelSize} slots of
+ * {@code wheelSize^l} ticks each; timers cascade to lower levels as their slot comes up.
+ * Scheduling and cancelling are O(1), advancing costs O(1) per tick plus the fired timers.
+ * Not thread-safe by itself; callers serialize access.
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private final long tickMs;
+
+    private final int wheelSize;
+
+    private final long[] spans;
+
+    private final Bucket<T>[][] buckets;
+
+    private final Bucket<T> due = new Bucket<>();
+
+    private final Map<T, Node<T>> timers = new HashMap<>();
+
+    private final long originMs;
+
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, int levels, long nowMs) {
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.originMs = nowMs;
+        this.spans = new long[levels];
+        this.buckets = new Bucket[levels][wheelSize];
+        long span = 1;
+        for (int level = 0; level < levels; level++) {
+            spans[level] = span;
+            span *= wheelSize;
+            for (int slot = 0; slot < wheelSize; slot++) {
+                buckets[level][slot] = new Bucket<>();
+            }
+        }
+    }
+
+    /**
+     * Schedules {@code key} at {@code deadlineMs}, replacing its previous deadline.
+     */
+    public void schedule(T key, long deadlineMs) {
+        cancel(key);
+        Node<T> node = new Node<>(key, Math.max(0, Math.floorDiv(deadlineMs - originMs + tickMs - 1, tickMs)));
+        timers.put(key, node);
+        place(node);
+    }
+
+    public boolean cancel(T key) {
+        Node<T> node = timers.remove(key);
+        if (node == null) {
+            return false;
+        }
+        node.unlink();
+        return true;
+    }
+
+    public boolean contains(T key) {
+        return timers.containsKey(key);
+    }
+
+    public int size() {
+        return timers.size();
+    }
+
+    /**
+     * Advances the wheel to {@code nowMs}.
+     *
+     * @return keys whose deadline has passed, in no particular order
+     */
+    public List<T> advanceTo(long nowMs) {
+        List<T> expired = new ArrayList<>();
+        long targetTick = Math.floorDiv(nowMs - originMs, tickMs);
+        drain(due, expired);
+        while (currentTick < targetTick) {
+            currentTick++;
+            for (int level = spans.length - 1; level > 0; level--) {
+                if (currentTick % spans[level] == 0) {
+                    cascade(buckets[level][(int) ((currentTick / spans[level]) % wheelSize)]);
+                }
+            }
+            drain(due, expired);
+            drain(buckets[0][(int) (currentTick % wheelSize)], expired);
+        }
+        return expired;
+    }
+
+    private void place(Node<T> node) {
+        long delta = node.deadlineTick - currentTick;
+        if (delta <= 0) {
+            due.add(node);
+            return;
+        }
+        int level = 0;
+        while (level < spans.length - 1 && delta >= spans[level] * wheelSize) {
+            level++;
+        }
+        buckets[level][(int) ((node.deadlineTick / spans[level]) % wheelSize)].add(node);
+    }
+
+    private void cascade(Bucket<T> bucket) {
+        Node<T> node = bucket.detach();
+        while (node != null) {
+            Node<T> next = node.next;
+            node.prev = null;
+            node.next = null;
+            place(node);
+            node = next;
+        }
+    }
+
+    private void drain(Bucket<T> bucket, List<T> expired) {
+        Node<T> node = bucket.detach();
+        while (node != null) {
+            Node<T> next = node.next;
+            node.prev = null;
+            node.next = null;
+            timers.remove(node.key);
+            expired.add(node.key);
+            node = next;
+        }
+    }
+
+    private static class Node<T> {
+        final T key;
+        final long deadlineTick;
+        Bucket<T> bucket;
+        Node<T> prev;
+        Node<T> next;
+
+        Node(T key, long deadlineTick) {
+            this.key = key;
+            this.deadlineTick = deadlineTick;
+        }
+
+        void unlink() {
+            if (bucket != null) {
+                bucket.remove(this);
+            }
+        }
+    }
+
+    private static class Bucket<T> {
+        private Node<T> head;
+
+        void add(Node<T> node) {
+            node.bucket = this;
+            node.prev = null;
+            node.next = head;
+            if (head != null) {
+                head.prev = node;
+            }
+            head = node;
+        }
+
+        void remove(Node<T> node) {
+            if (node.prev != null) {
+                node.prev.next = node.next;
+            } else {
+                head = node.next;
+            }
+            if (node.next != null) {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            node.bucket = null;
+        }
+
+        /**
+         * Empties the bucket and returns its former head; nodes keep their links.
+         */
+        Node<T> detach() {
+            Node<T> first = head;
+            head = null;
+            for (Node<T> node = first; node != null; node = node.next) {
+                node.bucket = null;
+            }
+            return first;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package net.erply.demo.base.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free ring buffer for many producers and a single consumer. Each slot carries a
+ * sequence number telling producers and the consumer whose turn it is, so neither side locks.
+ */
+public class MpscRingBuffer<E> {
+
+    private final int mask;
+
+    private final AtomicReferenceArray<E> elements;
+
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong head = new AtomicLong();
+
+    private volatile long tail;
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public MpscRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return {@code false} when the buffer is full
+     */
+    public boolean offer(E element) {
+        long pos = head.get();
+        while (true) {
+            int idx = (int) (pos & mask);
+            long dif = sequences.get(idx) - pos;
+            if (dif == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    elements.lazySet(idx, element);
+                    sequences.set(idx, pos + 1);
+                    return true;
+                }
+                pos = head.get();
+            } else if (dif < 0) {
+                return false;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    /**
+     * Consumer side only.
+     *
+     * @return number of drained elements
+     */
+    public int drain(Consumer<E> consumer, int max) {
+        long pos = tail;
+        int drained = 0;
+        while (drained < max) {
+            int idx = (int) (pos & mask);
+            if (sequences.get(idx) != pos + 1) {
+                break;
+            }
+            E element = elements.get(idx);
+            elements.lazySet(idx, null);
+            sequences.set(idx, pos + mask + 1);
+            pos++;
+            drained++;
+            consumer.accept(element);
+        }
+        tail = pos;
+        return drained;
+    }
+
+    public int size() {
+        return (int) Math.max(0, head.get() - tail);
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
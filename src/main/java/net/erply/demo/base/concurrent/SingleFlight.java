@@ -0,0 +1,111 @@
+package net.erply.demo.base.concurrent;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls with the same key into one execution. Callers arriving while a call is
+ * in flight, or within {@code window} after it completed, get the shared result.
+ */
+public class SingleFlight<K, V> {
+
+    private static final int PURGE_THRESHOLD = 1024;
+
+    private final long windowNanos;
+
+    private final Map<K, Flight<V>> flights = new ConcurrentHashMap<>();
+
+    private final Runnable onCollapsed;
+
+    public SingleFlight(long windowMs, Runnable onCollapsed) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.onCollapsed = onCollapsed;
+    }
+
+    public V execute(K key, Supplier<V> call) {
+        Flight<V> own = new Flight<>();
+        while (true) {
+            Flight<V> existing = flights.putIfAbsent(key, own);
+            if (existing == null) {
+                return lead(key, own, call);
+            }
+            if (!existing.isExpired(windowNanos)) {
+                onCollapsed.run();
+                return await(existing);
+            }
+            flights.remove(key, existing);
+        }
+    }
+
+    /**
+     * Drops a shared result, so the next caller runs the call again. In-flight callers are not affected.
+     */
+    public void forget(K key) {
+        flights.remove(key);
+    }
+
+    public void forgetIf(Predicate<K> filter) {
+        flights.keySet().removeIf(filter);
+    }
+
+    public void forgetAll() {
+        flights.clear();
+    }
+
+    private V lead(K key, Flight<V> flight, Supplier<V> call) {
+        try {
+            V value = call.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            // errors too, or the callers waiting on this flight would never be released
+            flights.remove(key, flight);
+            flight.fail(e);
+            throw e;
+        } finally {
+            if (windowNanos == 0) {
+                flights.remove(key, flight);
+            } else if (flights.size() > PURGE_THRESHOLD) {
+                flights.values().removeIf(f -> f.isExpired(windowNanos));
+            }
+        }
+    }
+
+    private V await(Flight<V> flight) {
+        try {
+            return flight.future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static class Flight<V> {
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+        private volatile long completedAt;
+
+        void complete(V value) {
+            completedAt = System.nanoTime();
+            future.complete(value);
+        }
+
+        void fail(Throwable e) {
+            completedAt = System.nanoTime();
+            future.completeExceptionally(e);
+        }
+
+        boolean isExpired(long windowNanos) {
+            return future.isDone() && System.nanoTime() - completedAt >= windowNanos;
+        }
+    }
+}
@@ -7,5 +7,20 @@ public enum ErrorCode {
     EMPTY_TASK_FIELD_DESCRIPTION,
     UNEXPECTED_ERROR,
     WRONG_TASK_ID,
-    TASK_NOT_FOUND
+    TASK_NOT_FOUND,
+    TOO_LONG_TASK_FIELD_NAME,
+    MALFORMED_IMPORT_ROW,
+    UNSUPPORTED_IMPORT_FORMAT,
+    IMPORT_REPORT_NOT_FOUND,
+    SERVICE_OVERLOADED,
+    WRONG_TENANT_ID,
+    TENANT_MOVING,
+    UNKNOWN_SHARD,
+    TENANT_MOVE_FAILED,
+    PROFILING_DISABLED,
+    PROFILING_DUMP_FAILED,
+    WRONG_DUMP_WINDOW,
+    WRONG_IDEMPOTENCY_KEY,
+    IDEMPOTENCY_KEY_REUSED,
+    IDEMPOTENCY_KEY_IN_FLIGHT
 }
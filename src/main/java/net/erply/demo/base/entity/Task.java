@@ -1,5 +1,7 @@
 package net.erply.demo.base.entity;
 
+import java.time.Instant;
+
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
@@ -23,6 +25,10 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import net.erply.demo.task.entity.TaskStatus;
 
+/**
+ * A row of {@code public.task}, which is partitioned by status: updates changing the status move the row
+ * to another partition. Names are unique per tenant through {@code public.task_name}, kept by triggers.
+ */
 @Builder
 @Getter
 @Setter
@@ -38,14 +44,20 @@ public class Task {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
 
-    @Column(name = "name", nullable = false, unique = true)
+    @Column(name = "tenant_id", nullable = false, updatable = false)
+    private String tenantId;
+
+    @Column(name = "name", nullable = false)
     private String name;
 
     @Column(name = "description", nullable = false)
     private String description;
 
-    @Column(name = "status")
+    @Column(name = "status", nullable = false)
     @Enumerated(EnumType.STRING)
     private TaskStatus status;
 
+    @Column(name = "due_at")
+    private Instant dueAt;
+
 }
@@ -0,0 +1,10 @@
+package net.erply.demo.base.exception;
+
+public class GetTaskBadResponseException extends TaskException {
+
+    private static final long serialVersionUID = 6204961318825716342L;
+
+    public GetTaskBadResponseException(String code) {
+        super(code);
+    }
+}
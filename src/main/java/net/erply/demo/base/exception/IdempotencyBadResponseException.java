@@ -0,0 +1,10 @@
+package net.erply.demo.base.exception;
+
+public class IdempotencyBadResponseException extends TaskException {
+
+    private static final long serialVersionUID = 7305589720466328411L;
+
+    public IdempotencyBadResponseException(String code) {
+        super(code);
+    }
+}
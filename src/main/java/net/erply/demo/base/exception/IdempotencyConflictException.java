@@ -0,0 +1,14 @@
+package net.erply.demo.base.exception;
+
+/**
+ * The request is fine, but another one with the same idempotency key is still running; retrying later
+ * gets its response.
+ */
+public class IdempotencyConflictException extends TaskException {
+
+    private static final long serialVersionUID = -2270512470940618395L;
+
+    public IdempotencyConflictException(String code) {
+        super(code);
+    }
+}
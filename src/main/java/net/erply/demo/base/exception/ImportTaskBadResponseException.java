@@ -0,0 +1,10 @@
+package net.erply.demo.base.exception;
+
+public class ImportTaskBadResponseException extends TaskException {
+
+    private static final long serialVersionUID = 2917534029471283645L;
+
+    public ImportTaskBadResponseException(String code) {
+        super(code);
+    }
+}
@@ -0,0 +1,10 @@
+package net.erply.demo.base.exception;
+
+public class ProfilingBadResponseException extends TaskException {
+
+    private static final long serialVersionUID = 4817269203157340126L;
+
+    public ProfilingBadResponseException(String code) {
+        super(code);
+    }
+}
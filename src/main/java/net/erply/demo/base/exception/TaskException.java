@@ -2,11 +2,16 @@ package net.erply.demo.base.exception;
 
 import lombok.Getter;
 
+/**
+ * Business error reported to the client by its code. Carries no stack trace: it is thrown for every
+ * rejected request, and the trace would only ever point at the same few lines of the service.
+ */
 @Getter
 public class TaskException extends RuntimeException {
     private static final long serialVersionUID = -5515807722109543867L;
     private String code;
     public TaskException(String code) {
+        super(code, null, false, false);
         this.code = code;
     }
 }
@@ -0,0 +1,10 @@
+package net.erply.demo.base.exception;
+
+public class TenantMoveBadResponseException extends TaskException {
+
+    private static final long serialVersionUID = -3349327181657402175L;
+
+    public TenantMoveBadResponseException(String code) {
+        super(code);
+    }
+}
@@ -0,0 +1,205 @@
+package net.erply.demo.base.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only record log in a memory-mapped file. Each record is framed by its length and CRC32, and
+ * the first empty or damaged frame ends the log, so a record torn by a crash is dropped on replay
+ * together with anything after it. Appends land in the page cache and survive a process crash;
+ * {@link #force()} or {@code syncWrites} make them survive an OS crash too. The file grows by
+ * doubling, up to 2 GB, and is compacted by {@link #rewrite} into a fresh file swapped in atomically.
+ */
+@Slf4j
+public class MappedJournal implements Closeable {
+
+    private static final int HEADER = 2 * Integer.BYTES;
+
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    @FunctionalInterface
+    public interface RecordSink {
+        void append(ByteBuffer record) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface RecordProducer {
+        void produce(RecordSink sink) throws IOException;
+    }
+
+    private final Path file;
+
+    private final int initialCapacity;
+
+    private final boolean syncWrites;
+
+    private final CRC32 crc = new CRC32();
+
+    private FileChannel channel;
+
+    private MappedByteBuffer buffer;
+
+    private int position;
+
+    /**
+     * @param syncWrites force every append to disk before returning
+     */
+    public MappedJournal(Path file, int initialCapacity, boolean syncWrites) throws IOException {
+        this.file = file;
+        this.initialCapacity = initialCapacity;
+        this.syncWrites = syncWrites;
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        open();
+    }
+
+    /**
+     * Hands every intact record to {@code consumer}, oldest first, and positions appends after the
+     * last of them. Damaged bytes after it are zeroed. Must run before appending to an existing file.
+     *
+     * @return number of records replayed
+     */
+    public synchronized int replay(Consumer<ByteBuffer> consumer) {
+        int count = 0;
+        int pos = 0;
+        while (pos + HEADER <= buffer.capacity()) {
+            int length = buffer.getInt(pos);
+            if (length == 0) {
+                break;
+            }
+            if (length < 0 || length > buffer.capacity() - pos - HEADER
+                    || buffer.getInt(pos + Integer.BYTES) != checksum(pos + HEADER, length)) {
+                log.warn("Journal {} has a damaged record at offset {}, dropping the rest", file, pos);
+                zero(pos, buffer.capacity());
+                break;
+            }
+            consumer.accept(slice(pos + HEADER, length).asReadOnlyBuffer());
+            pos += HEADER + length;
+            count++;
+        }
+        position = pos;
+        return count;
+    }
+
+    public synchronized void append(ByteBuffer record) throws IOException {
+        int length = record.remaining();
+        if (length == 0) {
+            throw new IllegalArgumentException("Empty journal record");
+        }
+        ensureCapacity(position + HEADER + (long) length);
+        int crcValue = checksum(record);
+        buffer.putInt(position + Integer.BYTES, crcValue);
+        ByteBuffer target = slice(position + HEADER, length);
+        target.put(record);
+        buffer.putInt(position, length);
+        position += HEADER + length;
+        if (syncWrites) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * Bytes in use, including frames.
+     */
+    public synchronized int size() {
+        return position;
+    }
+
+    public synchronized void force() {
+        buffer.force();
+    }
+
+    /**
+     * Replaces the content with the records {@code producer} emits. They are written to a sibling file
+     * first, so a crash midway leaves the old content in place. Callers make sure nothing is appended
+     * meanwhile.
+     */
+    public synchronized void rewrite(RecordProducer producer) throws IOException {
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+        Files.deleteIfExists(compacted);
+        int written;
+        try (MappedJournal target = new MappedJournal(compacted, Math.max(initialCapacity, position / 2), false)) {
+            producer.produce(target::append);
+            target.force();
+            written = target.size();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(compacted);
+            throw e;
+        }
+        channel.close();
+        Files.move(compacted, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        open();
+        position = written;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            buffer.force();
+            channel.close();
+        }
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        map((int) Math.min(MAX_CAPACITY, Math.max(channel.size(), initialCapacity)));
+        position = 0;
+    }
+
+    private void map(int capacity) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private void ensureCapacity(long needed) throws IOException {
+        if (needed <= buffer.capacity()) {
+            return;
+        }
+        if (needed > MAX_CAPACITY) {
+            throw new IOException("Journal " + file + " is full");
+        }
+        long capacity = Math.max(buffer.capacity(), 4096);
+        while (capacity < needed) {
+            capacity *= 2;
+        }
+        buffer.force();
+        map((int) Math.min(MAX_CAPACITY, capacity));
+    }
+
+    private ByteBuffer slice(int offset, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset).limit(offset + length);
+        return view.slice();
+    }
+
+    private int checksum(int offset, int length) {
+        return checksum(slice(offset, length));
+    }
+
+    private int checksum(ByteBuffer data) {
+        crc.reset();
+        crc.update(data.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private void zero(int from, int to) {
+        byte[] zeros = new byte[Math.min(64 * 1024, to - from)];
+        ByteBuffer view = buffer.duplicate();
+        view.position(from);
+        while (view.position() < to) {
+            view.put(zeros, 0, Math.min(zeros.length, to - view.position()));
+        }
+    }
+}
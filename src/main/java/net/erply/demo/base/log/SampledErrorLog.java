@@ -0,0 +1,116 @@
+package net.erply.demo.base.log;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.erply.demo.base.entity.ErrorCode;
+
+/**
+ * Rate-limited error logging keyed by {@link ErrorCode}. Every occurrence is counted in
+ * {@code task.errors}; only the first {@code permits-per-second} of each code are logged per second,
+ * the rest are counted in {@code task.errors.suppressed} and summarized in the next logged line.
+ * Warnings are logged without stack traces.
+ */
+@Component
+public class SampledErrorLog {
+
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int permitsPerSecond;
+
+    private final Map<ErrorCode, Window> windows = new EnumMap<>(ErrorCode.class);
+
+    public SampledErrorLog(MeterRegistry meterRegistry,
+                           @Value("${task.errors.log-permits-per-second:5}") int permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+        for (ErrorCode code : ErrorCode.values()) {
+            windows.put(code, new Window(
+                    meterRegistry.counter("task.errors", "code", code.name()),
+                    meterRegistry.counter("task.errors.suppressed", "code", code.name())));
+        }
+    }
+
+    /**
+     * Counts an error that is not logged at all.
+     */
+    public void count(ErrorCode code) {
+        windows.get(code).total.increment();
+    }
+
+    /**
+     * Logs at WARN; a trailing {@link Throwable} argument is reduced to its message.
+     */
+    public void warn(Logger log, ErrorCode code, String format, Object... args) {
+        long suppressed = acquire(code);
+        if (suppressed < 0 || !log.isWarnEnabled()) {
+            return;
+        }
+        if (args.length > 0 && args[args.length - 1] instanceof Throwable) {
+            Object[] flat = Arrays.copyOf(args, args.length);
+            flat[flat.length - 1] = String.valueOf(args[args.length - 1]);
+            log.warn(decorate(code, format + ": {}", suppressed), flat);
+        } else {
+            log.warn(decorate(code, format, suppressed), args);
+        }
+    }
+
+    /**
+     * Logs at ERROR, including the stack trace of a trailing {@link Throwable} argument.
+     */
+    public void error(Logger log, ErrorCode code, String format, Object... args) {
+        long suppressed = acquire(code);
+        if (suppressed >= 0) {
+            log.error(decorate(code, format, suppressed), args);
+        }
+    }
+
+    /**
+     * @return number of lines suppressed since the last logged one, or -1 if this one is suppressed too
+     */
+    private long acquire(ErrorCode code) {
+        Window window = windows.get(code);
+        window.total.increment();
+        long now = System.nanoTime();
+        long start = window.start.get();
+        if (now - start >= WINDOW_NANOS && window.start.compareAndSet(start, now)) {
+            window.used.set(0);
+        }
+        if (window.used.incrementAndGet() > permitsPerSecond) {
+            window.suppressed.increment();
+            window.pending.incrementAndGet();
+            return -1;
+        }
+        return window.pending.getAndSet(0);
+    }
+
+    private static String decorate(String format, ErrorCode code) {
+        return "[" + code.name() + "] " + format;
+    }
+
+    private static String decorate(ErrorCode code, String format, long suppressed) {
+        String line = decorate(format, code);
+        return suppressed > 0 ? line + " (" + suppressed + " similar suppressed)" : line;
+    }
+
+    private static class Window {
+        private final Counter total;
+        private final Counter suppressed;
+        private final AtomicLong start = new AtomicLong(System.nanoTime() - WINDOW_NANOS);
+        private final AtomicInteger used = new AtomicInteger();
+        private final AtomicLong pending = new AtomicLong();
+
+        Window(Counter total, Counter suppressed) {
+            this.total = total;
+            this.suppressed = suppressed;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package net.erply.demo.base.profiling;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Flight recording kept running for the life of the application, so a latency spike can be looked
+ * at after the fact instead of reproduced under a profiler. It uses the JDK's low-overhead
+ * {@code default} settings, plus allocation events when turned on for a while, and keeps the last
+ * {@code max-age-minutes} on disk within {@code max-size-mb}. {@link #dump} copies a recent window
+ * into a standalone file for JDK Mission Control; only the last {@code max-dumps} files are kept.
+ */
+@Slf4j
+@Component
+public class ContinuousRecording implements SmartLifecycle {
+
+    private static final String DUMP_PREFIX = "task-";
+
+    private static final String DUMP_SUFFIX = ".jfr";
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS")
+            .withZone(ZoneOffset.UTC);
+
+    private final boolean enabled;
+
+    private final String settings;
+
+    private final boolean allocations;
+
+    private final Duration maxAge;
+
+    private final long maxSizeBytes;
+
+    private final Duration eventThreshold;
+
+    private final Path dumpDir;
+
+    private final int maxDumps;
+
+    private Recording recording;
+
+    public ContinuousRecording(@Value("${task.profiling.enabled:true}") boolean enabled,
+                               @Value("${task.profiling.settings:default}") String settings,
+                               @Value("${task.profiling.allocations:false}") boolean allocations,
+                               @Value("${task.profiling.max-age-minutes:30}") long maxAgeMinutes,
+                               @Value("${task.profiling.max-size-mb:250}") long maxSizeMb,
+                               @Value("${task.profiling.event-threshold-ms:10}") long eventThresholdMs,
+                               @Value("${task.profiling.dump-dir:data/jfr}") String dumpDir,
+                               @Value("${task.profiling.max-dumps:5}") int maxDumps) {
+        this.enabled = enabled;
+        this.settings = settings;
+        this.allocations = allocations;
+        this.maxAge = Duration.ofMinutes(maxAgeMinutes);
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+        this.eventThreshold = Duration.ofMillis(eventThresholdMs);
+        this.dumpDir = Paths.get(dumpDir);
+        this.maxDumps = maxDumps;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!enabled) {
+            return;
+        }
+        if (!FlightRecorder.isAvailable()) {
+            log.warn("Flight recorder is not available in this JVM, continuous recording is off");
+            return;
+        }
+        Map<String, String> config = new HashMap<>(configuration(settings).getSettings());
+        if (allocations) {
+            config.put("jdk.ObjectAllocationInNewTLAB#enabled", "true");
+            config.put("jdk.ObjectAllocationOutsideTLAB#enabled", "true");
+        }
+        Recording started = new Recording(config);
+        started.setName("task-continuous");
+        started.setToDisk(true);
+        started.setMaxAge(maxAge);
+        started.setMaxSize(maxSizeBytes);
+        started.enable(TaskRequestEvent.class).withThreshold(eventThreshold);
+        started.enable(TaskOperationEvent.class).withThreshold(eventThreshold);
+        started.start();
+        recording = started;
+        log.info("Continuous flight recording started with '{}' settings, keeping {}", settings, maxAge);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return recording != null;
+    }
+
+    /**
+     * Writes what was recorded during the last {@code window}, capped at the recording's age, to a
+     * new file under the dump directory. Whole recording chunks are copied, so the file may start
+     * somewhat earlier. Older dumps beyond {@code max-dumps} are deleted.
+     *
+     * @throws IllegalStateException when the recording is not running
+     */
+    public synchronized Dump dump(Duration window) throws IOException {
+        if (recording == null) {
+            throw new IllegalStateException("Continuous recording is not running");
+        }
+        Instant to = Instant.now();
+        Instant from = to.minus(window.compareTo(maxAge) > 0 ? maxAge : window);
+        Files.createDirectories(dumpDir);
+        Path file = dumpDir.resolve(DUMP_PREFIX + FILE_TIME.format(to) + DUMP_SUFFIX);
+        try (Recording snapshot = FlightRecorder.getFlightRecorder().takeSnapshot();
+             InputStream data = snapshot.getStream(from, to)) {
+            if (data == null) {
+                throw new IOException("Nothing recorded since " + from);
+            }
+            Files.copy(data, file);
+        }
+        log.info("Dumped flight recording since {} to {}", from, file);
+        Dump dump = new Dump(file.toAbsolutePath(), Files.size(file), from, to);
+        prune();
+        return dump;
+    }
+
+    /**
+     * Deletes all but the newest {@code max-dumps} dumps; file names sort by time.
+     */
+    private void prune() throws IOException {
+        List<Path> dumps;
+        try (Stream<Path> files = Files.list(dumpDir)) {
+            dumps = files.filter(ContinuousRecording::isDump).sorted().collect(Collectors.toList());
+        }
+        for (Path old : dumps.subList(0, Math.max(0, dumps.size() - maxDumps))) {
+            Files.deleteIfExists(old);
+            log.info("Deleted old flight recording dump {}", old);
+        }
+    }
+
+    private static boolean isDump(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(DUMP_PREFIX) && name.endsWith(DUMP_SUFFIX);
+    }
+
+    private static Configuration configuration(String name) {
+        try {
+            return Configuration.getConfiguration(name);
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("Unknown flight recorder settings '" + name + "'", e);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Dump {
+        private final Path file;
+        private final long bytes;
+        private final Instant from;
+        private final Instant to;
+    }
+}
@@ -0,0 +1,39 @@
+package net.erply.demo.base.profiling;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread running total of time spent in data access calls. Profiling events read it when they
+ * begin and end, and the difference is the database share of what they measured.
+ */
+public final class DbTime {
+
+    private static final ThreadLocal<long[]> NANOS = ThreadLocal.withInitial(() -> new long[1]);
+
+    private DbTime() {
+    }
+
+    public static <T> T measure(Supplier<T> call) {
+        long[] total = NANOS.get();
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            total[0] += System.nanoTime() - start;
+        }
+    }
+
+    public static void measure(Runnable call) {
+        measure(() -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return nanoseconds this thread has spent in measured calls so far
+     */
+    public static long current() {
+        return NANOS.get()[0];
+    }
+}
@@ -0,0 +1,78 @@
+package net.erply.demo.base.profiling;
+
+import java.util.function.Supplier;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import net.erply.demo.base.exception.TaskException;
+import net.erply.demo.base.shard.TenantContext;
+
+/**
+ * Flight recorder event for one task service operation. Its duration is the whole operation and
+ * {@code dbTime} the part of it spent in data access, so a slow operation shows which side it lost
+ * its time on; method samples and allocations recorded on the same thread meanwhile fill in why.
+ */
+@Name(TaskOperationEvent.NAME)
+@Label("Task Operation")
+@Category({ "Task App", "Service" })
+@Description("Task service operation with the time it spent in data access")
+@StackTrace(false)
+public class TaskOperationEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "net.erply.demo.TaskOperation";
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Tenant")
+    String tenant;
+
+    @Label("Task Id")
+    @Description("0 when the operation is not about a single existing task")
+    int taskId;
+
+    @Label("Error Code")
+    String errorCode;
+
+    @Label("DB Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long dbTime;
+
+    /**
+     * Runs {@code body} inside an event. Error codes of rejected operations are recorded as well.
+     */
+    public static <T> T profile(String operation, Integer taskId, Supplier<T> body) {
+        TaskOperationEvent event = new TaskOperationEvent();
+        if (!event.isEnabled()) {
+            return body.get();
+        }
+        long dbStart = DbTime.current();
+        event.begin();
+        try {
+            return body.get();
+        } catch (TaskException e) {
+            event.errorCode = e.getCode();
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.tenant = TenantContext.get();
+                event.taskId = taskId == null ? 0 : taskId;
+                event.dbTime = DbTime.current() - dbStart;
+                event.commit();
+            }
+        }
+    }
+
+    public static void profile(String operation, Integer taskId, Runnable body) {
+        profile(operation, taskId, () -> {
+            body.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,42 @@
+package net.erply.demo.base.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for one task API request, from handler selection until the response is
+ * written. Committed by {@link TaskRequestProfiler}.
+ */
+@Name(TaskRequestEvent.NAME)
+@Label("Task Request")
+@Category({ "Task App", "API" })
+@Description("Task API request with its outcome and the time it spent in data access")
+@StackTrace(false)
+public class TaskRequestEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "net.erply.demo.TaskRequest";
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Tenant")
+    String tenant;
+
+    @Label("Task Id")
+    @Description("0 when the request is not about a single task")
+    int taskId;
+
+    @Label("HTTP Status")
+    int status;
+
+    @Label("Error Code")
+    String errorCode;
+
+    @Label("DB Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long dbTime;
+}
@@ -0,0 +1,80 @@
+package net.erply.demo.base.profiling;
+
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import net.erply.demo.base.shard.TenantContext;
+
+/**
+ * Wraps each handled request in a {@link TaskRequestEvent}. Controllers report the error code they
+ * answer with through {@link #errorCode}; requests failing with an unhandled exception record its
+ * class name instead.
+ */
+public class TaskRequestProfiler implements HandlerInterceptor {
+
+    private static final String EVENT = TaskRequestProfiler.class.getName() + ".event";
+
+    private static final String DB_START = TaskRequestProfiler.class.getName() + ".dbStart";
+
+    private static final String ERROR_CODE = TaskRequestProfiler.class.getName() + ".errorCode";
+
+    public static void errorCode(HttpServletRequest request, String code) {
+        request.setAttribute(ERROR_CODE, code);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        TaskRequestEvent event = new TaskRequestEvent();
+        if (event.isEnabled()) {
+            request.setAttribute(DB_START, DbTime.current());
+            request.setAttribute(EVENT, event);
+            event.begin();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        TaskRequestEvent event = (TaskRequestEvent) request.getAttribute(EVENT);
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        event.endpoint = request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+        event.tenant = TenantContext.get();
+        event.taskId = taskId(request);
+        event.status = response.getStatus();
+        Object code = request.getAttribute(ERROR_CODE);
+        if (code != null) {
+            event.errorCode = code.toString();
+        } else if (ex != null) {
+            event.errorCode = ex.getClass().getSimpleName();
+        }
+        event.dbTime = DbTime.current() - (Long) request.getAttribute(DB_START);
+        event.commit();
+    }
+
+    private static int taskId(HttpServletRequest request) {
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String id = variables != null ? variables.get("id") : null;
+        if (id == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
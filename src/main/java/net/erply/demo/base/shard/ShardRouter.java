@@ -0,0 +1,99 @@
+package net.erply.demo.base.shard;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Maps tenants to shards. A tenant placed in the directory stays on its shard; any other tenant is
+ * hashed onto the ring, so new tenants spread over all shards, including ones added later.
+ * Background work that is not tied to a tenant pins a shard with {@link #callOn}.
+ */
+public class ShardRouter {
+
+    private static final ThreadLocal<String> PINNED = new ThreadLocal<>();
+
+    private final List<String> shards;
+
+    private final ConsistentHashRing ring;
+
+    private volatile Map<String, TenantPlacement> placements = Map.of();
+
+    public ShardRouter(List<String> shards, int virtualNodes) {
+        this.shards = List.copyOf(shards);
+        this.ring = new ConsistentHashRing(this.shards, virtualNodes);
+    }
+
+    public List<String> getShards() {
+        return shards;
+    }
+
+    /**
+     * Shard holding the directory and all tasks created before sharding.
+     */
+    public String getHomeShard() {
+        return shards.get(0);
+    }
+
+    public boolean isSharded() {
+        return shards.size() > 1;
+    }
+
+    public boolean hasShard(String shard) {
+        return shards.contains(shard);
+    }
+
+    public String shardFor(String tenant) {
+        TenantPlacement placement = placements.get(tenant);
+        return placement != null ? placement.getShard() : ring.nodeFor(tenant);
+    }
+
+    public boolean isPlaced(String tenant) {
+        return placements.containsKey(tenant);
+    }
+
+    public boolean isMoving(String tenant) {
+        TenantPlacement placement = placements.get(tenant);
+        return placement != null && placement.isMoving();
+    }
+
+    /**
+     * Shard the current thread works on: the pinned one, otherwise the current tenant's.
+     */
+    public String currentShard() {
+        String pinned = PINNED.get();
+        return pinned != null ? pinned : shardFor(TenantContext.get());
+    }
+
+    public <T> T callOn(String shard, Supplier<T> call) {
+        String previous = PINNED.get();
+        PINNED.set(shard);
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) {
+                PINNED.remove();
+            } else {
+                PINNED.set(previous);
+            }
+        }
+    }
+
+    public void runOn(String shard, Runnable task) {
+        callOn(shard, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    void setPlacements(Map<String, TenantPlacement> placements) {
+        this.placements = Map.copyOf(placements);
+    }
+
+    void putPlacement(TenantPlacement placement) {
+        Map<String, TenantPlacement> updated = new HashMap<>(placements);
+        updated.put(placement.getTenantId(), placement);
+        this.placements = Map.copyOf(updated);
+    }
+}
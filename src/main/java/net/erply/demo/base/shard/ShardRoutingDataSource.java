@@ -0,0 +1,40 @@
+package net.erply.demo.base.shard;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Hands out connections of the shard the current thread works on, see {@link ShardRouter#currentShard()}.
+ * Code above it, JPA included, stays unaware of shards.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final ShardRouter router;
+
+    private final Map<String, DataSource> shards;
+
+    public ShardRoutingDataSource(ShardRouter router, Map<String, DataSource> shards) {
+        this.router = router;
+        this.shards = Collections.unmodifiableMap(new LinkedHashMap<>(shards));
+        setTargetDataSources(new HashMap<>(shards));
+        setLenientFallback(false);
+    }
+
+    /**
+     * Shard data sources in configuration order.
+     */
+    public Map<String, DataSource> getShardDataSources() {
+        return shards;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return router.currentShard();
+    }
+}
@@ -0,0 +1,38 @@
+package net.erply.demo.base.shard;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Interleaves a serial sequence across shards: shard {@code n} of {@code stride} only hands out ids
+ * congruent to {@code n + 1}, so ids stay unique over all shards and survive tenant moves unchanged.
+ */
+public final class ShardSequences {
+
+    private ShardSequences() {
+    }
+
+    /**
+     * Aligns {@code sequence} of {@code table.id} on one shard; a no-op once aligned.
+     */
+    public static void interleave(DataSource dataSource, String table, String sequence, int stride, int shardIndex) {
+        if (shardIndex >= stride) {
+            throw new IllegalStateException("Id stride " + stride + " leaves no room for shard #" + shardIndex);
+        }
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        List<String> increments = jdbc.queryForList("SELECT increment FROM information_schema.sequences"
+                + " WHERE sequence_schema = 'public' AND sequence_name = ?", String.class, sequence);
+        if (increments.isEmpty()) {
+            throw new IllegalStateException("No sequence public." + sequence);
+        }
+        if (Long.parseLong(increments.get(0)) == stride) {
+            return;
+        }
+        jdbc.execute("ALTER SEQUENCE public." + sequence + " INCREMENT BY " + stride);
+        jdbc.queryForObject("SELECT setval('public." + sequence + "', (COALESCE(max(id), 0) / ? + 1) * ? + ?, false)"
+                + " FROM public." + table, Long.class, stride, stride, shardIndex + 1);
+    }
+}
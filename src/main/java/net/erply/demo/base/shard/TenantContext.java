@@ -0,0 +1,36 @@
+package net.erply.demo.base.shard;
+
+import java.util.regex.Pattern;
+
+/**
+ * Tenant of the current request. Requests without a tenant belong to {@link #DEFAULT_TENANT},
+ * which also owns all tasks created before tenants existed.
+ */
+public final class TenantContext {
+
+    public static final String DEFAULT_TENANT = "default";
+
+    private static final Pattern TENANT_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private static final ThreadLocal<String> TENANT = new ThreadLocal<>();
+
+    private TenantContext() {
+    }
+
+    public static String get() {
+        String tenant = TENANT.get();
+        return tenant == null ? DEFAULT_TENANT : tenant;
+    }
+
+    public static void set(String tenant) {
+        TENANT.set(tenant);
+    }
+
+    public static void clear() {
+        TENANT.remove();
+    }
+
+    public static boolean isValid(String tenant) {
+        return tenant != null && TENANT_ID.matcher(tenant).matches();
+    }
+}
@@ -0,0 +1,122 @@
+package net.erply.demo.base.shard;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import lombok.extern.slf4j.Slf4j;
+import net.erply.demo.conf.ShardingProperties;
+
+/**
+ * Keeps {@link ShardRouter} in line with the tenant directory on the home shard. A tenant is pinned
+ * to its hashed shard on its first write, so later shards only take new tenants; existing ones
+ * change shards only through an explicit move. Placements are refreshed periodically, and changes
+ * are considered visible on all nodes after {@link #getPropagationDelay()}.
+ * Does nothing with a single shard, where the directory table is not needed at all.
+ */
+@Slf4j
+@Component
+public class TenantDirectory implements SmartLifecycle {
+
+    private final ShardRouter router;
+
+    private final TenantPlacementDao dao;
+
+    private final long refreshMs;
+
+    private ScheduledExecutorService executor;
+
+    public TenantDirectory(ShardRouter router, ObjectProvider<TenantPlacementDao> placements,
+                           ShardingProperties properties) {
+        this.router = router;
+        this.dao = router.isSharded() ? placements.getObject() : null;
+        this.refreshMs = properties.getPlacementRefreshMs();
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!router.isSharded()) {
+            return;
+        }
+        onHome(() -> dao.insertIfAbsent(TenantContext.DEFAULT_TENANT, router.getHomeShard()));
+        refresh();
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "tenant-directory");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::refresh, refreshMs, refreshMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return executor != null;
+    }
+
+    /**
+     * Time after which every node has seen a placement change.
+     */
+    public Duration getPropagationDelay() {
+        return Duration.ofMillis(2 * refreshMs);
+    }
+
+    /**
+     * Pins a tenant to the shard it hashes to, unless it is placed already.
+     */
+    public void ensurePlaced(String tenant) {
+        if (!router.isSharded() || router.isPlaced(tenant)) {
+            return;
+        }
+        String shard = router.shardFor(tenant);
+        onHome(() -> {
+            dao.insertIfAbsent(tenant, shard);
+            dao.find(tenant).ifPresent(router::putPlacement);
+        });
+    }
+
+    /**
+     * @return {@code false} when the tenant is already moving or not on {@code shard}
+     */
+    public boolean beginMove(String tenant, String shard) {
+        boolean started = router.callOn(router.getHomeShard(), () -> dao.beginMove(tenant, shard));
+        if (started) {
+            router.putPlacement(new TenantPlacement(tenant, shard, true));
+        }
+        return started;
+    }
+
+    public void place(String tenant, String shard) {
+        TenantPlacement placement = new TenantPlacement(tenant, shard, false);
+        onHome(() -> dao.upsert(placement));
+        router.putPlacement(placement);
+    }
+
+    private void refresh() {
+        try {
+            Map<String, TenantPlacement> placements = router.callOn(router.getHomeShard(), dao::findAll).stream()
+                    .collect(Collectors.toMap(TenantPlacement::getTenantId, Function.identity()));
+            router.setPlacements(placements);
+        } catch (RuntimeException e) {
+            log.error("Error refreshing tenant placements ", e);
+        }
+    }
+
+    private void onHome(Runnable task) {
+        router.runOn(router.getHomeShard(), task);
+    }
+}
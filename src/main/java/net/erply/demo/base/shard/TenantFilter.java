@@ -0,0 +1,87 @@
+package net.erply.demo.base.shard;
+
+import static net.erply.demo.base.entity.ErrorCode.TENANT_MOVING;
+import static net.erply.demo.base.entity.ErrorCode.WRONG_TENANT_ID;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.erply.demo.base.api.ErrorDto;
+import net.erply.demo.base.entity.ErrorCode;
+
+/**
+ * Binds the tenant named in the tenant header to the request. Writes of a tenant being moved
+ * between shards are refused with 503 and {@code Retry-After} until the move completes.
+ */
+public class TenantFilter extends OncePerRequestFilter {
+
+    private final String header;
+
+    private final ShardRouter router;
+
+    private final TenantDirectory directory;
+
+    private final String retryAfterSeconds;
+
+    private final byte[] wrongTenantBody;
+
+    private final byte[] movingBody;
+
+    public TenantFilter(String header, ShardRouter router, TenantDirectory directory, int retryAfterSeconds,
+                        ObjectMapper objectMapper) throws IOException {
+        this.header = header;
+        this.router = router;
+        this.directory = directory;
+        this.retryAfterSeconds = String.valueOf(retryAfterSeconds);
+        this.wrongTenantBody = errorBody(objectMapper, WRONG_TENANT_ID);
+        this.movingBody = errorBody(objectMapper, TENANT_MOVING);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String tenant = request.getHeader(header);
+        if (tenant == null) {
+            tenant = TenantContext.DEFAULT_TENANT;
+        } else if (!TenantContext.isValid(tenant)) {
+            reject(response, HttpStatus.BAD_REQUEST, wrongTenantBody);
+            return;
+        }
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            if (router.isMoving(tenant)) {
+                response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+                reject(response, HttpStatus.SERVICE_UNAVAILABLE, movingBody);
+                return;
+            }
+            directory.ensurePlaced(tenant);
+        }
+        TenantContext.set(tenant);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            TenantContext.clear();
+        }
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, byte[] body) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(body);
+    }
+
+    private static byte[] errorBody(ObjectMapper objectMapper, ErrorCode code) throws IOException {
+        return objectMapper.writeValueAsBytes(ErrorDto.builder()
+                .code(code.name())
+                .build());
+    }
+}
@@ -0,0 +1,17 @@
+package net.erply.demo.base.shard;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Directory entry pinning a tenant to a shard. While {@code moving}, writes of the tenant are refused.
+ */
+@Getter
+@EqualsAndHashCode
+@AllArgsConstructor
+public class TenantPlacement {
+    private final String tenantId;
+    private final String shard;
+    private final boolean moving;
+}
@@ -0,0 +1,68 @@
+package net.erply.demo.base.shard;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Access to {@code public.tenant_placement}. Callers make sure to run on the home shard.
+ */
+@Component("tenant_placement_dao")
+@Profile("!embedded")
+public class TenantPlacementDao {
+
+    private static final String SELECT = "SELECT tenant_id, shard, moving FROM public.tenant_placement";
+
+    private static final String INSERT_IF_ABSENT = "INSERT INTO public.tenant_placement (tenant_id, shard)"
+            + " VALUES (?, ?) ON CONFLICT (tenant_id) DO NOTHING";
+
+    private static final String UPSERT = "INSERT INTO public.tenant_placement (tenant_id, shard, moving)"
+            + " VALUES (?, ?, ?) ON CONFLICT (tenant_id)"
+            + " DO UPDATE SET shard = EXCLUDED.shard, moving = EXCLUDED.moving, updated_at = now()";
+
+    private static final String BEGIN_MOVE = "INSERT INTO public.tenant_placement (tenant_id, shard, moving)"
+            + " VALUES (?, ?, TRUE) ON CONFLICT (tenant_id)"
+            + " DO UPDATE SET moving = TRUE, updated_at = now()"
+            + " WHERE tenant_placement.shard = EXCLUDED.shard AND NOT tenant_placement.moving";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TenantPlacementDao(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<TenantPlacement> findAll() {
+        return jdbcTemplate.query(SELECT, TenantPlacementDao::mapRow);
+    }
+
+    public Optional<TenantPlacement> find(String tenantId) {
+        return jdbcTemplate.query(SELECT + " WHERE tenant_id = ?", TenantPlacementDao::mapRow, tenantId)
+                .stream().findFirst();
+    }
+
+    public void insertIfAbsent(String tenantId, String shard) {
+        jdbcTemplate.update(INSERT_IF_ABSENT, tenantId, shard);
+    }
+
+    public void upsert(TenantPlacement placement) {
+        jdbcTemplate.update(UPSERT, placement.getTenantId(), placement.getShard(), placement.isMoving());
+    }
+
+    /**
+     * Marks a tenant on {@code shard} as moving.
+     *
+     * @return {@code false} when the tenant is already moving or lives on another shard
+     */
+    public boolean beginMove(String tenantId, String shard) {
+        return jdbcTemplate.update(BEGIN_MOVE, tenantId, shard) == 1;
+    }
+
+    private static TenantPlacement mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new TenantPlacement(rs.getString("tenant_id"), rs.getString("shard"), rs.getBoolean("moving"));
+    }
+}
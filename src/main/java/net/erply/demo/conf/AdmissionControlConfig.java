@@ -0,0 +1,59 @@
+package net.erply.demo.conf;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.erply.demo.base.admission.AdaptiveLimiter;
+import net.erply.demo.base.admission.AdmissionControlFilter;
+
+@Configuration
+@ConditionalOnProperty(name = "task.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionControlConfig {
+
+    private static final String TASK_API_PREFIX = "/api/v1/task/";
+
+    @Value("${task.admission.global.initial-limit:20}")
+    private int globalInitialLimit;
+
+    @Value("${task.admission.global.max-limit:100}")
+    private int globalMaxLimit;
+
+    @Value("${task.admission.endpoint.initial-limit:10}")
+    private int endpointInitialLimit;
+
+    @Value("${task.admission.endpoint.max-limit:50}")
+    private int endpointMaxLimit;
+
+    @Value("${task.admission.min-limit:2}")
+    private int minLimit;
+
+    @Value("${task.admission.target-latency-ms:250}")
+    private long targetLatencyMs;
+
+    @Value("${task.admission.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    @Value("${task.admission.retry-after-seconds:1}")
+    private int retryAfterSeconds;
+
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(ObjectMapper objectMapper)
+            throws IOException {
+        AdaptiveLimiter global = new AdaptiveLimiter(globalInitialLimit, minLimit, globalMaxLimit,
+                targetLatencyMs, backoffRatio);
+        AdmissionControlFilter filter = new AdmissionControlFilter(TASK_API_PREFIX, global,
+                () -> new AdaptiveLimiter(endpointInitialLimit, minLimit, endpointMaxLimit,
+                        targetLatencyMs, backoffRatio),
+                retryAfterSeconds, objectMapper);
+        FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns(TASK_API_PREFIX + "*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
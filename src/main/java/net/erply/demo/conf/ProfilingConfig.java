@@ -0,0 +1,19 @@
+package net.erply.demo.conf;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import net.erply.demo.base.profiling.TaskRequestProfiler;
+
+@Configuration
+@ConditionalOnProperty(name = "task.profiling.enabled", havingValue = "true", matchIfMissing = true)
+public class ProfilingConfig implements WebMvcConfigurer {
+
+    private static final String TASK_API_PREFIX = "/api/v1/task/";
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new TaskRequestProfiler()).addPathPatterns(TASK_API_PREFIX + "**");
+    }
+}
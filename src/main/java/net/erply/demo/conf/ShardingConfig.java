@@ -0,0 +1,104 @@
+package net.erply.demo.conf;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import net.erply.demo.base.shard.ShardRouter;
+import net.erply.demo.base.shard.ShardRoutingDataSource;
+import net.erply.demo.base.shard.ShardSequences;
+import net.erply.demo.base.shard.TenantDirectory;
+import net.erply.demo.base.shard.TenantFilter;
+
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+
+    /**
+     * Name of the only shard when sharding is disabled.
+     */
+    public static final String SINGLE_SHARD = "main";
+
+    private static final String TASK_API_PREFIX = "/api/v1/task/";
+
+    @Bean
+    public ShardRouter shardRouter(ShardingProperties properties) {
+        List<String> shards = properties.isEnabled()
+                ? properties.getShards().stream().map(ShardingProperties.Shard::getName).collect(Collectors.toList())
+                : List.of(SINGLE_SHARD);
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("task.sharding.enabled needs at least one of task.sharding.shards");
+        }
+        return new ShardRouter(shards, properties.getVirtualNodes());
+    }
+
+    @Bean
+    public FilterRegistrationBean<TenantFilter> tenantFilter(ShardingProperties properties, ShardRouter router,
+                                                             TenantDirectory directory, ObjectMapper objectMapper)
+            throws IOException {
+        TenantFilter filter = new TenantFilter(properties.getTenantHeader(), router, directory,
+                properties.getRetryAfterSeconds(), objectMapper);
+        FilterRegistrationBean<TenantFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns(TASK_API_PREFIX + "*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+        return registration;
+    }
+
+    /**
+     * One pool per shard behind a routing data source, with every shard migrated on startup.
+     */
+    @Configuration
+    @ConditionalOnProperty(name = "task.sharding.enabled", havingValue = "true")
+    static class ShardedDataSourceConfig {
+
+        @Bean
+        @Primary
+        public ShardRoutingDataSource dataSource(ShardingProperties properties, ShardRouter router) {
+            Map<String, DataSource> shards = new LinkedHashMap<>();
+            for (ShardingProperties.Shard shard : properties.getShards()) {
+                HikariDataSource dataSource = DataSourceBuilder.create()
+                        .type(HikariDataSource.class)
+                        .url(shard.getUrl())
+                        .username(shard.getUsername())
+                        .password(shard.getPassword())
+                        .build();
+                dataSource.setPoolName("shard-" + shard.getName());
+                dataSource.setMaximumPoolSize(shard.getMaximumPoolSize());
+                shards.put(shard.getName(), dataSource);
+            }
+            return new ShardRoutingDataSource(router, shards);
+        }
+
+        @Bean
+        public FlywayMigrationStrategy shardedMigration(ShardRoutingDataSource dataSource,
+                                                        ShardingProperties properties) {
+            return flyway -> {
+                int index = 0;
+                for (DataSource shard : dataSource.getShardDataSources().values()) {
+                    Flyway.configure()
+                            .configuration(flyway.getConfiguration())
+                            .dataSource(shard)
+                            .load()
+                            .migrate();
+                    ShardSequences.interleave(shard, "task", "task_id_seq", properties.getIdStride(), index++);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package net.erply.demo.conf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "task.sharding")
+public class ShardingProperties {
+
+    private boolean enabled;
+
+    private String tenantHeader = "X-Tenant-Id";
+
+    private int virtualNodes = 128;
+
+    /**
+     * Ids are interleaved with this stride, which caps the number of shards. Must never change once set.
+     */
+    private int idStride = 16;
+
+    private long placementRefreshMs = 5000;
+
+    private int retryAfterSeconds = 1;
+
+    /**
+     * Shards in a fixed order; new shards are only ever appended.
+     */
+    private List<Shard> shards = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Shard {
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
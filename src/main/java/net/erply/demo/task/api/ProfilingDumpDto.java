@@ -0,0 +1,23 @@
+package net.erply.demo.task.api;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@EqualsAndHashCode
+@Builder
+public class ProfilingDumpDto {
+    private String file;
+    private long bytes;
+    private Instant from;
+    private Instant to;
+}
@@ -1,5 +1,7 @@
 package net.erply.demo.task.api;
 
+import java.time.Instant;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
@@ -19,4 +21,5 @@ public class TaskDto {
     private String name;
     private String description;
     private TaskStatus status;
+    private Instant dueAt;
 }
@@ -0,0 +1,26 @@
+package net.erply.demo.task.api;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import net.erply.demo.task.entity.TaskOperation;
+import net.erply.demo.task.entity.TaskStatus;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@EqualsAndHashCode
+@Builder
+public class TaskHistoryDto {
+    private Integer taskId;
+    private TaskOperation operation;
+    private TaskStatus fromStatus;
+    private TaskStatus toStatus;
+    private Instant changedAt;
+}
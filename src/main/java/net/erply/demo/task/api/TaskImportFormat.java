@@ -0,0 +1,31 @@
+package net.erply.demo.task.api;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.springframework.http.MediaType;
+
+public enum TaskImportFormat {
+    CSV("text/csv"),
+    NDJSON("application/x-ndjson");
+
+    private final String mediaType;
+
+    TaskImportFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public static Optional<TaskImportFormat> fromContentType(String contentType) {
+        if (contentType == null) {
+            return Optional.empty();
+        }
+        MediaType type = MediaType.parseMediaType(contentType);
+        return Arrays.stream(values())
+                .filter(f -> MediaType.parseMediaType(f.mediaType).isCompatibleWith(type))
+                .findFirst();
+    }
+}
@@ -0,0 +1,23 @@
+package net.erply.demo.task.api;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@EqualsAndHashCode
+@Builder
+public class TaskImportResultDto {
+    private long received;
+    private long inserted;
+    private long updated;
+    private long skipped;
+    private long rejected;
+    private String rejectedReportId;
+}
@@ -0,0 +1,22 @@
+package net.erply.demo.task.api;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@EqualsAndHashCode
+@Builder
+public class TenantMoveResultDto {
+    private String tenantId;
+    private String fromShard;
+    private String toShard;
+    private long tasks;
+    private long historyEvents;
+}
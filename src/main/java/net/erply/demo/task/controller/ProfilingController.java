@@ -0,0 +1,89 @@
+package net.erply.demo.task.controller;
+
+import static net.erply.demo.base.entity.ErrorCode.PROFILING_DISABLED;
+import static net.erply.demo.base.entity.ErrorCode.PROFILING_DUMP_FAILED;
+import static net.erply.demo.base.entity.ErrorCode.WRONG_DUMP_WINDOW;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import lombok.extern.slf4j.Slf4j;
+import net.erply.demo.base.api.ErrorDto;
+import net.erply.demo.base.exception.ProfilingBadResponseException;
+import net.erply.demo.base.log.SampledErrorLog;
+import net.erply.demo.base.profiling.ContinuousRecording;
+import net.erply.demo.task.api.ProfilingDumpDto;
+
+/**
+ * Profiling administration API controller
+ * endpoints for following actions:
+ * • Dump the last minutes of the continuous flight recording
+ *
+ * Not authenticated, so only registered with {@code task.profiling.dump-endpoint} turned on.
+ */
+@Slf4j
+@RestController
+@ConditionalOnProperty(name = "task.profiling.dump-endpoint", havingValue = "true")
+@RequestMapping(value = "/api/v1/admin/profiling", produces = MediaType.APPLICATION_JSON_VALUE)
+public class ProfilingController {
+
+    private final ContinuousRecording recording;
+
+    private final SampledErrorLog errorLog;
+
+    public ProfilingController(ContinuousRecording recording, SampledErrorLog errorLog) {
+        this.recording = recording;
+        this.errorLog = errorLog;
+    }
+
+    @ApiOperation(value = "Writes the last minutes of the continuous flight recording to a file on the server",
+            produces = "application/json")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "Returned with the dump file", response = ProfilingDumpDto.class),
+            @ApiResponse(code = 400, message = "Returned when the dump failed", response = ErrorDto.class),
+    })
+    @ResponseBody
+    @PostMapping(path = "/dump", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ProfilingDumpDto dump (@RequestParam(name = "minutes", defaultValue = "5") int minutes) {
+        if (minutes < 1) {
+            throw new ProfilingBadResponseException(WRONG_DUMP_WINDOW.name());
+        }
+        if (!recording.isRunning()) {
+            throw new ProfilingBadResponseException(PROFILING_DISABLED.name());
+        }
+        ContinuousRecording.Dump dump;
+        try {
+            dump = recording.dump(Duration.ofMinutes(minutes));
+        } catch (IOException | IllegalStateException e) {
+            errorLog.error(log, PROFILING_DUMP_FAILED, "Error dumping flight recording", e);
+            throw new ProfilingBadResponseException(PROFILING_DUMP_FAILED.name());
+        }
+        return ProfilingDumpDto.builder()
+                .file(dump.getFile().toString())
+                .bytes(dump.getBytes())
+                .from(dump.getFrom())
+                .to(dump.getTo())
+                .build();
+    }
+
+    @ExceptionHandler(ProfilingBadResponseException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorDto handleFailedDump(ProfilingBadResponseException ex) {
+        return  ErrorDto.builder()
+                .code(ex.getCode())
+                .build();
+    }
+}
@@ -1,19 +1,33 @@
 package net.erply.demo.task.controller;
 
+import static net.erply.demo.base.entity.ErrorCode.IMPORT_REPORT_NOT_FOUND;
+import static net.erply.demo.base.entity.ErrorCode.UNSUPPORTED_IMPORT_FORMAT;
 import static net.erply.demo.base.entity.ErrorCode.WRONG_TASK_ID;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
@@ -26,9 +40,22 @@ import net.erply.demo.base.api.ErrorDto;
 import net.erply.demo.base.exception.AddTaskBadResponseException;
 import net.erply.demo.base.exception.DeleteTaskBadResponseException;
 import net.erply.demo.base.exception.EditTaskBadResponseException;
+import net.erply.demo.base.exception.GetTaskBadResponseException;
+import net.erply.demo.base.exception.IdempotencyBadResponseException;
+import net.erply.demo.base.exception.IdempotencyConflictException;
+import net.erply.demo.base.exception.ImportTaskBadResponseException;
 import net.erply.demo.base.exception.TaskException;
+import net.erply.demo.base.log.SampledErrorLog;
+import net.erply.demo.base.profiling.TaskRequestProfiler;
 import net.erply.demo.task.api.TaskDto;
+import net.erply.demo.task.api.TaskHistoryDto;
+import net.erply.demo.task.api.TaskImportFormat;
+import net.erply.demo.task.api.TaskImportResultDto;
+import net.erply.demo.task.api.TaskSuggestionDto;
 import net.erply.demo.task.service.DefaultTaskServiceImpl;
+import net.erply.demo.task.service.IdempotencyService;
+import net.erply.demo.task.service.TaskImportReportStore;
+import net.erply.demo.task.service.TaskImportService;
 import net.erply.demo.task.service.TaskService;
 
 /**
@@ -38,6 +65,10 @@ import net.erply.demo.task.service.TaskService;
  * • Change a task
  * • Delete a task
  * • Task completed
+ * • Get a task
+ * • Task status history
+ * • Task name suggestions
+ * • Bulk import of tasks
  *
  */
 
@@ -48,20 +79,38 @@ public class TaskController {
 
     private final TaskService taskService;
 
+    private final TaskImportService importService;
+
+    private final TaskImportReportStore importReportStore;
+
+    private final SampledErrorLog errorLog;
+
+    private final IdempotencyService idempotency;
+
     @Autowired
-    public TaskController(DefaultTaskServiceImpl taskService) {
+    public TaskController(DefaultTaskServiceImpl taskService, TaskImportService importService,
+                          TaskImportReportStore importReportStore, SampledErrorLog errorLog,
+                          IdempotencyService idempotency) {
         this.taskService = taskService;
+        this.importService = importService;
+        this.importReportStore = importReportStore;
+        this.errorLog = errorLog;
+        this.idempotency = idempotency;
     }
 
     @ApiOperation(value = "Returns added new task", produces = "application/json", consumes = "application/json")
     @ApiResponses({
             @ApiResponse(code = 200, message = "Returned when task successfully created", response = TaskDto.class),
             @ApiResponse(code = 400, message = "Returned when task creation failed", response = ErrorDto.class),
+            @ApiResponse(code = 409, message = "Returned while a request with the same idempotency key runs",
+                    response = ErrorDto.class),
     })
     @ResponseBody
     @PostMapping(path = "/add", consumes = "application/json", produces = MediaType.APPLICATION_JSON_VALUE)
-    public TaskDto addTask (@RequestBody TaskDto taskDto) {
-        return taskService.addTask(taskDto);
+    public TaskDto addTask (@RequestBody TaskDto taskDto,
+                            @RequestHeader(name = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotency.execute(idempotencyKey, "add", null, taskDto, AddTaskBadResponseException::new,
+                () -> taskService.addTask(taskDto));
     }
 
     @ApiOperation(value = "Deletes task by id", produces = "application/json", consumes = "application/json")
@@ -79,11 +128,15 @@ public class TaskController {
     @ApiResponses({
             @ApiResponse(code = 200, message = "Returned when task successfully edited", response = TaskDto.class),
             @ApiResponse(code = 400, message = "Returned when task edit failed", response = ErrorDto.class),
+            @ApiResponse(code = 409, message = "Returned while a request with the same idempotency key runs",
+                    response = ErrorDto.class),
     })
     @ResponseBody
     @PostMapping(path = "/edit/{id}", consumes = "application/json", produces = MediaType.APPLICATION_JSON_VALUE)
-    public TaskDto changeTask (@PathVariable Integer id, @RequestBody TaskDto taskDto) {
-        return taskService.editTask(id, taskDto);
+    public TaskDto changeTask (@PathVariable Integer id, @RequestBody TaskDto taskDto,
+                               @RequestHeader(name = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotency.execute(idempotencyKey, "edit", id, taskDto, EditTaskBadResponseException::new,
+                () -> taskService.editTask(id, taskDto));
     }
 
     @ApiOperation(value = "Complete existing task", produces = "application/json", consumes = "application/json")
@@ -104,15 +157,117 @@ public class TaskController {
     })
     @ResponseBody
     @GetMapping(path = "/list", consumes = "application/json", produces = MediaType.APPLICATION_JSON_VALUE)
-    public List<TaskDto> TaskList () {
-        return taskService.list();
+    public void TaskList (HttpServletResponse response) throws IOException {
+        List<byte[]> tasks = taskService.listJson();
+        int length = Math.max(1, tasks.size()) + 1;
+        for (byte[] task : tasks) {
+            length += task.length;
+        }
+        prepareJson(response, length);
+        OutputStream out = response.getOutputStream();
+        out.write('[');
+        for (int i = 0; i < tasks.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(tasks.get(i));
+        }
+        out.write(']');
+    }
+
+    @ApiOperation(value = "Returns task by id", produces = "application/json")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "Returned task", response = TaskDto.class),
+            @ApiResponse(code = 400, message = "Returned when task is not found", response = ErrorDto.class),
+    })
+    @ResponseBody
+    @GetMapping(path = "/get/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void getTask (@PathVariable Integer id, HttpServletResponse response) throws IOException {
+        byte[] task = taskService.getTaskJson(id);
+        prepareJson(response, task.length);
+        response.getOutputStream().write(task);
+    }
+
+    @ApiOperation(value = "Status history of a task, oldest first", produces = "application/json")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "Returned list of history entries", response = List.class)
+    })
+    @ResponseBody
+    @GetMapping(path = "/history/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<TaskHistoryDto> taskHistory (@PathVariable Integer id) {
+        return taskService.getHistory(id);
+    }
+
+    @ApiOperation(value = "Ids and names of tasks starting with a prefix, ignoring case", produces = "application/json")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "Returned list of suggestions ordered by name", response = List.class)
+    })
+    @ResponseBody
+    @GetMapping(path = "/suggest", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<TaskSuggestionDto> suggest (@RequestParam(name = "prefix", defaultValue = "") String prefix,
+                                            @RequestParam(name = "limit", defaultValue = "10") int limit) {
+        return taskService.suggest(prefix, limit);
+    }
+
+    @ApiOperation(value = "Imports tasks from a streamed CSV or NDJSON body", produces = "application/json",
+            consumes = "text/csv, application/x-ndjson")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "Returned with import counts", response = TaskImportResultDto.class),
+            @ApiResponse(code = 400, message = "Returned when import failed", response = ErrorDto.class),
+    })
+    @ResponseBody
+    @PostMapping(path = "/import", consumes = { "text/csv", "application/x-ndjson" },
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public TaskImportResultDto importTasks (@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                            @RequestParam(name = "overwrite", defaultValue = "false") boolean overwrite,
+                                            InputStream body) {
+        TaskImportFormat format = TaskImportFormat.fromContentType(contentType)
+                .orElseThrow(() -> new ImportTaskBadResponseException(UNSUPPORTED_IMPORT_FORMAT.name()));
+        return importService.importTasks(body, format, overwrite);
+    }
+
+    @ApiOperation(value = "Downloads rejected rows of an import", produces = "text/csv")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "Returned rejected rows report"),
+            @ApiResponse(code = 400, message = "Returned when report is not found", response = ErrorDto.class),
+    })
+    @GetMapping(path = "/import/{reportId}/rejected", produces = { "text/csv", MediaType.APPLICATION_JSON_VALUE })
+    public ResponseEntity<Resource> importReport (@PathVariable String reportId) {
+        Resource report = importReportStore.find(reportId)
+                .map(FileSystemResource::new)
+                .orElseThrow(() -> new ImportTaskBadResponseException(IMPORT_REPORT_NOT_FOUND.name()));
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"rejected-" + reportId + ".csv\"")
+                .body(report);
+    }
+
+    /**
+     * List and get write the cached JSON of each task as is, without another pass through Jackson.
+     */
+    private static void prepareJson(HttpServletResponse response, int length) {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(length);
     }
 
     @ExceptionHandler({ EditTaskBadResponseException.class,
             DeleteTaskBadResponseException.class,
-            AddTaskBadResponseException.class   })
+            AddTaskBadResponseException.class,
+            GetTaskBadResponseException.class,
+            ImportTaskBadResponseException.class,
+            IdempotencyBadResponseException.class   })
     @ResponseStatus(HttpStatus.BAD_REQUEST)
-    public ErrorDto handleFailedTaskOperation(TaskException ex) {
+    public ErrorDto handleFailedTaskOperation(TaskException ex, HttpServletRequest request) {
+        TaskRequestProfiler.errorCode(request, ex.getCode());
+        return  ErrorDto.builder()
+                .code(ex.getCode())
+                .build();
+    }
+
+    @ExceptionHandler(IdempotencyConflictException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorDto handleIdempotencyConflict(TaskException ex, HttpServletRequest request) {
+        TaskRequestProfiler.errorCode(request, ex.getCode());
         return  ErrorDto.builder()
                 .code(ex.getCode())
                 .build();
@@ -120,7 +275,10 @@ public class TaskController {
 
     @ExceptionHandler(MethodArgumentTypeMismatchException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
-    public ErrorDto handleTaskOperationWithWrongId(MethodArgumentTypeMismatchException ex) {
+    public ErrorDto handleTaskOperationWithWrongId(MethodArgumentTypeMismatchException ex,
+                                                   HttpServletRequest request) {
+        errorLog.count(WRONG_TASK_ID);
+        TaskRequestProfiler.errorCode(request, WRONG_TASK_ID.name());
         return  ErrorDto.builder()
                 .code(WRONG_TASK_ID.name())
                 .build();
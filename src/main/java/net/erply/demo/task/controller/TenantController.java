@@ -0,0 +1,58 @@
+package net.erply.demo.task.controller;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import net.erply.demo.base.api.ErrorDto;
+import net.erply.demo.base.exception.TenantMoveBadResponseException;
+import net.erply.demo.task.api.TenantMoveResultDto;
+import net.erply.demo.task.service.TenantMoveService;
+
+/**
+ * Tenant administration API controller
+ * endpoints for following actions:
+ * • Move a tenant to another shard
+ *
+ */
+@RestController
+@Profile("!embedded")
+@RequestMapping(value = "/api/v1/admin/tenant", produces = MediaType.APPLICATION_JSON_VALUE)
+public class TenantController {
+
+    private final TenantMoveService moveService;
+
+    public TenantController(TenantMoveService moveService) {
+        this.moveService = moveService;
+    }
+
+    @ApiOperation(value = "Moves all tasks of a tenant to another shard, refusing its writes meanwhile",
+            produces = "application/json")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "Returned when tenant moved", response = TenantMoveResultDto.class),
+            @ApiResponse(code = 400, message = "Returned when tenant move failed", response = ErrorDto.class),
+    })
+    @ResponseBody
+    @PostMapping(path = "/{tenantId}/move", produces = MediaType.APPLICATION_JSON_VALUE)
+    public TenantMoveResultDto moveTenant (@PathVariable String tenantId, @RequestParam(name = "to") String shard) {
+        return moveService.move(tenantId, shard);
+    }
+
+    @ExceptionHandler(TenantMoveBadResponseException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorDto handleFailedMove(TenantMoveBadResponseException ex) {
+        return  ErrorDto.builder()
+                .code(ex.getCode())
+                .build();
+    }
+}
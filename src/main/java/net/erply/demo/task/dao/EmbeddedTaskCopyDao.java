@@ -0,0 +1,42 @@
+package net.erply.demo.task.dao;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import net.erply.demo.base.entity.Task;
+import net.erply.demo.base.shard.TenantContext;
+import net.erply.demo.task.entity.TaskOperation;
+
+/**
+ * Bulk loader for {@link EmbeddedTaskStore}. Rows are staged in memory, collapsed by name, and merged
+ * under one lock, so readers see either none or all of them.
+ */
+@Component("task_copy_dao")
+@Profile("embedded")
+public class EmbeddedTaskCopyDao implements TaskCopyDao {
+
+    private final EmbeddedTaskStore store;
+
+    public EmbeddedTaskCopyDao(EmbeddedTaskStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public MergeResult copyAndMerge(RowProducer producer, boolean overwrite) throws IOException {
+        Map<String, Task> staging = new LinkedHashMap<>();
+        long[] staged = new long[1];
+        producer.produce((lineNo, task) -> {
+            staging.remove(task.getName());
+            staging.put(task.getName(), task);
+            staged[0]++;
+        });
+        List<MergedTask> merged = store.merge(TenantContext.get(), staging.values(), overwrite);
+        long inserted = merged.stream().filter(task -> task.getOperation() == TaskOperation.ADD).count();
+        long updated = merged.size() - inserted;
+        return new MergeResult(staged[0], inserted, updated, staged[0] - merged.size(), merged);
+    }
+}
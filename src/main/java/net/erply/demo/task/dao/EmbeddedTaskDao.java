@@ -0,0 +1,112 @@
+package net.erply.demo.task.dao;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityNotFoundException;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.stereotype.Component;
+import lombok.Getter;
+import net.erply.demo.base.entity.Task;
+import net.erply.demo.base.shard.TenantContext;
+import net.erply.demo.task.entity.TaskStatus;
+
+/**
+ * Task access without a database, served from {@link EmbeddedTaskStore}.
+ */
+@Component("task_dao")
+@Profile("embedded")
+public class EmbeddedTaskDao implements TaskDao {
+
+    private final EmbeddedTaskStore store;
+
+    public EmbeddedTaskDao(EmbeddedTaskStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Task save(Task task) {
+        return store.insert(task);
+    }
+
+    @Override
+    public void deleteById(Integer id) {
+        if (!store.delete(TenantContext.get(), id)) {
+            throw new EmptyResultDataAccessException("No task with id " + id, 1);
+        }
+    }
+
+    @Override
+    public Task update(Task updated) {
+        if (!store.update(updated)) {
+            throw new EntityNotFoundException("No task with id " + updated.getId());
+        }
+        return updated;
+    }
+
+    @Override
+    public void complete(Integer id) {
+        if (!store.updateStatus(TenantContext.get(), id, TaskStatus.COMPLETED)) {
+            throw new EntityNotFoundException("No task with id " + id);
+        }
+    }
+
+    /**
+     * Scans the tenant; the service's in-memory name index is what makes suggestions fast here.
+     */
+    @Override
+    public List<TaskName> suggest(String prefix, int limit) {
+        String lowerPrefix = prefix.toLowerCase(Locale.ROOT);
+        return store.findAll(TenantContext.get()).stream()
+                .filter(task -> task.getName().toLowerCase(Locale.ROOT).startsWith(lowerPrefix))
+                .sorted(Comparator.comparing(task -> task.getName().toLowerCase(Locale.ROOT)))
+                .limit(limit)
+                .map(Name::new)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<TaskName> findNames() {
+        return store.findAll(TenantContext.get()).stream()
+                .map(Name::new)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Task> getAll() {
+        return store.findAll(TenantContext.get());
+    }
+
+    @Override
+    public Optional<Task> findById(Integer id) {
+        return store.find(TenantContext.get(), id);
+    }
+
+    @Override
+    public List<TaskDeadline> findLockedDeadlines(Instant until, Integer afterId, int pageSize) {
+        return store.findLockedDeadlines(until, afterId, pageSize);
+    }
+
+    @Override
+    public List<TaskRef> releaseExpired(Collection<Integer> ids, Instant now) {
+        return store.releaseExpired(ids, now);
+    }
+
+    @Getter
+    private static class Name implements TaskName {
+        private final Integer id;
+        private final String name;
+
+        Name(Task task) {
+            this.id = task.getId();
+            this.name = task.getName();
+        }
+    }
+}
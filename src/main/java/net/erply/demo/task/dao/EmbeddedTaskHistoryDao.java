@@ -0,0 +1,78 @@
+package net.erply.demo.task.dao;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import net.erply.demo.task.api.TaskHistoryDto;
+import net.erply.demo.task.entity.TaskHistoryEvent;
+import net.erply.demo.task.entity.TaskStatus;
+
+/**
+ * Status history for the {@code embedded} profile. Kept in memory only and capped per task, oldest
+ * events going first; like the database history it is best effort and not part of the journal.
+ */
+@Component("task_history_dao")
+@Profile("embedded")
+public class EmbeddedTaskHistoryDao implements TaskHistoryDao {
+
+    private final Map<TaskKey, Deque<TaskHistoryEvent>> events = new ConcurrentHashMap<>();
+
+    private final int perTask;
+
+    public EmbeddedTaskHistoryDao(@Value("${task.embedded.history-per-task:100}") int perTask) {
+        this.perTask = perTask;
+    }
+
+    @Override
+    public void insertBatch(List<TaskHistoryEvent> batch, String synchronousCommit) {
+        for (TaskHistoryEvent event : batch) {
+            Deque<TaskHistoryEvent> task = events.computeIfAbsent(new TaskKey(event.getTenantId(), event.getTaskId()),
+                    key -> new ArrayDeque<>());
+            synchronized (task) {
+                task.addLast(event);
+                if (task.size() > perTask) {
+                    task.removeFirst();
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<TaskHistoryDto> findByTaskId(String tenantId, Integer taskId) {
+        Deque<TaskHistoryEvent> task = events.get(new TaskKey(tenantId, taskId));
+        if (task == null) {
+            return List.of();
+        }
+        List<TaskHistoryDto> history = new ArrayList<>();
+        synchronized (task) {
+            TaskStatus fromStatus = null;
+            for (TaskHistoryEvent event : task) {
+                history.add(TaskHistoryDto.builder()
+                        .taskId(event.getTaskId())
+                        .operation(event.getOperation())
+                        .fromStatus(fromStatus)
+                        .toStatus(event.getStatus())
+                        .changedAt(event.getChangedAt())
+                        .build());
+                fromStatus = event.getStatus();
+            }
+        }
+        return history;
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class TaskKey {
+        private final String tenant;
+        private final Integer id;
+    }
+}
@@ -0,0 +1,523 @@
+package net.erply.demo.task.dao;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.erply.demo.base.collection.IntObjectMap;
+import net.erply.demo.base.entity.Task;
+import net.erply.demo.base.journal.MappedJournal;
+import net.erply.demo.task.entity.TaskOperation;
+import net.erply.demo.task.entity.TaskStatus;
+
+/**
+ * Database-less task storage for the {@code embedded} profile. Tasks live in memory, one partition per
+ * tenant with an int-keyed id map and a name index enforcing unique names. Every change is appended to a
+ * {@link MappedJournal} before it is applied, and the journal is replayed on startup.
+ * <p>
+ * Partitions are guarded by a fixed set of striped read-write locks, so writes of different tenants run
+ * in parallel and reads only wait for writes of the same stripe. A background thread forces the journal
+ * to disk periodically and compacts it once dead records outnumber live tasks.
+ */
+@Slf4j
+@Component
+@Profile("embedded")
+public class EmbeddedTaskStore implements SmartLifecycle, Closeable {
+
+    private static final byte PUT = 1;
+
+    private static final byte DELETE = 2;
+
+    private static final byte LAST_ID = 3;
+
+    private static final String NAME_CONSTRAINT = "task_tenant_name_key";
+
+    private final MappedJournal journal;
+
+    private final ReentrantReadWriteLock[] stripes;
+
+    private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+
+    /**
+     * Shared by writers, taken exclusively while compacting.
+     */
+    private final ReentrantReadWriteLock compaction = new ReentrantReadWriteLock();
+
+    private final AtomicInteger lastId = new AtomicInteger();
+
+    private final AtomicLong liveTasks = new AtomicLong();
+
+    private final AtomicLong deadRecords = new AtomicLong();
+
+    private final long flushIntervalMs;
+
+    private final long compactionMinBytes;
+
+    private ScheduledExecutorService executor;
+
+    public EmbeddedTaskStore(@Value("${task.embedded.journal-path:data/tasks.journal}") String journalPath,
+                             @Value("${task.embedded.journal-initial-size-mb:16}") int initialSizeMb,
+                             @Value("${task.embedded.sync-writes:false}") boolean syncWrites,
+                             @Value("${task.embedded.lock-stripes:16}") int lockStripes,
+                             @Value("${task.embedded.flush-interval-ms:1000}") long flushIntervalMs,
+                             @Value("${task.embedded.compaction-min-mb:4}") int compactionMinMb)
+            throws IOException {
+        this.journal = new MappedJournal(Paths.get(journalPath), initialSizeMb << 20, syncWrites);
+        this.stripes = new ReentrantReadWriteLock[lockStripes];
+        for (int i = 0; i < lockStripes; i++) {
+            stripes[i] = new ReentrantReadWriteLock();
+        }
+        this.flushIntervalMs = flushIntervalMs;
+        this.compactionMinBytes = (long) compactionMinMb << 20;
+        int records = journal.replay(this::replay);
+        log.info("Replayed {} journal records into {} tasks from {}", records, liveTasks.get(), journalPath);
+    }
+
+    @Override
+    public synchronized void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "task-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::maintain, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        journal.force();
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return executor != null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        journal.close();
+    }
+
+    /**
+     * @return a copy of the stored task, with its new id
+     * @throws DataIntegrityViolationException when the tenant has a task with the same name
+     */
+    public Task insert(Task task) {
+        return write(task.getTenantId(), partition -> copy(insert(partition, task)));
+    }
+
+    /**
+     * @return {@code false} when the tenant has no task with this id
+     * @throws DataIntegrityViolationException when the new name is taken by another task
+     */
+    public boolean update(Task task) {
+        return write(task.getTenantId(), partition -> {
+            Task existing = partition.byId.get(task.getId());
+            if (existing == null) {
+                return false;
+            }
+            Integer owner = partition.byName.get(task.getName());
+            if (owner != null && owner.intValue() != task.getId()) {
+                throw duplicated(task.getName());
+            }
+            replace(partition, existing, copy(task));
+            return true;
+        });
+    }
+
+    public boolean updateStatus(String tenantId, int id, TaskStatus status) {
+        return write(tenantId, partition -> {
+            Task existing = partition.byId.get(id);
+            if (existing == null) {
+                return false;
+            }
+            Task changed = copy(existing);
+            changed.setStatus(status);
+            replace(partition, existing, changed);
+            return true;
+        });
+    }
+
+    public boolean delete(String tenantId, int id) {
+        return write(tenantId, partition -> {
+            Task existing = partition.byId.get(id);
+            if (existing == null) {
+                return false;
+            }
+            append(encodeDelete(tenantId, id));
+            partition.remove(existing);
+            liveTasks.decrementAndGet();
+            deadRecords.addAndGet(2);
+            return true;
+        });
+    }
+
+    public Optional<Task> find(String tenantId, int id) {
+        return read(tenantId, partition -> Optional.ofNullable(partition.byId.get(id)).map(EmbeddedTaskStore::copy),
+                Optional.empty());
+    }
+
+    /**
+     * @return copies of the tenant's tasks, ordered by id
+     */
+    public List<Task> findAll(String tenantId) {
+        List<Task> tasks = read(tenantId, partition -> {
+            List<Task> copies = new ArrayList<>(partition.byId.size());
+            partition.byId.forEachValue(task -> copies.add(copy(task)));
+            return copies;
+        }, new ArrayList<>());
+        tasks.sort(Comparator.comparing(Task::getId));
+        return tasks;
+    }
+
+    /**
+     * Inserts {@code rows} of one tenant under a single lock, matching existing tasks by name.
+     *
+     * @param overwrite replace description and status of existing tasks instead of skipping them
+     * @return inserted and updated tasks
+     */
+    public List<TaskCopyDao.MergedTask> merge(String tenantId, Collection<Task> rows, boolean overwrite) {
+        return write(tenantId, partition -> {
+            List<TaskCopyDao.MergedTask> merged = new ArrayList<>();
+            for (Task row : rows) {
+                Integer id = partition.byName.get(row.getName());
+                if (id == null) {
+                    Task stored = insert(partition, row);
+                    merged.add(new TaskCopyDao.MergedTask(stored.getId(), tenantId, TaskOperation.ADD,
+                            stored.getStatus()));
+                } else if (overwrite) {
+                    Task existing = partition.byId.get(id);
+                    Task changed = copy(existing);
+                    changed.setDescription(row.getDescription());
+                    changed.setStatus(row.getStatus());
+                    replace(partition, existing, changed);
+                    merged.add(new TaskCopyDao.MergedTask(id, tenantId, TaskOperation.EDIT, changed.getStatus()));
+                }
+            }
+            return merged;
+        });
+    }
+
+    /**
+     * Page of LOCKED task deadlines of all tenants before {@code until}, ordered by id.
+     */
+    public List<TaskDeadline> findLockedDeadlines(Instant until, int afterId, int limit) {
+        List<TaskDeadline> deadlines = new ArrayList<>();
+        for (String tenantId : partitions.keySet()) {
+            read(tenantId, partition -> {
+                partition.byId.forEachValue(task -> {
+                    if (task.getId() > afterId && task.getStatus() == TaskStatus.LOCKED && task.getDueAt() != null
+                            && task.getDueAt().isBefore(until)) {
+                        deadlines.add(new Deadline(task.getId(), task.getDueAt()));
+                    }
+                });
+                return null;
+            }, null);
+        }
+        deadlines.sort(Comparator.comparing(TaskDeadline::getId));
+        return deadlines.size() > limit ? new ArrayList<>(deadlines.subList(0, limit)) : deadlines;
+    }
+
+    /**
+     * Makes LOCKED tasks among {@code ids} whose deadline passed AVAILABLE and clears their deadline.
+     */
+    public List<TaskRef> releaseExpired(Collection<Integer> ids, Instant now) {
+        List<TaskRef> released = new ArrayList<>();
+        for (String tenantId : partitions.keySet()) {
+            write(tenantId, partition -> {
+                for (Integer id : ids) {
+                    Task existing = partition.byId.get(id);
+                    if (existing != null && existing.getStatus() == TaskStatus.LOCKED && existing.getDueAt() != null
+                            && !existing.getDueAt().isAfter(now)) {
+                        Task changed = copy(existing);
+                        changed.setStatus(TaskStatus.AVAILABLE);
+                        changed.setDueAt(null);
+                        replace(partition, existing, changed);
+                        released.add(new Ref(id, tenantId));
+                    }
+                }
+                return null;
+            });
+        }
+        return released;
+    }
+
+    /**
+     * Rewrites the journal with one record per live task.
+     */
+    public void compact() throws IOException {
+        compaction.writeLock().lock();
+        try {
+            int before = journal.size();
+            List<Task> tasks = new ArrayList<>();
+            partitions.values().forEach(partition -> partition.byId.forEachValue(tasks::add));
+            journal.rewrite(sink -> {
+                sink.append(encodeLastId(lastId.get()));
+                for (Task task : tasks) {
+                    sink.append(encodePut(task));
+                }
+            });
+            deadRecords.set(0);
+            log.info("Compacted task journal from {} to {} bytes", before, journal.size());
+        } finally {
+            compaction.writeLock().unlock();
+        }
+    }
+
+    private void maintain() {
+        try {
+            journal.force();
+            if (journal.size() >= compactionMinBytes && deadRecords.get() > liveTasks.get()) {
+                compact();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Error maintaining task journal ", e);
+        }
+    }
+
+    private Task insert(Partition partition, Task task) {
+        if (partition.byName.containsKey(task.getName())) {
+            throw duplicated(task.getName());
+        }
+        Task stored = copy(task);
+        stored.setId(lastId.incrementAndGet());
+        append(encodePut(stored));
+        partition.put(stored);
+        liveTasks.incrementAndGet();
+        return stored;
+    }
+
+    private void replace(Partition partition, Task existing, Task changed) {
+        append(encodePut(changed));
+        partition.remove(existing);
+        partition.put(changed);
+        deadRecords.incrementAndGet();
+    }
+
+    private <T> T write(String tenantId, Function<Partition, T> operation) {
+        Lock shared = compaction.readLock();
+        shared.lock();
+        try {
+            Lock lock = stripe(tenantId).writeLock();
+            lock.lock();
+            try {
+                return operation.apply(partitions.computeIfAbsent(tenantId, t -> new Partition()));
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            shared.unlock();
+        }
+    }
+
+    private <T> T read(String tenantId, Function<Partition, T> operation, T absent) {
+        Partition partition = partitions.get(tenantId);
+        if (partition == null) {
+            return absent;
+        }
+        Lock lock = stripe(tenantId).readLock();
+        lock.lock();
+        try {
+            return operation.apply(partition);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantReadWriteLock stripe(String tenantId) {
+        return stripes[Math.floorMod(tenantId.hashCode(), stripes.length)];
+    }
+
+    private void append(ByteBuffer record) {
+        try {
+            journal.append(record);
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Could not append to the task journal", e);
+        }
+    }
+
+    private static DataIntegrityViolationException duplicated(String name) {
+        String message = "Duplicated task name " + name;
+        return new DataIntegrityViolationException(message,
+                new ConstraintViolationException(message, null, NAME_CONSTRAINT));
+    }
+
+    private void replay(ByteBuffer record) {
+        byte type = record.get();
+        if (type == PUT) {
+            Task task = decodePut(record);
+            Partition partition = partitions.computeIfAbsent(task.getTenantId(), t -> new Partition());
+            Task existing = partition.byId.get(task.getId());
+            if (existing != null) {
+                partition.remove(existing);
+                deadRecords.incrementAndGet();
+            } else {
+                liveTasks.incrementAndGet();
+            }
+            partition.put(task);
+            lastId.accumulateAndGet(task.getId(), Math::max);
+        } else if (type == DELETE) {
+            String tenantId = getString(record);
+            int id = record.getInt();
+            Partition partition = partitions.get(tenantId);
+            Task existing = partition == null ? null : partition.byId.get(id);
+            if (existing != null) {
+                partition.remove(existing);
+                liveTasks.decrementAndGet();
+                deadRecords.addAndGet(2);
+            }
+        } else if (type == LAST_ID) {
+            lastId.accumulateAndGet(record.getInt(), Math::max);
+        } else {
+            throw new IllegalStateException("Unknown task journal record type " + type);
+        }
+    }
+
+    private static ByteBuffer encodePut(Task task) {
+        byte[] tenantId = bytes(task.getTenantId());
+        byte[] name = bytes(task.getName());
+        byte[] description = bytes(task.getDescription());
+        byte[] status = bytes(task.getStatus() == null ? null : task.getStatus().name());
+        ByteBuffer record = ByteBuffer.allocate(1 + Integer.BYTES + 4 * Integer.BYTES + length(tenantId)
+                + length(name) + length(description) + length(status) + 1 + Long.BYTES + Integer.BYTES);
+        record.put(PUT).putInt(task.getId());
+        putString(record, tenantId);
+        putString(record, name);
+        putString(record, description);
+        putString(record, status);
+        if (task.getDueAt() == null) {
+            record.put((byte) 0);
+        } else {
+            record.put((byte) 1).putLong(task.getDueAt().getEpochSecond()).putInt(task.getDueAt().getNano());
+        }
+        return record.flip();
+    }
+
+    private static Task decodePut(ByteBuffer record) {
+        int id = record.getInt();
+        String tenantId = getString(record);
+        String name = getString(record);
+        String description = getString(record);
+        String status = getString(record);
+        Instant dueAt = record.get() == 0 ? null : Instant.ofEpochSecond(record.getLong(), record.getInt());
+        return Task.builder()
+                .id(id)
+                .tenantId(tenantId)
+                .name(name)
+                .description(description)
+                .status(status == null ? null : TaskStatus.valueOf(status))
+                .dueAt(dueAt)
+                .build();
+    }
+
+    private static ByteBuffer encodeDelete(String tenantId, int id) {
+        byte[] tenant = bytes(tenantId);
+        ByteBuffer record = ByteBuffer.allocate(1 + Integer.BYTES + length(tenant) + Integer.BYTES);
+        record.put(DELETE);
+        putString(record, tenant);
+        return record.putInt(id).flip();
+    }
+
+    private static ByteBuffer encodeLastId(int id) {
+        return ByteBuffer.allocate(1 + Integer.BYTES).put(LAST_ID).putInt(id).flip();
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] value) {
+        return value == null ? 0 : value.length;
+    }
+
+    private static void putString(ByteBuffer record, byte[] value) {
+        if (value == null) {
+            record.putInt(-1);
+        } else {
+            record.putInt(value.length).put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        record.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static Task copy(Task task) {
+        return Task.builder()
+                .id(task.getId())
+                .tenantId(task.getTenantId())
+                .name(task.getName())
+                .description(task.getDescription())
+                .status(task.getStatus())
+                .dueAt(task.getDueAt())
+                .build();
+    }
+
+    private static class Partition {
+        final IntObjectMap<Task> byId = new IntObjectMap<>();
+        final Map<String, Integer> byName = new HashMap<>();
+
+        void put(Task task) {
+            byId.put(task.getId(), task);
+            byName.put(task.getName(), task.getId());
+        }
+
+        void remove(Task task) {
+            byId.remove(task.getId());
+            byName.remove(task.getName());
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Deadline implements TaskDeadline {
+        private final Integer id;
+        private final Instant dueAt;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Ref implements TaskRef {
+        private final Integer id;
+        private final String tenantId;
+    }
+}
@@ -0,0 +1,114 @@
+package net.erply.demo.task.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Access to {@code public.idempotency_key}, on the shard of the current request's tenant. Expiry is
+ * judged by the database clock, so nodes with drifting clocks agree on it.
+ */
+@Component("idempotency_key_dao")
+@Profile("!embedded")
+public class IdempotencyKeyDao {
+
+    private static final String CLAIM = "INSERT INTO public.idempotency_key"
+            + " (tenant_id, idempotency_key, fingerprint, claim_token, expires_at)"
+            + " VALUES (?, ?, ?, ?, now() + ? * INTERVAL '1 millisecond')"
+            + " ON CONFLICT (tenant_id, idempotency_key) DO UPDATE"
+            + " SET fingerprint = EXCLUDED.fingerprint, claim_token = EXCLUDED.claim_token, completed = FALSE,"
+            + " error_code = NULL, response = NULL, expires_at = EXCLUDED.expires_at"
+            + " WHERE idempotency_key.expires_at < now()";
+
+    private static final String RENEW = "UPDATE public.idempotency_key"
+            + " SET expires_at = now() + ? * INTERVAL '1 millisecond'"
+            + " WHERE tenant_id = ? AND idempotency_key = ? AND claim_token = ? AND NOT completed";
+
+    private static final String FIND = "SELECT fingerprint, completed, error_code, response"
+            + " FROM public.idempotency_key WHERE tenant_id = ? AND idempotency_key = ? AND expires_at >= now()";
+
+    private static final String COMPLETE = "UPDATE public.idempotency_key"
+            + " SET completed = TRUE, error_code = ?, response = ?, expires_at = now() + ? * INTERVAL '1 millisecond'"
+            + " WHERE tenant_id = ? AND idempotency_key = ? AND claim_token = ? AND NOT completed";
+
+    private static final String RELEASE = "DELETE FROM public.idempotency_key"
+            + " WHERE tenant_id = ? AND idempotency_key = ? AND claim_token = ? AND NOT completed";
+
+    private static final String DELETE_EXPIRED = "DELETE FROM public.idempotency_key WHERE expires_at < now()";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdempotencyKeyDao(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Takes a key that is free or expired, leasing it for {@code leaseMillis} while the write runs. The claim
+     * is held by {@code token} from then on.
+     *
+     * @return {@code false} when a live row holds the key; {@link #find} tells whose
+     */
+    public boolean claim(String tenantId, String key, String fingerprint, String token, long leaseMillis) {
+        return jdbcTemplate.update(CLAIM, tenantId, key, fingerprint, token, leaseMillis) == 1;
+    }
+
+    /**
+     * Extends the lease of a claim by {@code leaseMillis} from now.
+     *
+     * @return {@code false} when the claim was lost, its lease having run out before
+     */
+    public boolean renew(String tenantId, String key, String token, long leaseMillis) {
+        return jdbcTemplate.update(RENEW, leaseMillis, tenantId, key, token) == 1;
+    }
+
+    public Optional<IdempotencyRecord> find(String tenantId, String key) {
+        return jdbcTemplate.query(FIND, IdempotencyKeyDao::mapRow, tenantId, key).stream().findFirst();
+    }
+
+    /**
+     * Stores the response of a claimed key and keeps it for {@code ttlMillis}.
+     *
+     * @return {@code false} when the claim was lost, its lease having run out before
+     */
+    public boolean complete(String tenantId, String key, String token, String errorCode, String response,
+                            long ttlMillis) {
+        return jdbcTemplate.update(COMPLETE, errorCode, response, ttlMillis, tenantId, key, token) == 1;
+    }
+
+    /**
+     * Frees a claimed key whose write failed unexpectedly, so a retry runs it again.
+     */
+    public void release(String tenantId, String key, String token) {
+        jdbcTemplate.update(RELEASE, tenantId, key, token);
+    }
+
+    public int deleteExpired() {
+        return jdbcTemplate.update(DELETE_EXPIRED);
+    }
+
+    private static IdempotencyRecord mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new IdempotencyRecord(rs.getString("fingerprint"), rs.getBoolean("completed"),
+                rs.getString("error_code"), rs.getString("response"));
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class IdempotencyRecord {
+
+        private final String fingerprint;
+
+        private final boolean completed;
+
+        /** Code of the business error the write ended with, {@code null} on success. */
+        private final String errorCode;
+
+        /** JSON of the returned {@code TaskDto}, {@code null} for an error. */
+        private final String response;
+    }
+}
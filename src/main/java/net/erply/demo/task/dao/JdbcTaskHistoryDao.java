@@ -0,0 +1,89 @@
+package net.erply.demo.task.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import net.erply.demo.task.api.TaskHistoryDto;
+import net.erply.demo.task.entity.TaskHistoryEvent;
+import net.erply.demo.task.entity.TaskOperation;
+import net.erply.demo.task.entity.TaskStatus;
+
+/**
+ * Append-only access to {@code public.task_history}. Only the resulting status is stored,
+ * the previous one is derived when reading.
+ */
+@Component("task_history_dao")
+@Profile("!embedded")
+public class JdbcTaskHistoryDao implements TaskHistoryDao {
+
+    private static final String INSERT = "INSERT INTO public.task_history (tenant_id, task_id, operation, status, changed_at) VALUES ";
+
+    private static final String VALUES = "(?, ?, ?, ?, ?)";
+
+    private static final String FIND_BY_TASK =
+            "SELECT task_id, operation, LAG(status) OVER (ORDER BY id) AS from_status, status, changed_at"
+            + " FROM public.task_history WHERE task_id = ? AND tenant_id = ? ORDER BY id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public JdbcTaskHistoryDao(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Inserts events with one multi-row statement.
+     *
+     * @param synchronousCommit {@code synchronous_commit} for this transaction, e.g. {@code off} to trade
+     *                          the last moments of history on a crash for lower commit latency
+     */
+    @Override
+    public void insertBatch(List<TaskHistoryEvent> events, String synchronousCommit) {
+        if (events.isEmpty()) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder(INSERT.length() + events.size() * (VALUES.length() + 1));
+        sql.append(INSERT);
+        List<Object> args = new ArrayList<>(events.size() * 5);
+        for (int i = 0; i < events.size(); i++) {
+            TaskHistoryEvent event = events.get(i);
+            sql.append(i == 0 ? "" : ",").append(VALUES);
+            args.add(event.getTenantId());
+            args.add(event.getTaskId());
+            args.add(event.getOperation().name());
+            args.add(event.getStatus() == null ? null : event.getStatus().name());
+            args.add(Timestamp.from(event.getChangedAt()));
+        }
+        transactionTemplate.executeWithoutResult(tx -> {
+            jdbcTemplate.queryForObject("SELECT set_config('synchronous_commit', ?, true)", String.class,
+                    synchronousCommit);
+            jdbcTemplate.update(sql.toString(), args.toArray());
+        });
+    }
+
+    @Override
+    public List<TaskHistoryDto> findByTaskId(String tenantId, Integer taskId) {
+        return jdbcTemplate.query(FIND_BY_TASK, JdbcTaskHistoryDao::mapRow, taskId, tenantId);
+    }
+
+    private static TaskHistoryDto mapRow(ResultSet rs, int rowNum) throws SQLException {
+        String fromStatus = rs.getString("from_status");
+        String toStatus = rs.getString("status");
+        return TaskHistoryDto.builder()
+                .taskId(rs.getInt("task_id"))
+                .operation(TaskOperation.valueOf(rs.getString("operation")))
+                .fromStatus(fromStatus == null ? null : TaskStatus.valueOf(fromStatus))
+                .toStatus(toStatus == null ? null : TaskStatus.valueOf(toStatus))
+                .changedAt(rs.getTimestamp("changed_at").toInstant())
+                .build();
+    }
+}
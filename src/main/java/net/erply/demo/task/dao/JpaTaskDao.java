@@ -0,0 +1,93 @@
+package net.erply.demo.task.dao;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+import javax.persistence.EntityNotFoundException;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import net.erply.demo.base.entity.Task;
+import net.erply.demo.base.shard.TenantContext;
+import net.erply.demo.task.entity.TaskStatus;
+
+/**
+ * Task access scoped to the tenant of the current request; which shard serves it is up to the data source.
+ */
+@Component("task_dao")
+@Profile("!embedded")
+public class JpaTaskDao implements TaskDao {
+
+    private final TaskJpaRepo repo;
+
+    public JpaTaskDao(TaskJpaRepo repo) {
+        this.repo = repo;
+    }
+
+    @Override
+    public Task save(Task task) {
+        return repo.save(task);
+    }
+
+    @Override
+    public void deleteById(Integer id) {
+        if (repo.deleteOwned(id, TenantContext.get()) == 0) {
+            throw new EmptyResultDataAccessException("No task with id " + id, 1);
+        }
+    }
+
+    @Override
+    public Task update(Task updated) {
+        if (repo.updateOwned(updated) == 0) {
+            throw new EntityNotFoundException("No task with id " + updated.getId());
+        }
+        return updated;
+    }
+
+    @Override
+    public void complete(Integer id) {
+        if (repo.updateStatus(id, TenantContext.get(), TaskStatus.COMPLETED) == 0) {
+            throw new EntityNotFoundException("No task with id " + id);
+        }
+    }
+
+    @Override
+    public List<TaskName> suggest(String prefix, int limit) {
+        return repo.suggest(TenantContext.get(), likePrefix(prefix.toLowerCase(Locale.ROOT)), limit);
+    }
+
+    @Override
+    public List<TaskName> findNames() {
+        return repo.findNamesByTenantId(TenantContext.get());
+    }
+
+    @Override
+    public List<Task> getAll() {
+        return repo.findByTenantId(TenantContext.get());
+    }
+
+    @Override
+    public Optional<Task> findById(Integer id) {
+        return repo.findByIdAndTenantId(id, TenantContext.get());
+    }
+
+    @Override
+    public List<TaskDeadline> findLockedDeadlines(Instant until, Integer afterId, int pageSize) {
+        return repo.findByStatusAndDueAtBeforeAndIdGreaterThanOrderById(TaskStatus.LOCKED, until, afterId,
+                PageRequest.of(0, pageSize));
+    }
+
+    @Override
+    public List<TaskRef> releaseExpired(Collection<Integer> ids, Instant now) {
+        return repo.transitionExpired(ids, TaskStatus.LOCKED.name(), TaskStatus.AVAILABLE.name(), now);
+    }
+
+    private static String likePrefix(String prefix) {
+        return prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+}
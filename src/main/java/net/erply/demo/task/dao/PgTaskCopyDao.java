@@ -0,0 +1,158 @@
+package net.erply.demo.task.dao;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import net.erply.demo.base.shard.TenantContext;
+import net.erply.demo.task.entity.TaskOperation;
+import net.erply.demo.task.entity.TaskStatus;
+
+/**
+ * Bulk loader: streams rows through the PostgreSQL COPY protocol into a per-transaction
+ * staging table and merges them into the current tenant's tasks with a single statement, which
+ * returns the inserted and updated tasks for their history.
+ */
+@Component("task_copy_dao")
+@Profile("!embedded")
+public class PgTaskCopyDao implements TaskCopyDao {
+
+    private static final int COPY_BUFFER_SIZE = 256 * 1024;
+
+    private static final String CREATE_STAGING =
+            "CREATE TEMPORARY TABLE task_import_staging ("
+            + " line_no BIGINT NOT NULL,"
+            + " name VARCHAR(255) NOT NULL,"
+            + " description TEXT NOT NULL,"
+            + " status VARCHAR(255)"
+            + ") ON COMMIT DROP";
+
+    private static final String COPY_STAGING =
+            "COPY task_import_staging (line_no, name, description, status) FROM STDIN WITH (FORMAT csv)";
+
+    /**
+     * Existing names are resolved through {@code task_name}: {@code task} is partitioned by status and
+     * has no unique index on names that {@code ON CONFLICT} could use. The last line of a name wins.
+     */
+    private static final String MERGE =
+            "WITH params AS (SELECT CAST(? AS VARCHAR(64)) AS tenant_id),"
+            + " staged AS ("
+            + " SELECT DISTINCT ON (name) name, description, COALESCE(status, 'AVAILABLE') AS status"
+            + " FROM task_import_staging ORDER BY name, line_no DESC),"
+            + " updated AS (%s),"
+            + " inserted AS ("
+            + " INSERT INTO public.task (tenant_id, name, description, status)"
+            + " SELECT p.tenant_id, s.name, s.description, s.status FROM staged s, params p"
+            + " WHERE NOT EXISTS (SELECT 1 FROM public.task_name n WHERE n.tenant_id = p.tenant_id AND n.name = s.name)"
+            + " RETURNING id, tenant_id, status)"
+            + " SELECT 'ADD' AS operation, id, tenant_id, status FROM inserted"
+            + " UNION ALL SELECT 'EDIT', id, tenant_id, status FROM updated";
+
+    private static final String UPDATE_EXISTING =
+            "UPDATE public.task t SET description = s.description, status = s.status"
+            + " FROM staged s, params p, public.task_name n"
+            + " WHERE n.tenant_id = p.tenant_id AND n.name = s.name AND t.id = n.task_id AND t.tenant_id = p.tenant_id"
+            + " RETURNING t.id, t.tenant_id, t.status";
+
+    private static final String SKIP_EXISTING =
+            "SELECT NULL::INTEGER AS id, NULL::VARCHAR AS tenant_id, NULL::VARCHAR AS status WHERE FALSE";
+
+    private final DataSource dataSource;
+
+    public PgTaskCopyDao(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Runs {@code producer} against a COPY stream and merges the staged rows in the same transaction.
+     */
+    @Override
+    public MergeResult copyAndMerge(RowProducer producer, boolean overwrite) throws SQLException, IOException {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                MergeResult result = copyAndMerge(connection, producer, overwrite);
+                connection.commit();
+                return result;
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private MergeResult copyAndMerge(Connection connection, RowProducer producer, boolean overwrite)
+            throws SQLException, IOException {
+        try (Statement st = connection.createStatement()) {
+            st.execute(CREATE_STAGING);
+        }
+
+        PGCopyOutputStream copy = new PGCopyOutputStream(connection.unwrap(PGConnection.class), COPY_STAGING,
+                COPY_BUFFER_SIZE);
+        long staged;
+        try {
+            Writer writer = new OutputStreamWriter(copy, StandardCharsets.UTF_8);
+            StringBuilder line = new StringBuilder();
+            producer.produce((lineNo, task) -> {
+                line.setLength(0);
+                line.append(lineNo).append(',');
+                appendCsv(line, task.getName());
+                line.append(',');
+                appendCsv(line, task.getDescription());
+                line.append(',');
+                if (task.getStatus() != null) {
+                    line.append(task.getStatus().name());
+                }
+                line.append('\n');
+                writer.append(line);
+            });
+            writer.flush();
+            staged = copy.endCopy();
+        } catch (IOException | RuntimeException e) {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+            throw e;
+        }
+
+        String sql = String.format(MERGE, overwrite ? UPDATE_EXISTING : SKIP_EXISTING);
+        try (PreparedStatement st = connection.prepareStatement(sql)) {
+            st.setString(1, TenantContext.get());
+            try (ResultSet rs = st.executeQuery()) {
+                List<MergedTask> merged = new ArrayList<>();
+                long inserted = 0;
+                while (rs.next()) {
+                    TaskOperation operation = TaskOperation.valueOf(rs.getString("operation"));
+                    if (operation == TaskOperation.ADD) {
+                        inserted++;
+                    }
+                    merged.add(new MergedTask(rs.getInt("id"), rs.getString("tenant_id"), operation,
+                            TaskStatus.valueOf(rs.getString("status"))));
+                }
+                long updated = merged.size() - inserted;
+                return new MergeResult(staged, inserted, updated, staged - merged.size(), merged);
+            }
+        }
+    }
+
+    private static void appendCsv(StringBuilder sb, String value) {
+        sb.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
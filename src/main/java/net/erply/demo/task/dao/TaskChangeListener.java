@@ -0,0 +1,221 @@
+package net.erply.demo.task.dao;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import net.erply.demo.base.shard.ShardRouter;
+import net.erply.demo.base.shard.ShardRoutingDataSource;
+
+/**
+ * Listens on the {@code task_changes} channel fed by the {@code public.task} triggers and hands
+ * batched, de-duplicated changes to {@link TaskChangeSubscriber}s. Uses its own connection outside
+ * of the pool, one per shard; after any connection loss subscribers are told to resync, as
+ * notifications sent meanwhile are lost.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "task.change-notify.enabled", havingValue = "true", matchIfMissing = true)
+public class TaskChangeListener implements SmartLifecycle {
+
+    static final String CHANNEL = "task_changes";
+
+    static final String RESYNC_PAYLOAD = "*";
+
+    private static final int IDLE_CHECK_MS = 10_000;
+
+    private final DataSource dataSource;
+
+    private final ShardRouter router;
+
+    private final List<TaskChangeSubscriber> subscribers;
+
+    private final int batchWindowMs;
+
+    private final long reconnectDelayMs;
+
+    private volatile boolean running;
+
+    private final List<Thread> threads = new ArrayList<>();
+
+    private final Map<String, Connection> connections = new ConcurrentHashMap<>();
+
+    public TaskChangeListener(DataSource dataSource, ShardRouter router, List<TaskChangeSubscriber> subscribers,
+                              @Value("${task.change-notify.batch-window-ms:50}") int batchWindowMs,
+                              @Value("${task.change-notify.reconnect-delay-ms:1000}") long reconnectDelayMs) {
+        this.dataSource = dataSource;
+        this.router = router;
+        this.subscribers = subscribers;
+        this.batchWindowMs = batchWindowMs;
+        this.reconnectDelayMs = reconnectDelayMs;
+    }
+
+    @Override
+    public synchronized void start() {
+        running = true;
+        shardDataSources().forEach((shard, shardDataSource) -> {
+            Thread thread = new Thread(() -> run(shard, shardDataSource), "task-change-listener-" + shard);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        });
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        threads.forEach(Thread::interrupt);
+        threads.clear();
+        for (Connection current : connections.values()) {
+            try {
+                current.close();
+            } catch (SQLException e) {
+                log.debug("Error closing task change listener connection ", e);
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run(String shard, DataSource shardDataSource) {
+        boolean connectedBefore = false;
+        while (running) {
+            try (Connection current = openConnection(shardDataSource)) {
+                connections.put(shard, current);
+                try (Statement st = current.createStatement()) {
+                    st.execute("LISTEN " + CHANNEL);
+                }
+                if (connectedBefore) {
+                    log.info("Task change listener reconnected to shard {}, resyncing", shard);
+                    resync();
+                }
+                connectedBefore = true;
+                listen(current);
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Task change listener lost connection to shard {}, retrying in {} ms", shard,
+                        reconnectDelayMs, e);
+                connectedBefore = true;
+                resync();
+                try {
+                    Thread.sleep(reconnectDelayMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void listen(Connection current) throws SQLException {
+        PGConnection pg = current.unwrap(PGConnection.class);
+        Set<Integer> changed = new HashSet<>();
+        while (running) {
+            PGNotification[] notifications = pg.getNotifications(IDLE_CHECK_MS);
+            if (isEmpty(notifications)) {
+                try (Statement st = current.createStatement()) {
+                    st.execute("SELECT 1");
+                }
+                continue;
+            }
+            long deadline = System.currentTimeMillis() + batchWindowMs;
+            boolean resync = false;
+            changed.clear();
+            while (!isEmpty(notifications)) {
+                for (PGNotification notification : notifications) {
+                    resync |= collect(notification.getParameter(), changed);
+                }
+                long left = deadline - System.currentTimeMillis();
+                notifications = left > 0 ? pg.getNotifications((int) left) : null;
+            }
+            if (resync) {
+                resync();
+            } else if (!changed.isEmpty()) {
+                publish(changed);
+            }
+        }
+    }
+
+    private static boolean isEmpty(PGNotification[] notifications) {
+        return notifications == null || notifications.length == 0;
+    }
+
+    /**
+     * @return {@code true} when the payload asks for a full resync
+     */
+    static boolean collect(String payload, Set<Integer> changed) {
+        if (payload == null || RESYNC_PAYLOAD.equals(payload)) {
+            return true;
+        }
+        for (String id : payload.split(",")) {
+            try {
+                changed.add(Integer.valueOf(id.trim()));
+            } catch (NumberFormatException e) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void publish(Set<Integer> changed) {
+        Set<Integer> ids = Set.copyOf(changed);
+        for (TaskChangeSubscriber subscriber : subscribers) {
+            try {
+                subscriber.onTasksChanged(ids);
+            } catch (RuntimeException e) {
+                log.error("Task change subscriber failed ", e);
+            }
+        }
+    }
+
+    private void resync() {
+        for (TaskChangeSubscriber subscriber : subscribers) {
+            try {
+                subscriber.onResync();
+            } catch (RuntimeException e) {
+                log.error("Task change subscriber failed to resync ", e);
+            }
+        }
+    }
+
+    private Map<String, DataSource> shardDataSources() {
+        try {
+            if (dataSource.isWrapperFor(ShardRoutingDataSource.class)) {
+                return dataSource.unwrap(ShardRoutingDataSource.class).getShardDataSources();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        return Map.of(router.getHomeShard(), dataSource);
+    }
+
+    private static Connection openConnection(DataSource shardDataSource) throws SQLException {
+        if (shardDataSource.isWrapperFor(HikariDataSource.class)) {
+            HikariDataSource hikari = shardDataSource.unwrap(HikariDataSource.class);
+            return DriverManager.getConnection(hikari.getJdbcUrl(), hikari.getUsername(), hikari.getPassword());
+        }
+        return shardDataSource.getConnection();
+    }
+}
@@ -0,0 +1,16 @@
+package net.erply.demo.task.dao;
+
+import java.util.Set;
+
+/**
+ * Receives task changes made by any node, as published by the database.
+ */
+public interface TaskChangeSubscriber {
+
+    void onTasksChanged(Set<Integer> ids);
+
+    /**
+     * Called when individual changes may have been missed, e.g. after a reconnect.
+     */
+    void onResync();
+}
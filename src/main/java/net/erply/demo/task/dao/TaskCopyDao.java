@@ -0,0 +1,58 @@
+package net.erply.demo.task.dao;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import net.erply.demo.base.entity.Task;
+import net.erply.demo.task.entity.TaskOperation;
+import net.erply.demo.task.entity.TaskStatus;
+
+/**
+ * Bulk loader merging a stream of rows into the current tenant's tasks in one go.
+ */
+public interface TaskCopyDao {
+
+    @FunctionalInterface
+    interface RowSink {
+        void accept(long lineNo, Task task) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface RowProducer {
+        void produce(RowSink sink) throws IOException;
+    }
+
+    /**
+     * A task the merge inserted ({@link TaskOperation#ADD}) or updated ({@link TaskOperation#EDIT}), with its
+     * status after the merge.
+     */
+    @Getter
+    @AllArgsConstructor
+    class MergedTask implements TaskRef {
+        private final Integer id;
+        private final String tenantId;
+        private final TaskOperation operation;
+        private final TaskStatus status;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    class MergeResult {
+        private final long staged;
+        private final long inserted;
+        private final long updated;
+        private final long skipped;
+        private final List<MergedTask> merged;
+    }
+
+    /**
+     * Stages the rows {@code producer} emits and merges them by name. Rows sharing a name are collapsed,
+     * the last one wins; collapsed and conflicting rows count as skipped.
+     *
+     * @param overwrite update existing tasks with the same name instead of skipping them
+     */
+    MergeResult copyAndMerge(RowProducer producer, boolean overwrite) throws SQLException, IOException;
+}
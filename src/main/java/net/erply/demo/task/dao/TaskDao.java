@@ -1,51 +1,37 @@
 package net.erply.demo.task.dao;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
-import org.springframework.stereotype.Component;
 import net.erply.demo.base.dao.Dao;
 import net.erply.demo.base.entity.Task;
-import net.erply.demo.task.entity.TaskStatus;
-
-@Component("task_dao")
-public class TaskDao implements Dao<Task> {
-
-    private final TaskJpaRepo repo;
-
-    public TaskDao(TaskJpaRepo repo) {
-        this.repo = repo;
-    }
-
-    @Override
-    public Task save(Task task) {
-        return repo.save(task);
-    }
-
-    @Override
-    public void deleteById(Integer id) {
-        repo.deleteById(id);
-    }
-
-    @Override
-    public Task update(Task updated) {
-        repo.getOne(updated.getId());
-        return repo.save(updated);
-    }
-
-    public void complete(Integer id) {
-        Task task = repo.getOne(id);
-        task.setStatus(TaskStatus.COMPLETED);
-        repo.save(task);
-    }
-
-    @Override
-    public List<Task> getAll() {
-        return repo.findAll();
-    }
-
-    @Override
-    public Optional<Task> findById(Integer id) {
-        return Optional.empty();
-    }
+
+/**
+ * Task access scoped to the tenant of the current request. Missing tasks are reported like JPA does:
+ * {@code EmptyResultDataAccessException} on delete, {@code EntityNotFoundException} on update and
+ * complete, and duplicated names as {@code DataIntegrityViolationException}.
+ */
+public interface TaskDao extends Dao<Task> {
+
+    void complete(Integer id);
+
+    /**
+     * Tasks whose name starts with {@code prefix}, ignoring case, ordered by lower-cased name.
+     */
+    List<TaskName> suggest(String prefix, int limit);
+
+    List<TaskName> findNames();
+
+    /**
+     * Page of LOCKED task deadlines of all tenants before {@code until}, keyset-paged by id.
+     */
+    List<TaskDeadline> findLockedDeadlines(Instant until, Integer afterId, int pageSize);
+
+    /**
+     * Makes LOCKED tasks whose deadline passed AVAILABLE again and clears their deadline.
+     *
+     * @return released tasks
+     */
+    List<TaskRef> releaseExpired(Collection<Integer> ids, Instant now);
 }
@@ -0,0 +1,12 @@
+package net.erply.demo.task.dao;
+
+import java.time.Instant;
+
+/**
+ * Projection of a task deadline, loaded without the rest of the row.
+ */
+public interface TaskDeadline {
+    Integer getId();
+
+    Instant getDueAt();
+}
@@ -0,0 +1,22 @@
+package net.erply.demo.task.dao;
+
+import java.util.List;
+
+import net.erply.demo.task.api.TaskHistoryDto;
+import net.erply.demo.task.entity.TaskHistoryEvent;
+
+/**
+ * Append-only task status history.
+ */
+public interface TaskHistoryDao {
+
+    /**
+     * @param synchronousCommit durability hint for the batch, {@code on} to wait for it to be durable
+     */
+    void insertBatch(List<TaskHistoryEvent> events, String synchronousCommit);
+
+    /**
+     * Status changes of a task, oldest first.
+     */
+    List<TaskHistoryDto> findByTaskId(String tenantId, Integer taskId);
+}
@@ -1,9 +1,71 @@
 package net.erply.demo.task.dao;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.query.QueryByExampleExecutor;
+import org.springframework.transaction.annotation.Transactional;
 import net.erply.demo.base.entity.Task;
+import net.erply.demo.task.entity.TaskStatus;
 
 public interface TaskJpaRepo extends JpaRepository<Task, Integer>, QueryByExampleExecutor<Task> {
 
+    List<Task> findByTenantId(String tenantId);
+
+    Optional<Task> findByIdAndTenantId(Integer id, String tenantId);
+
+    List<TaskName> findNamesByTenantId(String tenantId);
+
+    /**
+     * Native, as only the {@code COLLATE "C"} form matches the prefix index.
+     *
+     * @param pattern lower-cased LIKE pattern
+     */
+    @Query(value = "SELECT id AS \"id\", name AS \"name\" FROM public.task"
+            + " WHERE tenant_id = :tenantId AND lower(name) COLLATE \"C\" LIKE :pattern"
+            + " ORDER BY lower(name) COLLATE \"C\" LIMIT :limit", nativeQuery = true)
+    List<TaskName> suggest(@Param("tenantId") String tenantId, @Param("pattern") String pattern,
+                           @Param("limit") int limit);
+
+    /**
+     * Single-statement update of a tenant's task, without loading it first.
+     *
+     * @return number of updated rows, 0 when the tenant has no such task
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Task t SET t.name = :#{#task.name}, t.description = :#{#task.description},"
+            + " t.status = :#{#task.status}, t.dueAt = :#{#task.dueAt}"
+            + " WHERE t.id = :#{#task.id} AND t.tenantId = :#{#task.tenantId}")
+    int updateOwned(@Param("task") Task task);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Task t SET t.status = :status WHERE t.id = :id AND t.tenantId = :tenantId")
+    int updateStatus(@Param("id") Integer id, @Param("tenantId") String tenantId, @Param("status") TaskStatus status);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Task t WHERE t.id = :id AND t.tenantId = :tenantId")
+    int deleteOwned(@Param("id") Integer id, @Param("tenantId") String tenantId);
+
+    List<TaskDeadline> findByStatusAndDueAtBeforeAndIdGreaterThanOrderById(TaskStatus status, Instant until,
+                                                                           Integer afterId, Pageable page);
+
+    /**
+     * Native, as the ids actually transitioned are returned for the history log.
+     */
+    @Transactional
+    @Query(value = "UPDATE public.task SET status = :to, due_at = NULL"
+            + " WHERE id IN (:ids) AND status = :from AND due_at <= :now"
+            + " RETURNING id AS \"id\", tenant_id AS \"tenantId\"", nativeQuery = true)
+    List<TaskRef> transitionExpired(@Param("ids") Collection<Integer> ids, @Param("from") String from,
+                                    @Param("to") String to, @Param("now") Instant now);
 }
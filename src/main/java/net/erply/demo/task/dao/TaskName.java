@@ -0,0 +1,10 @@
+package net.erply.demo.task.dao;
+
+/**
+ * Projection of a task id with its name, all a suggestion needs.
+ */
+public interface TaskName {
+    Integer getId();
+
+    String getName();
+}
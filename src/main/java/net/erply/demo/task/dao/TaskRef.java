@@ -0,0 +1,10 @@
+package net.erply.demo.task.dao;
+
+/**
+ * Projection of a task id with the tenant owning it.
+ */
+public interface TaskRef {
+    Integer getId();
+
+    String getTenantId();
+}
@@ -0,0 +1,175 @@
+package net.erply.demo.task.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import net.erply.demo.base.entity.Task;
+import net.erply.demo.task.entity.TaskHistoryEvent;
+import net.erply.demo.task.entity.TaskOperation;
+import net.erply.demo.task.entity.TaskStatus;
+
+/**
+ * Whole-tenant access used when moving a tenant between shards. Reads are keyset-paged by id
+ * and run outside of transactions, so each page may come from another shard than the last write.
+ */
+@Component("task_tenant_dao")
+@Profile("!embedded")
+public class TaskTenantDao {
+
+    private static final String FIND_TASKS = "SELECT id, tenant_id, name, description, status, due_at"
+            + " FROM public.task WHERE tenant_id = ? AND id > ? ORDER BY id LIMIT ?";
+
+    private static final String INSERT_TASK = "INSERT INTO public.task"
+            + " (id, tenant_id, name, description, status, due_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String FIND_HISTORY = "SELECT id, tenant_id, task_id, operation, status, changed_at"
+            + " FROM public.task_history WHERE tenant_id = ? AND id > ? ORDER BY id LIMIT ?";
+
+    private static final String FIND_IDEMPOTENCY_KEYS = "SELECT tenant_id, idempotency_key, fingerprint, error_code,"
+            + " response, expires_at FROM public.idempotency_key"
+            + " WHERE tenant_id = ? AND idempotency_key > ? AND completed AND expires_at >= now()"
+            + " ORDER BY idempotency_key LIMIT ?";
+
+    private static final String INSERT_IDEMPOTENCY_KEY = "INSERT INTO public.idempotency_key"
+            + " (tenant_id, idempotency_key, fingerprint, completed, error_code, response, expires_at)"
+            + " VALUES (?, ?, ?, TRUE, ?, ?, ?)";
+
+    private static final String CHECKSUM = "SELECT (SELECT count(*) FROM public.task_history WHERE tenant_id = ?)"
+            + " || ':' || count(*) || ':' || coalesce(md5(string_agg(concat_ws('|', id, name, description, status,"
+            + " due_at), ',' ORDER BY id)), '') FROM public.task WHERE tenant_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public TaskTenantDao(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class HistoryRow {
+        private final long id;
+        private final TaskHistoryEvent event;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class IdempotencyKeyRow {
+        private final String tenantId;
+        private final String key;
+        private final String fingerprint;
+        private final String errorCode;
+        private final String response;
+        private final Timestamp expiresAt;
+    }
+
+    public List<Task> findTasks(String tenantId, Integer afterId, int limit) {
+        return jdbcTemplate.query(FIND_TASKS, TaskTenantDao::mapTask, tenantId, afterId, limit);
+    }
+
+    /**
+     * Inserts tasks keeping their ids.
+     */
+    public void insertTasks(List<Task> tasks) {
+        jdbcTemplate.batchUpdate(INSERT_TASK, tasks, tasks.size(), (ps, task) -> {
+            ps.setInt(1, task.getId());
+            ps.setString(2, task.getTenantId());
+            ps.setString(3, task.getName());
+            ps.setString(4, task.getDescription());
+            ps.setString(5, task.getStatus() == null ? null : task.getStatus().name());
+            ps.setTimestamp(6, task.getDueAt() == null ? null : Timestamp.from(task.getDueAt()));
+        });
+    }
+
+    public List<HistoryRow> findHistory(String tenantId, long afterId, int limit) {
+        return jdbcTemplate.query(FIND_HISTORY, TaskTenantDao::mapHistory, tenantId, afterId, limit);
+    }
+
+    /**
+     * Completed keys that have not expired; a claim still running on the source could never complete on the
+     * target.
+     */
+    public List<IdempotencyKeyRow> findIdempotencyKeys(String tenantId, String afterKey, int limit) {
+        return jdbcTemplate.query(FIND_IDEMPOTENCY_KEYS, TaskTenantDao::mapIdempotencyKey, tenantId, afterKey,
+                limit);
+    }
+
+    public void insertIdempotencyKeys(List<IdempotencyKeyRow> keys) {
+        jdbcTemplate.batchUpdate(INSERT_IDEMPOTENCY_KEY, keys, keys.size(), (ps, key) -> {
+            ps.setString(1, key.getTenantId());
+            ps.setString(2, key.getKey());
+            ps.setString(3, key.getFingerprint());
+            ps.setString(4, key.getErrorCode());
+            ps.setString(5, key.getResponse());
+            ps.setTimestamp(6, key.getExpiresAt());
+        });
+    }
+
+    public long countTasks(String tenantId) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM public.task WHERE tenant_id = ?", Long.class,
+                tenantId);
+    }
+
+    public long countHistory(String tenantId) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM public.task_history WHERE tenant_id = ?",
+                Long.class, tenantId);
+    }
+
+    /**
+     * Number of history events and digest of the tasks of a tenant; two shards holding the same rows of the
+     * tenant give the same checksum.
+     */
+    public String checksum(String tenantId) {
+        return jdbcTemplate.queryForObject(CHECKSUM, String.class, tenantId, tenantId);
+    }
+
+    /**
+     * Deletes all tasks, history and idempotency keys of a tenant.
+     */
+    public void deleteTenant(String tenantId) {
+        transactionTemplate.executeWithoutResult(tx -> {
+            jdbcTemplate.update("DELETE FROM public.idempotency_key WHERE tenant_id = ?", tenantId);
+            jdbcTemplate.update("DELETE FROM public.task_history WHERE tenant_id = ?", tenantId);
+            jdbcTemplate.update("DELETE FROM public.task WHERE tenant_id = ?", tenantId);
+        });
+    }
+
+    private static Task mapTask(ResultSet rs, int rowNum) throws SQLException {
+        String status = rs.getString("status");
+        Timestamp dueAt = rs.getTimestamp("due_at");
+        return Task.builder()
+                .id(rs.getInt("id"))
+                .tenantId(rs.getString("tenant_id"))
+                .name(rs.getString("name"))
+                .description(rs.getString("description"))
+                .status(status == null ? null : TaskStatus.valueOf(status))
+                .dueAt(dueAt == null ? null : dueAt.toInstant())
+                .build();
+    }
+
+    private static IdempotencyKeyRow mapIdempotencyKey(ResultSet rs, int rowNum) throws SQLException {
+        return new IdempotencyKeyRow(rs.getString("tenant_id"), rs.getString("idempotency_key"),
+                rs.getString("fingerprint"), rs.getString("error_code"), rs.getString("response"),
+                rs.getTimestamp("expires_at"));
+    }
+
+    private static HistoryRow mapHistory(ResultSet rs, int rowNum) throws SQLException {
+        String status = rs.getString("status");
+        return new HistoryRow(rs.getLong("id"), new TaskHistoryEvent(
+                rs.getString("tenant_id"),
+                rs.getInt("task_id"),
+                TaskOperation.valueOf(rs.getString("operation")),
+                status == null ? null : TaskStatus.valueOf(status),
+                rs.getTimestamp("changed_at").toInstant()));
+    }
+}
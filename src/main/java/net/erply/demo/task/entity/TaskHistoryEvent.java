@@ -0,0 +1,16 @@
+package net.erply.demo.task.entity;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class TaskHistoryEvent {
+    private final String tenantId;
+    private final Integer taskId;
+    private final TaskOperation operation;
+    private final TaskStatus status;
+    private final Instant changedAt;
+}
@@ -0,0 +1,5 @@
+package net.erply.demo.task.entity;
+
+public enum TaskOperation {
+    ADD,EDIT,COMPLETE,DELETE,EXPIRE
+}
@@ -8,8 +8,10 @@ import static net.erply.demo.base.entity.ErrorCode.TASK_NOT_FOUND;
 import static net.erply.demo.base.entity.ErrorCode.UNEXPECTED_ERROR;
 import static net.erply.demo.base.entity.ErrorCode.WRONG_TASK_ID;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import javax.persistence.EntityNotFoundException;
@@ -18,100 +20,290 @@ import org.hibernate.PropertyValueException;
 import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
 import lombok.extern.slf4j.Slf4j;
+import net.erply.demo.base.concurrent.SingleFlight;
+import net.erply.demo.base.entity.ErrorCode;
 import net.erply.demo.base.exception.AddTaskBadResponseException;
 import net.erply.demo.base.exception.DeleteTaskBadResponseException;
 import net.erply.demo.base.exception.EditTaskBadResponseException;
+import net.erply.demo.base.exception.GetTaskBadResponseException;
+import net.erply.demo.base.exception.TaskException;
+import net.erply.demo.base.log.SampledErrorLog;
+import net.erply.demo.base.profiling.DbTime;
+import net.erply.demo.base.profiling.TaskOperationEvent;
+import net.erply.demo.base.shard.TenantContext;
 import net.erply.demo.task.api.TaskDto;
+import net.erply.demo.task.api.TaskHistoryDto;
 import net.erply.demo.task.api.TaskMapper;
+import net.erply.demo.task.api.TaskSuggestionDto;
+import net.erply.demo.task.dao.TaskChangeSubscriber;
 import net.erply.demo.task.dao.TaskDao;
+import net.erply.demo.task.dao.TaskHistoryDao;
 import net.erply.demo.base.entity.Task;
+import net.erply.demo.task.entity.TaskOperation;
 import net.erply.demo.task.entity.TaskStatus;
 
 @Slf4j
 @Service
-public class DefaultTaskServiceImpl extends DefaultTaskService {
+public class DefaultTaskServiceImpl extends DefaultTaskService implements TaskChangeSubscriber {
 
     private final TaskDao dao;
 
     private final TaskMapper mapper;
 
-    public DefaultTaskServiceImpl(TaskDao dao, TaskMapper mapper) {
+    private static final String COALESCED_METRIC = "task.read.coalesced";
+
+    /** Concurrent identical reads of a tenant share one query. */
+    private final SingleFlight<String, List<Task>> listFlight;
+
+    private final SingleFlight<TaskKey, Task> getFlight;
+
+    private final TaskJsonCache jsonCache;
+
+    private final TaskNameIndex nameIndex;
+
+    private final int maxSuggestions;
+
+    private final ObjectProvider<TaskDeadlineScheduler> deadlines;
+
+    private final TaskHistoryWriter history;
+
+    private final TaskHistoryDao historyDao;
+
+    private final SampledErrorLog errorLog;
+
+    public DefaultTaskServiceImpl(TaskDao dao, TaskMapper mapper, MeterRegistry meterRegistry,
+                                  @Value("${task.read.coalescing-window-ms:0}") long coalescingWindowMs,
+                                  ObjectProvider<TaskDeadlineScheduler> deadlines,
+                                  TaskHistoryWriter history, TaskHistoryDao historyDao,
+                                  SampledErrorLog errorLog, TaskJsonCache jsonCache, TaskNameIndex nameIndex,
+                                  @Value("${task.suggest.max-limit:50}") int maxSuggestions) {
         this.dao = dao;
         this.mapper = mapper;
+        this.deadlines = deadlines;
+        this.history = history;
+        this.historyDao = historyDao;
+        this.errorLog = errorLog;
+        this.jsonCache = jsonCache;
+        this.nameIndex = nameIndex;
+        this.maxSuggestions = maxSuggestions;
+        Counter listCoalesced = meterRegistry.counter(COALESCED_METRIC, "operation", "list");
+        Counter getCoalesced = meterRegistry.counter(COALESCED_METRIC, "operation", "get");
+        this.listFlight = new SingleFlight<>(coalescingWindowMs, listCoalesced::increment);
+        this.getFlight = new SingleFlight<>(coalescingWindowMs, getCoalesced::increment);
     }
 
     @Override
     public TaskDto addTask(TaskDto taskDto) {
-        Task task = checkAndConvertNewTask(taskDto, null);
-        return addTask(task);
+        return TaskOperationEvent.profile("add", null, () -> {
+            Task task;
+            try {
+                task = checkAndConvertNewTask(taskDto, null);
+            } catch (TaskException e) {
+                errorLog.warn(log, errorCodeOf(e.getCode()), "New task rejected");
+                throw e;
+            }
+            return addTask(task);
+        });
     }
 
     @Override
     public void deleteTask(Integer id) throws DeleteTaskBadResponseException{
-        try {
-            dao.deleteById(id);
-        } catch (InvalidDataAccessApiUsageException e) {
-            log.error("Error delete task: wrong id  {} ", id, e);
-            throw new DeleteTaskBadResponseException(WRONG_TASK_ID.name());
-        } catch (EmptyResultDataAccessException e) {
-            log.error("Error delete task: not found task with id  {} ", id, e);
-            throw new DeleteTaskBadResponseException(TASK_NOT_FOUND.name());
-        } catch (Exception e) {
-            log.error("Error delete task with id  {} ", id, e);
-            throw new DeleteTaskBadResponseException(UNEXPECTED_ERROR.name());
-        }
+        TaskOperationEvent.profile("delete", id, () -> {
+            try {
+                DbTime.measure(() -> dao.deleteById(id));
+                invalidateReads(id);
+                nameIndex.remove(TenantContext.get(), id);
+                deadlines.ifAvailable(d -> d.onDeadlineRemoved(id));
+                history.record(TenantContext.get(), id, TaskOperation.DELETE, TaskStatus.DELETED);
+            } catch (InvalidDataAccessApiUsageException e) {
+                errorLog.warn(log, WRONG_TASK_ID, "Error delete task: wrong id {}", id, e);
+                throw new DeleteTaskBadResponseException(WRONG_TASK_ID.name());
+            } catch (EmptyResultDataAccessException e) {
+                errorLog.warn(log, TASK_NOT_FOUND, "Error delete task: not found task with id {}", id, e);
+                throw new DeleteTaskBadResponseException(TASK_NOT_FOUND.name());
+            } catch (Exception e) {
+                errorLog.error(log, UNEXPECTED_ERROR, "Error delete task with id {} ", id, e);
+                throw new DeleteTaskBadResponseException(UNEXPECTED_ERROR.name());
+            }
+        });
     }
 
     @Override
     public TaskDto editTask(Integer id, TaskDto taskDto) {
-        try {
-            Task task = checkAndConvertNewTask(taskDto, id);
-            return mapper.mapToDto(dao.update(task));
-        } catch (DataIntegrityViolationException e) {
-            log.error("Error editing task: wrong entity format ", e);
-            throw new EditTaskBadResponseException(getErrorCodeForEmptyFieldOrDuplicatedName(e));
-        } catch (EntityNotFoundException e) {
-            log.error("Error editing task: no entity with id {} ", id, e);
-            throw new EditTaskBadResponseException(TASK_NOT_FOUND.name());
-        } catch (Exception e) {
-            log.error("Error editing task: ", e);
-            throw new EditTaskBadResponseException(UNEXPECTED_ERROR.name());
-        }
+        return TaskOperationEvent.profile("edit", id, () -> {
+            try {
+                Task task = checkAndConvertNewTask(taskDto, id);
+                TaskDto updated = mapper.mapToDto(DbTime.measure(() -> dao.update(task)));
+                invalidateReads(id);
+                nameIndex.put(task.getTenantId(), id, task.getName());
+                deadlines.ifAvailable(d -> d.onDeadlineChanged(id, task.getStatus(), task.getDueAt()));
+                history.record(TenantContext.get(), id, TaskOperation.EDIT, task.getStatus());
+                return updated;
+            } catch (TaskException e) {
+                errorLog.warn(log, errorCodeOf(e.getCode()), "Error editing task {}: rejected", id);
+                throw new EditTaskBadResponseException(e.getCode());
+            } catch (DataIntegrityViolationException e) {
+                String code = getErrorCodeForEmptyFieldOrDuplicatedName(e);
+                errorLog.warn(log, errorCodeOf(code), "Error editing task {}: wrong entity format", id, e);
+                throw new EditTaskBadResponseException(code);
+            } catch (EntityNotFoundException e) {
+                errorLog.warn(log, TASK_NOT_FOUND, "Error editing task: no entity with id {}", id, e);
+                throw new EditTaskBadResponseException(TASK_NOT_FOUND.name());
+            } catch (Exception e) {
+                errorLog.error(log, UNEXPECTED_ERROR, "Error editing task {}: ", id, e);
+                throw new EditTaskBadResponseException(UNEXPECTED_ERROR.name());
+            }
+        });
     }
     @Override
     public void completeTask(Integer id) {
-        try {
-            dao.complete(id);
-        } catch (EntityNotFoundException e) {
-            log.error("Error editing task: no entity with id {} ", id, e);
-            throw new EditTaskBadResponseException(TASK_NOT_FOUND.name());
-        } catch (Exception e) {
-            log.error("Error editing task: ", e);
-            throw new EditTaskBadResponseException(UNEXPECTED_ERROR.name());
-        }
+        TaskOperationEvent.profile("complete", id, () -> {
+            try {
+                DbTime.measure(() -> dao.complete(id));
+                invalidateReads(id);
+                deadlines.ifAvailable(d -> d.onDeadlineRemoved(id));
+                history.record(TenantContext.get(), id, TaskOperation.COMPLETE, TaskStatus.COMPLETED);
+            } catch (EntityNotFoundException e) {
+                errorLog.warn(log, TASK_NOT_FOUND, "Error completing task: no entity with id {}", id, e);
+                throw new EditTaskBadResponseException(TASK_NOT_FOUND.name());
+            } catch (Exception e) {
+                errorLog.error(log, UNEXPECTED_ERROR, "Error completing task {}: ", id, e);
+                throw new EditTaskBadResponseException(UNEXPECTED_ERROR.name());
+            }
+        });
     }
 
 
 
     @Override
     public List<TaskDto> list() {
-        return dao.getAll().stream()
+        return TaskOperationEvent.profile("list", null, () -> listTasks().stream()
                 .map(mapper::mapToDto)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public List<byte[]> listJson() {
+        return TaskOperationEvent.profile("list", null, () -> listTasks().stream()
+                .map(jsonCache::encode)
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public TaskDto getTask(Integer id) {
+        return TaskOperationEvent.profile("get", id,
+                () -> mapper.mapToDto(getFlight.execute(new TaskKey(TenantContext.get(), id), () -> findTask(id))));
+    }
+
+    @Override
+    public byte[] getTaskJson(Integer id) {
+        return TaskOperationEvent.profile("get", id,
+                () -> jsonCache.encode(getFlight.execute(new TaskKey(TenantContext.get(), id), () -> findTask(id))));
     }
 
+    private List<Task> listTasks() {
+        return listFlight.execute(TenantContext.get(),
+                () -> Collections.unmodifiableList(DbTime.measure(dao::getAll)));
+    }
+
+    @Override
+    public List<TaskHistoryDto> getHistory(Integer id) {
+        return TaskOperationEvent.profile("history", id, () -> {
+            try {
+                return DbTime.measure(() -> historyDao.findByTaskId(TenantContext.get(), id));
+            } catch (Exception e) {
+                errorLog.error(log, UNEXPECTED_ERROR, "Error get history of task with id {} ", id, e);
+                throw new GetTaskBadResponseException(UNEXPECTED_ERROR.name());
+            }
+        });
+    }
+
+    @Override
+    public List<TaskSuggestionDto> suggest(String prefix, int limit) {
+        String normalized = prefix == null ? "" : prefix;
+        int capped = Math.max(1, Math.min(limit, maxSuggestions));
+        return TaskOperationEvent.profile("suggest", null, () -> {
+            try {
+                if (nameIndex.isEnabled()) {
+                    return nameIndex.suggest(TenantContext.get(), normalized, capped,
+                            () -> DbTime.measure(dao::findNames));
+                }
+                return DbTime.measure(() -> dao.suggest(normalized, capped)).stream()
+                        .map(name -> new TaskSuggestionDto(name.getId(), name.getName()))
+                        .collect(Collectors.toList());
+            } catch (Exception e) {
+                errorLog.error(log, UNEXPECTED_ERROR, "Error suggesting tasks for prefix {} ", normalized, e);
+                throw new GetTaskBadResponseException(UNEXPECTED_ERROR.name());
+            }
+        });
+    }
+
+    private Task findTask(Integer id) {
+        Optional<Task> task;
+        try {
+            task = DbTime.measure(() -> dao.findById(id));
+        } catch (InvalidDataAccessApiUsageException e) {
+            errorLog.warn(log, WRONG_TASK_ID, "Error get task: wrong id {}", id, e);
+            throw new GetTaskBadResponseException(WRONG_TASK_ID.name());
+        } catch (Exception e) {
+            errorLog.error(log, UNEXPECTED_ERROR, "Error get task with id {} ", id, e);
+            throw new GetTaskBadResponseException(UNEXPECTED_ERROR.name());
+        }
+        if (task.isEmpty()) {
+            errorLog.count(TASK_NOT_FOUND);
+            throw new GetTaskBadResponseException(TASK_NOT_FOUND.name());
+        }
+        return task.get();
+    }
+
+    @Override
+    public void onTasksChanged(Set<Integer> ids) {
+        listFlight.forgetAll();
+        getFlight.forgetIf(key -> ids.contains(key.id));
+        jsonCache.invalidate(ids);
+        nameIndex.invalidateAll();
+    }
+
+    @Override
+    public void onResync() {
+        invalidateAllReads();
+    }
 
-    private Task checkAndConvertNewTask(TaskDto dto, Integer id) {
+    /**
+     * Drops shared read results after writes that bypass this service, like bulk import.
+     */
+    void invalidateAllReads() {
+        listFlight.forgetAll();
+        getFlight.forgetAll();
+        jsonCache.invalidateAll();
+        nameIndex.invalidateAll();
+    }
+
+    private void invalidateReads(Integer id) {
+        String tenant = TenantContext.get();
+        listFlight.forget(tenant);
+        if (id != null) {
+            getFlight.forget(new TaskKey(tenant, id));
+        }
+        jsonCache.invalidate(id);
+    }
+
+
+    static Task checkAndConvertNewTask(TaskDto dto, Integer id) {
         if(!StringUtils.hasText(dto.getName())) {
-            log.warn("Task {} name is empty", id);
             throw new AddTaskBadResponseException(EMPTY_TASK_FIELD_NAME.name());
         }
         if(!StringUtils.hasText(dto.getDescription())) {
-            log.warn("Task {} description is empty", id);
             throw new AddTaskBadResponseException(EMPTY_TASK_FIELD_DESCRIPTION.name());
         }
         if (Optional.ofNullable(dto.getStatus()).isEmpty()) {
@@ -119,27 +311,34 @@ public class DefaultTaskServiceImpl extends DefaultTaskService {
         }
         return Task.builder()
                 .id(id)
+                .tenantId(TenantContext.get())
                 .name(dto.getName())
                 .description(dto.getDescription())
                 .status(dto.getStatus())
+                .dueAt(dto.getDueAt())
                 .build();
     }
 
     private TaskDto addTask(Task task) throws AddTaskBadResponseException {
         try {
-            task = dao.save(task);
-            return mapper.mapToDto(task);
+            Task saved = DbTime.measure(() -> dao.save(task));
+            invalidateReads(saved.getId());
+            nameIndex.put(saved.getTenantId(), saved.getId(), saved.getName());
+            deadlines.ifAvailable(d -> d.onDeadlineChanged(saved.getId(), saved.getStatus(), saved.getDueAt()));
+            history.record(saved.getTenantId(), saved.getId(), TaskOperation.ADD, saved.getStatus());
+            return mapper.mapToDto(saved);
         } catch (DataIntegrityViolationException e) {
-            throw new AddTaskBadResponseException(getErrorCodeForEmptyFieldOrDuplicatedName(e));
+            String code = getErrorCodeForEmptyFieldOrDuplicatedName(e);
+            errorLog.warn(log, errorCodeOf(code), "Error adding task", e);
+            throw new AddTaskBadResponseException(code);
         } catch (Exception e) {
-            log.error("Unknown error adding task: ", e);
+            errorLog.error(log, UNEXPECTED_ERROR, "Unknown error adding task: ", e);
             throw new AddTaskBadResponseException(UNEXPECTED_ERROR.name());
         }
     }
 
     private String getErrorCodeForEmptyFieldOrDuplicatedName(DataIntegrityViolationException e) {
         String errorCode = UNEXPECTED_ERROR.name();
-        log.error("Error adding task: ", e);
         if (e.getCause() instanceof PropertyValueException) {
             PropertyValueException pve = (PropertyValueException) e.getCause();
             errorCode = EMPTY_TASK_FIELD.name();
@@ -152,5 +351,20 @@ public class DefaultTaskServiceImpl extends DefaultTaskService {
         return errorCode;
     }
 
+    private static ErrorCode errorCodeOf(String code) {
+        try {
+            return ErrorCode.valueOf(code);
+        } catch (IllegalArgumentException e) {
+            return code.startsWith(EMPTY_TASK_FIELD.name()) ? EMPTY_TASK_FIELD : UNEXPECTED_ERROR;
+        }
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class TaskKey {
+        private final String tenant;
+        private final Integer id;
+    }
+
 
 }
@@ -0,0 +1,416 @@
+package net.erply.demo.task.service;
+
+import static net.erply.demo.base.entity.ErrorCode.IDEMPOTENCY_KEY_IN_FLIGHT;
+import static net.erply.demo.base.entity.ErrorCode.IDEMPOTENCY_KEY_REUSED;
+import static net.erply.demo.base.entity.ErrorCode.UNEXPECTED_ERROR;
+import static net.erply.demo.base.entity.ErrorCode.WRONG_IDEMPOTENCY_KEY;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.erply.demo.base.exception.IdempotencyBadResponseException;
+import net.erply.demo.base.exception.IdempotencyConflictException;
+import net.erply.demo.base.exception.TaskException;
+import net.erply.demo.base.shard.TenantContext;
+import net.erply.demo.task.api.TaskDto;
+import net.erply.demo.task.dao.IdempotencyKeyDao;
+import net.erply.demo.task.dao.IdempotencyKeyDao.IdempotencyRecord;
+
+/**
+ * Runs a write sent with an {@code Idempotency-Key} once per tenant and key, and answers retries with
+ * the first response without touching the {@code task} table: the returned task, or the business error
+ * the write ended with. Unexpected errors are not kept, so a retry runs the write again. A retry arriving
+ * while the original still runs waits for it. Reusing a key for another operation or body is rejected.
+ * <p>
+ * Responses are kept for {@code task.idempotency.ttl-minutes} in a bounded map on this node. With
+ * {@code task.idempotency.store: database} keys are claimed in {@code public.idempotency_key} as well,
+ * so retries landing on another node are answered too; the map then only saves the query on this node.
+ * A claim holds a lease of {@code task.idempotency.lease-ms} that is renewed while the write runs, so only
+ * a node that stopped lets another one take the key over, and is held by a token of its own, so a node
+ * that lost its claim cannot complete or release the next one.
+ */
+@Slf4j
+@Component
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private static final long POLL_MILLIS = 20;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /** Entries holding a response, in order of completion; the oldest is evicted first. */
+    private final Queue<Completed> completed = new ConcurrentLinkedQueue<>();
+
+    private final ObjectMapper objectMapper;
+
+    private final IdempotencyKeyDao dao;
+
+    private final boolean enabled;
+
+    private final long ttlMillis;
+
+    private final int maxEntries;
+
+    private final long waitTimeoutMillis;
+
+    private final long leaseMillis;
+
+    private final long cleanupIntervalMillis;
+
+    private final AtomicLong nextCleanup = new AtomicLong();
+
+    /** Renews the leases of claimed keys; {@code null} without a database. */
+    private final ScheduledExecutorService leases;
+
+    private final Counter executed;
+
+    private final Counter replayed;
+
+    private final Counter rejected;
+
+    public IdempotencyService(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                              ObjectProvider<IdempotencyKeyDao> dao,
+                              @Value("${task.idempotency.enabled:true}") boolean enabled,
+                              @Value("${task.idempotency.store:memory}") String store,
+                              @Value("${task.idempotency.ttl-minutes:1440}") long ttlMinutes,
+                              @Value("${task.idempotency.max-entries:100000}") int maxEntries,
+                              @Value("${task.idempotency.wait-timeout-ms:10000}") long waitTimeoutMillis,
+                              @Value("${task.idempotency.lease-ms:30000}") long leaseMillis,
+                              @Value("${task.idempotency.cleanup-interval-minutes:10}") long cleanupIntervalMinutes) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.ttlMillis = Duration.ofMinutes(ttlMinutes).toMillis();
+        this.maxEntries = maxEntries;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.leaseMillis = leaseMillis;
+        this.cleanupIntervalMillis = Duration.ofMinutes(cleanupIntervalMinutes).toMillis();
+        if ("database".equals(store)) {
+            this.dao = dao.getIfAvailable();
+            if (this.dao == null) {
+                throw new IllegalStateException("task.idempotency.store: database needs a database");
+            }
+        } else if ("memory".equals(store)) {
+            this.dao = null;
+        } else {
+            throw new IllegalStateException("Unknown task.idempotency.store: " + store);
+        }
+        this.leases = this.dao == null ? null : Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "idempotency-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executed = meterRegistry.counter("task.idempotency", "result", "executed");
+        this.replayed = meterRegistry.counter("task.idempotency", "result", "replayed");
+        this.rejected = meterRegistry.counter("task.idempotency", "result", "rejected");
+        meterRegistry.gauge("task.idempotency.size", entries, Map::size);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (leases != null) {
+            leases.shutdownNow();
+        }
+    }
+
+    /**
+     * @param key       value of the header, {@code null} to just run the write
+     * @param operation name of the write; with {@code id} and {@code request} it makes up what the key
+     *                  must keep meaning, so call this before the write changes the request
+     * @param errors    exception a stored business error is replayed as
+     */
+    public TaskDto execute(String key, String operation, Integer id, TaskDto request,
+                           Function<String, ? extends TaskException> errors, Supplier<TaskDto> write) {
+        if (key == null || !enabled) {
+            return write.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            rejected.increment();
+            throw new IdempotencyBadResponseException(WRONG_IDEMPOTENCY_KEY.name());
+        }
+        String tenant = TenantContext.get();
+        String fingerprint = fingerprint(operation, id, request);
+        String localKey = tenant + '\0' + key;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitTimeoutMillis);
+        while (true) {
+            Entry entry = new Entry(fingerprint);
+            Entry existing = entries.putIfAbsent(localKey, entry);
+            if (existing == null) {
+                return run(tenant, key, localKey, entry, errors, write, deadline);
+            }
+            if (existing.isExpired()) {
+                entries.remove(localKey, existing);
+                continue;
+            }
+            Response response = await(existing, fingerprint, deadline);
+            if (response != null) {
+                replayed.increment();
+                return response.replay(errors);
+            }
+            // the original failed unexpectedly and gave the key up
+        }
+    }
+
+    private TaskDto run(String tenant, String key, String localKey, Entry entry,
+                        Function<String, ? extends TaskException> errors, Supplier<TaskDto> write, long deadline) {
+        Response response = null;
+        boolean claimed = false;
+        String token = dao == null ? null : UUID.randomUUID().toString();
+        ScheduledFuture<?> renewal = null;
+        try {
+            if (dao != null) {
+                Response stored = claim(tenant, key, entry.fingerprint, token, deadline);
+                if (stored != null) {
+                    response = stored;
+                    replayed.increment();
+                    return stored.replay(errors);
+                }
+                claimed = true;
+                renewal = renewLease(tenant, key, token);
+            }
+            executed.increment();
+            try {
+                TaskDto task = write.get();
+                response = new Response(task, null);
+                return task;
+            } catch (TaskException e) {
+                if (!UNEXPECTED_ERROR.name().equals(e.getCode())) {
+                    response = new Response(null, e.getCode());
+                }
+                throw e;
+            } finally {
+                if (renewal != null) {
+                    renewal.cancel(false);
+                }
+                if (claimed && response != null
+                        && !dao.complete(tenant, key, token, response.errorCode, json(response.task), ttlMillis)) {
+                    log.warn("Lost the claim of idempotency key {} of tenant {} before its write completed", key,
+                            tenant);
+                }
+            }
+        } finally {
+            if (response != null) {
+                entry.complete(response, ttlMillis);
+                completed.add(new Completed(localKey, entry));
+                evict();
+            } else {
+                entries.remove(localKey, entry);
+                entry.response.complete(null);
+                if (claimed) {
+                    dao.release(tenant, key, token);
+                }
+            }
+        }
+    }
+
+    /**
+     * Claims the key in the database, or waits for the node holding it.
+     *
+     * @return the stored response, {@code null} when the key was claimed
+     */
+    private Response claim(String tenant, String key, String fingerprint, String token, long deadline) {
+        cleanUp();
+        while (true) {
+            if (dao.claim(tenant, key, fingerprint, token, leaseMillis)) {
+                return null;
+            }
+            IdempotencyRecord record = dao.find(tenant, key).orElse(null);
+            if (record == null) {
+                continue;
+            }
+            if (!record.getFingerprint().equals(fingerprint)) {
+                rejected.increment();
+                throw new IdempotencyBadResponseException(IDEMPOTENCY_KEY_REUSED.name());
+            }
+            if (record.isCompleted()) {
+                return new Response(task(record.getResponse()), record.getErrorCode());
+            }
+            if (System.nanoTime() - deadline > 0) {
+                rejected.increment();
+                throw new IdempotencyConflictException(IDEMPOTENCY_KEY_IN_FLIGHT.name());
+            }
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IdempotencyConflictException(IDEMPOTENCY_KEY_IN_FLIGHT.name());
+            }
+        }
+    }
+
+    /**
+     * Extends the lease of a claimed key every third of it until cancelled. Runs on another thread, so the
+     * tenant is bound there for the shard to be found.
+     */
+    private ScheduledFuture<?> renewLease(String tenant, String key, String token) {
+        long period = Math.max(1, leaseMillis / 3);
+        return leases.scheduleAtFixedRate(() -> {
+            TenantContext.set(tenant);
+            try {
+                if (!dao.renew(tenant, key, token, leaseMillis)) {
+                    log.warn("Could not renew the lease of idempotency key {} of tenant {}", key, tenant);
+                }
+            } catch (RuntimeException e) {
+                log.error("Error renewing the lease of idempotency key {} of tenant {} ", key, tenant, e);
+            } finally {
+                TenantContext.clear();
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return response of the entry, {@code null} when its write failed unexpectedly
+     */
+    private Response await(Entry entry, String fingerprint, long deadline) {
+        if (!entry.fingerprint.equals(fingerprint)) {
+            rejected.increment();
+            throw new IdempotencyBadResponseException(IDEMPOTENCY_KEY_REUSED.name());
+        }
+        try {
+            return entry.response.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            rejected.increment();
+            throw new IdempotencyConflictException(IDEMPOTENCY_KEY_IN_FLIGHT.name());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyConflictException(IDEMPOTENCY_KEY_IN_FLIGHT.name());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Drops expired entries from the old end, then the oldest ones over the bound. Writes in flight are
+     * not queued yet, so the map may exceed the bound by the number of them.
+     */
+    private void evict() {
+        Completed oldest;
+        while ((oldest = completed.peek()) != null) {
+            Entry current = entries.get(oldest.localKey);
+            boolean stale = current != oldest.entry;
+            if (!stale && !oldest.entry.isExpired() && entries.size() <= maxEntries) {
+                break;
+            }
+            if (completed.remove(oldest) && !stale) {
+                entries.remove(oldest.localKey, oldest.entry);
+            }
+        }
+    }
+
+    private void cleanUp() {
+        long now = System.currentTimeMillis();
+        long next = nextCleanup.get();
+        if (now >= next && nextCleanup.compareAndSet(next, now + cleanupIntervalMillis)) {
+            int deleted = dao.deleteExpired();
+            log.debug("Deleted {} expired idempotency keys", deleted);
+        }
+    }
+
+    private String fingerprint(String operation, Integer id, TaskDto request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((operation + '\0' + id + '\0').getBytes(StandardCharsets.UTF_8));
+            byte[] hash = digest.digest(objectMapper.writeValueAsBytes(request));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Could not fingerprint " + operation + " request", e);
+        }
+    }
+
+    private String json(TaskDto task) {
+        try {
+            return task == null ? null : objectMapper.writeValueAsString(task);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode task " + task.getId(), e);
+        }
+    }
+
+    private TaskDto task(String json) {
+        try {
+            return json == null ? null : objectMapper.readValue(json, TaskDto.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not decode stored idempotent response", e);
+        }
+    }
+
+    @AllArgsConstructor
+    private static class Response {
+
+        private final TaskDto task;
+
+        private final String errorCode;
+
+        TaskDto replay(Function<String, ? extends TaskException> errors) {
+            if (errorCode != null) {
+                throw errors.apply(errorCode);
+            }
+            return task;
+        }
+    }
+
+    private static class Entry {
+
+        private final String fingerprint;
+
+        private final CompletableFuture<Response> response = new CompletableFuture<>();
+
+        /** Nanos, set once the response is in; entries in flight do not expire. */
+        private volatile long expiresAt;
+
+        private volatile boolean done;
+
+        Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        void complete(Response response, long ttlMillis) {
+            expiresAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+            done = true;
+            this.response.complete(response);
+        }
+
+        boolean isExpired() {
+            return done && System.nanoTime() - expiresAt > 0;
+        }
+    }
+
+    @AllArgsConstructor
+    private static class Completed {
+        private final String localKey;
+        private final Entry entry;
+    }
+}
@@ -0,0 +1,218 @@
+package net.erply.demo.task.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import lombok.extern.slf4j.Slf4j;
+import net.erply.demo.base.concurrent.HierarchicalTimingWheel;
+import net.erply.demo.base.shard.ShardRouter;
+import net.erply.demo.task.dao.TaskChangeSubscriber;
+import net.erply.demo.task.dao.TaskDao;
+import net.erply.demo.task.dao.TaskDeadline;
+import net.erply.demo.task.dao.TaskRef;
+import net.erply.demo.task.entity.TaskOperation;
+import net.erply.demo.task.entity.TaskStatus;
+
+/**
+ * Releases LOCKED tasks whose {@code dueAt} passed. Deadlines inside the load window are kept in a
+ * hierarchical timing wheel driven by a single thread; the window is loaded page by page and slid
+ * forward periodically, so there is neither per-task polling nor a thread per timer. Expired tasks
+ * are made AVAILABLE in batched updates that re-check status and deadline in the database.
+ * Ids are unique over all shards, so one wheel serves them all; each timer remembers its shard.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "task.deadline.enabled", havingValue = "true", matchIfMissing = true)
+public class TaskDeadlineScheduler implements SmartLifecycle {
+
+    private final TaskDao dao;
+
+    private final ShardRouter router;
+
+    private final ObjectProvider<TaskChangeSubscriber> subscribers;
+
+    private final TaskHistoryWriter history;
+
+    private final long tickMs;
+
+    private final int wheelSize;
+
+    private final int levels;
+
+    private final Duration loadWindow;
+
+    private final int pageSize;
+
+    private final int batchSize;
+
+    private HierarchicalTimingWheel<Integer> wheel;
+
+    private final Map<Integer, String> shardOf = new HashMap<>();
+
+    private volatile Instant loadedUntil = Instant.MIN;
+
+    private ScheduledExecutorService executor;
+
+    public TaskDeadlineScheduler(TaskDao dao, ShardRouter router, ObjectProvider<TaskChangeSubscriber> subscribers,
+                                 TaskHistoryWriter history,
+                                 @Value("${task.deadline.tick-ms:1000}") long tickMs,
+                                 @Value("${task.deadline.wheel-size:64}") int wheelSize,
+                                 @Value("${task.deadline.levels:4}") int levels,
+                                 @Value("${task.deadline.load-window-minutes:60}") long loadWindowMinutes,
+                                 @Value("${task.deadline.page-size:1000}") int pageSize,
+                                 @Value("${task.deadline.batch-size:500}") int batchSize) {
+        this.dao = dao;
+        this.router = router;
+        this.subscribers = subscribers;
+        this.history = history;
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.levels = levels;
+        this.loadWindow = Duration.ofMinutes(loadWindowMinutes);
+        this.pageSize = pageSize;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public synchronized void start() {
+        shardOf.clear();
+        wheel = new HierarchicalTimingWheel<>(tickMs, wheelSize, levels, System.currentTimeMillis());
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "task-deadline-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long reloadMs = loadWindow.toMillis() / 2;
+        executor.scheduleWithFixedDelay(this::loadWindow, 0, reloadMs, TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return executor != null;
+    }
+
+    /**
+     * Keeps the wheel in line with a task write on the current shard. Deadlines past the load window
+     * are picked up by a later load.
+     */
+    public void onDeadlineChanged(Integer id, TaskStatus status, Instant dueAt) {
+        if (id == null) {
+            return;
+        }
+        String shard = router.currentShard();
+        synchronized (this) {
+            if (wheel == null) {
+                return;
+            }
+            if (status == TaskStatus.LOCKED && dueAt != null && dueAt.isBefore(loadedUntil)) {
+                schedule(shard, id, dueAt.toEpochMilli());
+            } else {
+                wheel.cancel(id);
+                shardOf.remove(id);
+            }
+        }
+    }
+
+    public void onDeadlineRemoved(Integer id) {
+        onDeadlineChanged(id, null, null);
+    }
+
+    private void loadWindow() {
+        Instant until = Instant.now().plus(loadWindow);
+        loadedUntil = until;
+        for (String shard : router.getShards()) {
+            try {
+                int loaded = router.callOn(shard, () -> loadWindow(shard, until));
+                log.debug("Loaded {} task deadlines until {} from shard {}", loaded, until, shard);
+            } catch (RuntimeException e) {
+                log.error("Error loading task deadlines from shard {} ", shard, e);
+            }
+        }
+    }
+
+    private int loadWindow(String shard, Instant until) {
+        int loaded = 0;
+        Integer afterId = 0;
+        List<TaskDeadline> page;
+        do {
+            page = dao.findLockedDeadlines(until, afterId, pageSize);
+            synchronized (this) {
+                for (TaskDeadline deadline : page) {
+                    schedule(shard, deadline.getId(), deadline.getDueAt().toEpochMilli());
+                }
+            }
+            loaded += page.size();
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == pageSize);
+        return loaded;
+    }
+
+    /**
+     * Runs on a fixed delay, so nothing may escape it: an exception would cancel the job for good.
+     */
+    private void tick() {
+        try {
+            Map<String, List<Integer>> expired = new HashMap<>();
+            synchronized (this) {
+                for (Integer id : wheel.advanceTo(System.currentTimeMillis())) {
+                    String shard = shardOf.remove(id);
+                    if (shard != null) {
+                        expired.computeIfAbsent(shard, s -> new ArrayList<>()).add(id);
+                    }
+                }
+            }
+            expired.forEach(this::release);
+        } catch (RuntimeException e) {
+            log.error("Error expiring task deadlines ", e);
+        }
+    }
+
+    private void release(String shard, List<Integer> expired) {
+        for (int from = 0; from < expired.size(); from += batchSize) {
+            List<Integer> batch = expired.subList(from, Math.min(expired.size(), from + batchSize));
+            try {
+                List<TaskRef> released = router.callOn(shard, () -> dao.releaseExpired(batch, Instant.now()));
+                log.debug("Released {} of {} expired tasks on shard {}", released.size(), batch.size(), shard);
+                released.forEach(task -> history.record(task.getTenantId(), task.getId(), TaskOperation.EXPIRE,
+                        TaskStatus.AVAILABLE));
+                Set<Integer> ids = Set.copyOf(batch);
+                subscribers.orderedStream().forEach(s -> s.onTasksChanged(ids));
+            } catch (RuntimeException e) {
+                log.error("Error releasing {} expired tasks on shard {}, retrying later ", batch.size(), shard, e);
+                long retryAt = System.currentTimeMillis() + tickMs * wheelSize;
+                synchronized (this) {
+                    batch.forEach(id -> schedule(shard, id, retryAt));
+                }
+            }
+        }
+    }
+
+    private void schedule(String shard, Integer id, long deadlineMs) {
+        wheel.schedule(id, deadlineMs);
+        shardOf.put(id, shard);
+    }
+}
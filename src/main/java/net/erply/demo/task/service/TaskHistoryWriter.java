@@ -0,0 +1,163 @@
+package net.erply.demo.task.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import net.erply.demo.base.concurrent.MpscRingBuffer;
+import net.erply.demo.base.shard.ShardRouter;
+import net.erply.demo.task.dao.TaskHistoryDao;
+import net.erply.demo.task.entity.TaskHistoryEvent;
+import net.erply.demo.task.entity.TaskOperation;
+import net.erply.demo.task.entity.TaskStatus;
+
+/**
+ * Asynchronous status-history log. Request threads only put an event into a lock-free ring buffer;
+ * a single writer thread drains it into multi-row inserts. When the buffer is full events are
+ * dropped and counted, or with {@code task.history.block-when-full} the caller waits for space.
+ * Each batch is split by the shard of the tenants it holds.
+ */
+@Slf4j
+@Component
+public class TaskHistoryWriter implements SmartLifecycle {
+
+    private final TaskHistoryDao dao;
+
+    private final ShardRouter router;
+
+    private final MpscRingBuffer<TaskHistoryEvent> buffer;
+
+    private final boolean enabled;
+
+    private final boolean blockWhenFull;
+
+    private final int batchSize;
+
+    private final long flushIntervalNanos;
+
+    private final String synchronousCommit;
+
+    private final Counter written;
+
+    private final Counter dropped;
+
+    private final Counter failed;
+
+    private volatile boolean running;
+
+    private Thread thread;
+
+    public TaskHistoryWriter(TaskHistoryDao dao, ShardRouter router, MeterRegistry meterRegistry,
+                             @Value("${task.history.enabled:true}") boolean enabled,
+                             @Value("${task.history.buffer-size:65536}") int bufferSize,
+                             @Value("${task.history.block-when-full:false}") boolean blockWhenFull,
+                             @Value("${task.history.batch-size:500}") int batchSize,
+                             @Value("${task.history.flush-interval-ms:20}") long flushIntervalMs,
+                             @Value("${task.history.synchronous-commit:off}") String synchronousCommit) {
+        this.dao = dao;
+        this.router = router;
+        this.buffer = new MpscRingBuffer<>(bufferSize);
+        this.enabled = enabled;
+        this.blockWhenFull = blockWhenFull;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.synchronousCommit = synchronousCommit;
+        this.written = meterRegistry.counter("task.history.events", "result", "written");
+        this.dropped = meterRegistry.counter("task.history.events", "result", "dropped");
+        this.failed = meterRegistry.counter("task.history.events", "result", "failed");
+        meterRegistry.gauge("task.history.backlog", buffer, MpscRingBuffer::size);
+    }
+
+    public void record(String tenantId, Integer taskId, TaskOperation operation, TaskStatus status) {
+        if (!enabled || taskId == null) {
+            return;
+        }
+        TaskHistoryEvent event = new TaskHistoryEvent(tenantId, taskId, operation, status, Instant.now());
+        while (!buffer.offer(event)) {
+            if (!blockWhenFull || !running) {
+                dropped.increment();
+                return;
+            }
+            LockSupport.parkNanos(flushIntervalNanos);
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "task-history-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        Thread current;
+        synchronized (this) {
+            running = false;
+            current = thread;
+            thread = null;
+        }
+        if (current != null) {
+            LockSupport.unpark(current);
+            try {
+                current.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        List<TaskHistoryEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            if (buffer.drain(batch::add, batchSize) == 0) {
+                LockSupport.parkNanos(flushIntervalNanos);
+                continue;
+            }
+            flush(batch);
+        }
+        while (buffer.drain(batch::add, batchSize) > 0) {
+            flush(batch);
+        }
+    }
+
+    private void flush(List<TaskHistoryEvent> batch) {
+        if (router.isSharded()) {
+            Map<String, List<TaskHistoryEvent>> byShard = batch.stream()
+                    .collect(Collectors.groupingBy(event -> router.shardFor(event.getTenantId())));
+            byShard.forEach(this::write);
+        } else {
+            write(router.getHomeShard(), batch);
+        }
+        batch.clear();
+    }
+
+    private void write(String shard, List<TaskHistoryEvent> events) {
+        try {
+            router.runOn(shard, () -> dao.insertBatch(events, synchronousCommit));
+            written.increment(events.size());
+        } catch (RuntimeException e) {
+            failed.increment(events.size());
+            log.error("Error writing {} task history events to shard {} ", events.size(), shard, e);
+        }
+    }
+}
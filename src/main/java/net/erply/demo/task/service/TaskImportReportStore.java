@@ -0,0 +1,88 @@
+package net.erply.demo.task.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps rejected-rows reports of the latest imports as temporary files, oldest evicted first.
+ */
+@Slf4j
+@Component
+public class TaskImportReportStore {
+
+    private final Path directory;
+
+    private final int maxReports;
+
+    private final Map<String, Path> reports = new LinkedHashMap<>();
+
+    public TaskImportReportStore(@Value("${task.import.max-reports:20}") int maxReports) throws IOException {
+        this.directory = Files.createTempDirectory("task-import-");
+        this.maxReports = maxReports;
+    }
+
+    Report create() throws IOException {
+        String id = UUID.randomUUID().toString();
+        Path file = directory.resolve(id + ".csv");
+        return new Report(id, file, Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+    }
+
+    synchronized void publish(Report report) {
+        reports.put(report.id, report.file);
+        Iterator<Path> it = reports.values().iterator();
+        while (reports.size() > maxReports && it.hasNext()) {
+            delete(it.next());
+            it.remove();
+        }
+    }
+
+    public synchronized Optional<Path> find(String id) {
+        return Optional.ofNullable(reports.get(id));
+    }
+
+    @PreDestroy
+    synchronized void clear() {
+        reports.values().forEach(this::delete);
+        reports.clear();
+        delete(directory);
+    }
+
+    private void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete import report {}", path, e);
+        }
+    }
+
+    static class Report implements AutoCloseable {
+        final String id;
+        final Path file;
+        final BufferedWriter writer;
+
+        Report(String id, Path file, BufferedWriter writer) {
+            this.id = id;
+            this.file = file;
+            this.writer = writer;
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package net.erply.demo.task.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import net.erply.demo.task.api.TaskDto;
+
+/**
+ * Single parsed row of an import body. Either {@code task} or {@code errorCode} is set.
+ */
+@Getter
+@AllArgsConstructor
+class TaskImportRow {
+    private final long lineNo;
+    private final String raw;
+    private final TaskDto task;
+    private final String errorCode;
+
+    static TaskImportRow valid(long lineNo, String raw, TaskDto task) {
+        return new TaskImportRow(lineNo, raw, task, null);
+    }
+
+    static TaskImportRow rejected(long lineNo, String raw, String errorCode) {
+        return new TaskImportRow(lineNo, raw, null, errorCode);
+    }
+}
@@ -0,0 +1,281 @@
+package net.erply.demo.task.service;
+
+import static net.erply.demo.base.entity.ErrorCode.MALFORMED_IMPORT_ROW;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.springframework.util.StringUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.erply.demo.task.api.TaskDto;
+import net.erply.demo.task.api.TaskImportFormat;
+import net.erply.demo.task.entity.TaskStatus;
+
+/**
+ * Streaming reader of import bodies. Reads one row at a time, so the body is never held in memory; a row
+ * longer than {@link #MAX_ROW_LENGTH} characters is cut there, skipped up to the next line break and rejected.
+ */
+abstract class TaskImportRowReader implements Closeable {
+
+    static final int MAX_ROW_LENGTH = 64 * 1024;
+
+    protected final BufferedReader reader;
+
+    protected long lineNo;
+
+    /**
+     * Whether the row read last was longer than {@link #MAX_ROW_LENGTH}.
+     */
+    protected boolean oversized;
+
+    TaskImportRowReader(InputStream in) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    static TaskImportRowReader of(TaskImportFormat format, InputStream in, ObjectMapper objectMapper) {
+        if (format == TaskImportFormat.NDJSON) {
+            return new NdjsonReader(in, objectMapper);
+        }
+        return new CsvReader(in);
+    }
+
+    /**
+     * @return next row or {@code null} at the end of the body
+     */
+    abstract TaskImportRow next() throws IOException;
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Like {@link BufferedReader#readLine()}, but keeps at most {@link #MAX_ROW_LENGTH} characters of the line.
+     */
+    protected String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        boolean any = false;
+        oversized = false;
+        int c;
+        while ((c = reader.read()) != -1 && c != '\n') {
+            any = true;
+            if (line.length() < MAX_ROW_LENGTH) {
+                line.append((char) c);
+            } else {
+                oversized = true;
+            }
+        }
+        if (c == -1 && !any) {
+            return null;
+        }
+        if (line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+            line.setLength(line.length() - 1);
+        }
+        return line.toString();
+    }
+
+    protected void skipLine() throws IOException {
+        int c;
+        do {
+            c = reader.read();
+        } while (c != -1 && c != '\n');
+    }
+
+    static class NdjsonReader extends TaskImportRowReader {
+
+        private final ObjectMapper objectMapper;
+
+        NdjsonReader(InputStream in, ObjectMapper objectMapper) {
+            super(in);
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        TaskImportRow next() throws IOException {
+            String line;
+            do {
+                line = readLine();
+                if (line == null) {
+                    return null;
+                }
+                lineNo++;
+            } while (!StringUtils.hasText(line));
+            if (oversized) {
+                return TaskImportRow.rejected(lineNo, line, MALFORMED_IMPORT_ROW.name());
+            }
+            try {
+                TaskDto dto = objectMapper.readValue(line, TaskDto.class);
+                dto.setId(null);
+                return TaskImportRow.valid(lineNo, line, dto);
+            } catch (IOException e) {
+                return TaskImportRow.rejected(lineNo, line, MALFORMED_IMPORT_ROW.name());
+            }
+        }
+    }
+
+    /**
+     * RFC 4180 reader. A first row made only of known column names, one of them {@code name}, is a
+     * header mapping columns by name; otherwise columns are {@code name,description[,status]}.
+     */
+    static class CsvReader extends TaskImportRowReader {
+
+        private static final Set<String> COLUMNS = Set.of("name", "description", "status");
+
+        private int nameIdx = 0;
+        private int descriptionIdx = 1;
+        private int statusIdx = 2;
+
+        CsvReader(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        TaskImportRow next() throws IOException {
+            List<String> fields;
+            do {
+                fields = readRecord();
+                if (fields == null) {
+                    return null;
+                }
+                lineNo++;
+                if (lineNo == 1 && isHeader(fields)) {
+                    readHeader(fields);
+                    fields = List.of("");
+                }
+            } while (fields.size() == 1 && fields.get(0).isEmpty());
+
+            String raw = toCsv(fields);
+            if (oversized || fields.size() <= Math.max(nameIdx, descriptionIdx)) {
+                return TaskImportRow.rejected(lineNo, raw, MALFORMED_IMPORT_ROW.name());
+            }
+            TaskDto dto = TaskDto.builder()
+                    .name(fields.get(nameIdx))
+                    .description(fields.get(descriptionIdx))
+                    .build();
+            if (statusIdx >= 0 && statusIdx < fields.size() && StringUtils.hasText(fields.get(statusIdx))) {
+                try {
+                    dto.setStatus(TaskStatus.valueOf(fields.get(statusIdx).trim().toUpperCase(Locale.ROOT)));
+                } catch (IllegalArgumentException e) {
+                    return TaskImportRow.rejected(lineNo, raw, MALFORMED_IMPORT_ROW.name());
+                }
+            }
+            return TaskImportRow.valid(lineNo, raw, dto);
+        }
+
+        /**
+         * A row naming a task "name" is data unless every other field is a column name as well.
+         */
+        private static boolean isHeader(List<String> fields) {
+            Set<String> columns = new HashSet<>();
+            for (String field : fields) {
+                String column = field.trim().toLowerCase(Locale.ROOT);
+                if (!COLUMNS.contains(column) || !columns.add(column)) {
+                    return false;
+                }
+            }
+            return columns.contains("name");
+        }
+
+        private void readHeader(List<String> header) {
+            nameIdx = -1;
+            descriptionIdx = -1;
+            statusIdx = -1;
+            for (int i = 0; i < header.size(); i++) {
+                switch (header.get(i).trim().toLowerCase(Locale.ROOT)) {
+                    case "name":
+                        nameIdx = i;
+                        break;
+                    case "description":
+                        descriptionIdx = i;
+                        break;
+                    case "status":
+                        statusIdx = i;
+                        break;
+                    default:
+                }
+            }
+            if (descriptionIdx < 0) {
+                descriptionIdx = Integer.MAX_VALUE;
+            }
+        }
+
+        private List<String> readRecord() throws IOException {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean any = false;
+            int length = 0;
+            oversized = false;
+            int c;
+            while ((c = reader.read()) != -1) {
+                any = true;
+                if (++length > MAX_ROW_LENGTH) {
+                    oversized = true;
+                    fields.add(field.toString());
+                    if (c != '\n') {
+                        skipLine();
+                    }
+                    return fields;
+                }
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        int n = reader.read();
+                        if (n == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            if (n != -1) {
+                                reader.reset();
+                            }
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+            }
+            if (!any) {
+                return null;
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+
+    static String toCsv(List<String> fields) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            appendCsv(sb, fields.get(i));
+        }
+        return sb.toString();
+    }
+
+    static void appendCsv(StringBuilder sb, String value) {
+        if (value == null) {
+            return;
+        }
+        sb.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
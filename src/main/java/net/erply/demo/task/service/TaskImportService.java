@@ -0,0 +1,142 @@
+package net.erply.demo.task.service;
+
+import static net.erply.demo.base.entity.ErrorCode.TOO_LONG_TASK_FIELD_NAME;
+import static net.erply.demo.base.entity.ErrorCode.UNEXPECTED_ERROR;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Service;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import net.erply.demo.base.entity.Task;
+import net.erply.demo.base.exception.ImportTaskBadResponseException;
+import net.erply.demo.base.exception.TaskException;
+import net.erply.demo.task.api.TaskImportFormat;
+import net.erply.demo.task.api.TaskImportResultDto;
+import net.erply.demo.task.dao.TaskCopyDao;
+
+/**
+ * Bulk import of tasks. Rows are validated like {@code /add} and streamed straight into COPY,
+ * rejected rows go to a downloadable report. Inserted and updated tasks get their history events
+ * like added and edited ones, once the merge is committed.
+ */
+@Slf4j
+@Service
+public class TaskImportService {
+
+    static final int MAX_NAME_LENGTH = 255;
+
+    private static final String REPORT_HEADER = "line,code,row";
+
+    private final TaskCopyDao copyDao;
+
+    private final TaskImportReportStore reportStore;
+
+    private final ObjectMapper objectMapper;
+
+    private final DefaultTaskServiceImpl taskService;
+
+    private final TaskHistoryWriter history;
+
+    public TaskImportService(TaskCopyDao copyDao, TaskImportReportStore reportStore, ObjectMapper objectMapper,
+                             DefaultTaskServiceImpl taskService, TaskHistoryWriter history) {
+        this.copyDao = copyDao;
+        this.reportStore = reportStore;
+        this.objectMapper = objectMapper;
+        this.taskService = taskService;
+        this.history = history;
+    }
+
+    public TaskImportResultDto importTasks(InputStream body, TaskImportFormat format, boolean overwrite) {
+        AtomicLong received = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        TaskImportReportStore.Report report = null;
+        try (TaskImportRowReader reader = TaskImportRowReader.of(format, body, objectMapper)) {
+            report = reportStore.create();
+            TaskImportReportStore.Report rejectedRows = report;
+            rejectedRows.writer.write(REPORT_HEADER);
+            rejectedRows.writer.newLine();
+
+            TaskCopyDao.MergeResult result = copyDao.copyAndMerge(sink -> {
+                TaskImportRow row;
+                while ((row = reader.next()) != null) {
+                    received.incrementAndGet();
+                    String errorCode = row.getErrorCode();
+                    Task task = null;
+                    if (errorCode == null) {
+                        try {
+                            task = checkAndConvert(row);
+                        } catch (TaskException e) {
+                            errorCode = e.getCode();
+                        }
+                    }
+                    if (task != null) {
+                        sink.accept(row.getLineNo(), task);
+                    } else {
+                        rejected.incrementAndGet();
+                        writeRejected(rejectedRows, row, errorCode);
+                    }
+                }
+            }, overwrite);
+            taskService.invalidateAllReads();
+            result.getMerged().forEach(task -> history.record(task.getTenantId(), task.getId(), task.getOperation(),
+                    task.getStatus()));
+            report.close();
+
+            String reportId = null;
+            if (rejected.get() > 0) {
+                reportStore.publish(report);
+                reportId = report.id;
+            } else {
+                Files.deleteIfExists(report.file);
+            }
+            log.info("Imported tasks: received {}, inserted {}, updated {}, skipped {}, rejected {}",
+                    received.get(), result.getInserted(), result.getUpdated(), result.getSkipped(), rejected.get());
+            return TaskImportResultDto.builder()
+                    .received(received.get())
+                    .inserted(result.getInserted())
+                    .updated(result.getUpdated())
+                    .skipped(result.getSkipped())
+                    .rejected(rejected.get())
+                    .rejectedReportId(reportId)
+                    .build();
+        } catch (SQLException | IOException e) {
+            log.error("Error importing tasks after {} rows ", received.get(), e);
+            discard(report);
+            throw new ImportTaskBadResponseException(UNEXPECTED_ERROR.name());
+        }
+    }
+
+    private Task checkAndConvert(TaskImportRow row) {
+        Task task = DefaultTaskServiceImpl.checkAndConvertNewTask(row.getTask(), null);
+        if (task.getName().length() > MAX_NAME_LENGTH) {
+            throw new ImportTaskBadResponseException(TOO_LONG_TASK_FIELD_NAME.name());
+        }
+        return task;
+    }
+
+    private void writeRejected(TaskImportReportStore.Report report, TaskImportRow row, String errorCode)
+            throws IOException {
+        StringBuilder line = new StringBuilder();
+        line.append(row.getLineNo()).append(',').append(errorCode).append(',');
+        TaskImportRowReader.appendCsv(line, row.getRaw());
+        report.writer.write(line.toString());
+        report.writer.newLine();
+    }
+
+    private void discard(TaskImportReportStore.Report report) {
+        if (report == null) {
+            return;
+        }
+        try {
+            report.close();
+            Files.deleteIfExists(report.file);
+        } catch (IOException e) {
+            log.warn("Could not discard import report {}", report.file, e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package net.erply.demo.task.service;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import net.erply.demo.base.entity.Task;
+import net.erply.demo.task.api.TaskMapper;
+
+/**
+ * Bounded cache of each task's JSON encoding, as the MVC converters would write its {@code TaskDto}.
+ * Entries are keyed by id and carry the task state they were encoded from; an entry is only reused
+ * while the task still equals that state, so a missed invalidation costs a re-encode, never a stale
+ * response. Writes invalidate entries to free them early. When full, an arbitrary tenth is evicted.
+ */
+@Component
+public class TaskJsonCache {
+
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+
+    private final TaskMapper mapper;
+
+    private final ObjectMapper objectMapper;
+
+    private final boolean enabled;
+
+    private final int maxEntries;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    public TaskJsonCache(TaskMapper mapper, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                         @Value("${task.read.json-cache.enabled:true}") boolean enabled,
+                         @Value("${task.read.json-cache.max-entries:100000}") int maxEntries) {
+        this.mapper = mapper;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.hits = meterRegistry.counter("task.read.json-cache", "result", "hit");
+        this.misses = meterRegistry.counter("task.read.json-cache", "result", "miss");
+        meterRegistry.gauge("task.read.json-cache.size", entries, Map::size);
+    }
+
+    /**
+     * @return JSON of the task's DTO; callers must not modify it
+     */
+    public byte[] encode(Task task) {
+        if (!enabled || task.getId() == null) {
+            return write(task);
+        }
+        Entry entry = entries.get(task.getId());
+        if (entry != null && entry.source.equals(task)) {
+            hits.increment();
+            return entry.json;
+        }
+        misses.increment();
+        byte[] json = write(task);
+        if (entries.size() >= maxEntries) {
+            evict();
+        }
+        entries.put(task.getId(), new Entry(snapshot(task), json));
+        return json;
+    }
+
+    public void invalidate(Integer id) {
+        if (id != null) {
+            entries.remove(id);
+        }
+    }
+
+    public void invalidate(Collection<Integer> ids) {
+        ids.forEach(entries::remove);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    private void evict() {
+        int toEvict = Math.max(1, maxEntries / 10);
+        Iterator<Integer> ids = entries.keySet().iterator();
+        while (toEvict-- > 0 && ids.hasNext()) {
+            ids.next();
+            ids.remove();
+        }
+    }
+
+    private byte[] write(Task task) {
+        try {
+            return objectMapper.writeValueAsBytes(mapper.mapToDto(task));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode task " + task.getId(), e);
+        }
+    }
+
+    /**
+     * Detached from the entity, which the caller may go on changing.
+     */
+    private static Task snapshot(Task task) {
+        return Task.builder()
+                .id(task.getId())
+                .tenantId(task.getTenantId())
+                .name(task.getName())
+                .description(task.getDescription())
+                .status(task.getStatus())
+                .dueAt(task.getDueAt())
+                .build();
+    }
+
+    @AllArgsConstructor
+    private static class Entry {
+        private final Task source;
+        private final byte[] json;
+    }
+}
@@ -0,0 +1,144 @@
+package net.erply.demo.task.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import net.erply.demo.task.api.TaskSuggestionDto;
+import net.erply.demo.task.dao.TaskName;
+
+/**
+ * Optional in-memory index of task names per tenant, sorted by lower-cased name, answering suggestions
+ * without a query. A tenant is loaded on its first suggestion and then kept current by the service's
+ * write paths. Whatever this node does not write itself (imports, changes announced by other nodes,
+ * resyncs) drops every tenant, to be reloaded lazily; the index pays off where this node sees all
+ * writes, like a single node without change notifications or the embedded profile.
+ */
+@Component
+public class TaskNameIndex {
+
+    private final Map<String, Names> tenants = new ConcurrentHashMap<>();
+
+    private final boolean enabled;
+
+    private final int maxTenants;
+
+    public TaskNameIndex(@Value("${task.suggest.memory-index.enabled:false}") boolean enabled,
+                         @Value("${task.suggest.memory-index.max-tenants:1000}") int maxTenants) {
+        this.enabled = enabled;
+        this.maxTenants = maxTenants;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param loader all names of the tenant, called when it is not loaded yet
+     */
+    public List<TaskSuggestionDto> suggest(String tenant, String prefix, int limit,
+                                           Supplier<List<TaskName>> loader) {
+        Names names = tenants.get(tenant);
+        if (names == null) {
+            if (tenants.size() >= maxTenants) {
+                evictOne();
+            }
+            names = tenants.computeIfAbsent(tenant, t -> new Names());
+        }
+        names.load(loader);
+        return names.startingWith(prefix.toLowerCase(Locale.ROOT), limit);
+    }
+
+    /**
+     * Adds a task or renames it.
+     */
+    public void put(String tenant, Integer id, String name) {
+        Names names = tenants.get(tenant);
+        if (names != null && id != null) {
+            names.put(id, name);
+        }
+    }
+
+    public void remove(String tenant, Integer id) {
+        Names names = tenants.get(tenant);
+        if (names != null && id != null) {
+            names.remove(id);
+        }
+    }
+
+    public void invalidateAll() {
+        tenants.clear();
+    }
+
+    private void evictOne() {
+        Iterator<String> it = tenants.keySet().iterator();
+        if (it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * Writes are serialized per tenant and wait for a running load, so a write committed while the
+     * tenant was being read is applied after it; applying one twice is harmless.
+     */
+    private static class Names {
+
+        /** Lower-cased name, then the name itself, which is unique within the tenant. */
+        private final NavigableMap<String, TaskSuggestionDto> byKey = new ConcurrentSkipListMap<>();
+
+        private final Map<Integer, String> keyOf = new HashMap<>();
+
+        private volatile boolean loaded;
+
+        void load(Supplier<List<TaskName>> loader) {
+            if (loaded) {
+                return;
+            }
+            synchronized (this) {
+                if (!loaded) {
+                    for (TaskName name : loader.get()) {
+                        put(name.getId(), name.getName());
+                    }
+                    loaded = true;
+                }
+            }
+        }
+
+        synchronized void put(Integer id, String name) {
+            String key = name.toLowerCase(Locale.ROOT) + '\0' + name;
+            String previous = keyOf.put(id, key);
+            if (previous != null && !previous.equals(key)) {
+                byKey.remove(previous);
+            }
+            byKey.put(key, new TaskSuggestionDto(id, name));
+        }
+
+        synchronized void remove(Integer id) {
+            String key = keyOf.remove(id);
+            if (key != null) {
+                byKey.remove(key);
+            }
+        }
+
+        List<TaskSuggestionDto> startingWith(String lowerPrefix, int limit) {
+            List<TaskSuggestionDto> suggestions = new ArrayList<>(Math.min(limit, 16));
+            for (Map.Entry<String, TaskSuggestionDto> entry : byKey.tailMap(lowerPrefix, true).entrySet()) {
+                if (suggestions.size() == limit || !entry.getKey().startsWith(lowerPrefix)) {
+                    break;
+                }
+                suggestions.add(entry.getValue());
+            }
+            return suggestions;
+        }
+    }
+}
@@ -3,6 +3,8 @@ package net.erply.demo.task.service;
 import java.util.List;
 
 import net.erply.demo.task.api.TaskDto;
+import net.erply.demo.task.api.TaskHistoryDto;
+import net.erply.demo.task.api.TaskSuggestionDto;
 
 public interface TaskService {
 
@@ -15,4 +17,20 @@ public interface TaskService {
     void completeTask(Integer id);
 
     List<TaskDto> list();
+
+    /**
+     * {@link #list()} as the JSON of each task, to be written as one array.
+     */
+    List<byte[]> listJson();
+
+    TaskDto getTask(Integer id);
+
+    byte[] getTaskJson(Integer id);
+
+    List<TaskHistoryDto> getHistory(Integer id);
+
+    /**
+     * Ids and names of the tasks whose name starts with {@code prefix}, ignoring case.
+     */
+    List<TaskSuggestionDto> suggest(String prefix, int limit);
 }
@@ -0,0 +1,199 @@
+package net.erply.demo.task.service;
+
+import static net.erply.demo.base.entity.ErrorCode.TENANT_MOVE_FAILED;
+import static net.erply.demo.base.entity.ErrorCode.TENANT_MOVING;
+import static net.erply.demo.base.entity.ErrorCode.UNKNOWN_SHARD;
+import static net.erply.demo.base.entity.ErrorCode.WRONG_TENANT_ID;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import lombok.extern.slf4j.Slf4j;
+import net.erply.demo.base.entity.Task;
+import net.erply.demo.base.exception.TenantMoveBadResponseException;
+import net.erply.demo.base.shard.ShardRouter;
+import net.erply.demo.base.shard.TenantContext;
+import net.erply.demo.base.shard.TenantDirectory;
+import net.erply.demo.task.api.TenantMoveResultDto;
+import net.erply.demo.task.dao.TaskHistoryDao;
+import net.erply.demo.task.dao.TaskTenantDao;
+import net.erply.demo.task.entity.TaskHistoryEvent;
+
+/**
+ * Online move of a tenant to another shard. Writes of the tenant are refused while it is copied,
+ * reads keep being served from the source until the directory points to the target; the source
+ * rows are only deleted once every node routes to the target. A write admitted before a node saw the move
+ * may still commit on the source after it was copied, so the source is compared with the copy before the
+ * placement flips, failing the move, and again before its rows are deleted, keeping them. Ids are unique
+ * over all shards, so
+ * tasks keep theirs. Stored idempotency keys move along, so retries of writes answered by the source
+ * are still answered by the target.
+ */
+@Slf4j
+@Service
+@Profile("!embedded")
+public class TenantMoveService {
+
+    private final ShardRouter router;
+
+    private final TenantDirectory directory;
+
+    private final TaskTenantDao tenantDao;
+
+    private final TaskHistoryDao historyDao;
+
+    private final int pageSize;
+
+    public TenantMoveService(ShardRouter router, TenantDirectory directory, TaskTenantDao tenantDao,
+                             TaskHistoryDao historyDao,
+                             @Value("${task.sharding.move-page-size:1000}") int pageSize) {
+        this.router = router;
+        this.directory = directory;
+        this.tenantDao = tenantDao;
+        this.historyDao = historyDao;
+        this.pageSize = pageSize;
+    }
+
+    public TenantMoveResultDto move(String tenant, String target) {
+        if (!TenantContext.isValid(tenant)) {
+            throw new TenantMoveBadResponseException(WRONG_TENANT_ID.name());
+        }
+        if (!router.hasShard(target)) {
+            throw new TenantMoveBadResponseException(UNKNOWN_SHARD.name());
+        }
+        String source = router.shardFor(tenant);
+        if (source.equals(target)) {
+            return result(tenant, source, target, 0, 0);
+        }
+        if (!directory.beginMove(tenant, source)) {
+            throw new TenantMoveBadResponseException(TENANT_MOVING.name());
+        }
+
+        long tasks;
+        long events;
+        long keys;
+        String checksum;
+        try {
+            awaitPropagation();
+            router.runOn(target, () -> tenantDao.deleteTenant(tenant));
+            tasks = copyTasks(tenant, source, target);
+            events = copyHistory(tenant, source, target);
+            keys = copyIdempotencyKeys(tenant, source, target);
+            checksum = router.callOn(target, () -> tenantDao.checksum(tenant));
+            String current = router.callOn(source, () -> tenantDao.checksum(tenant));
+            if (!checksum.equals(current)) {
+                throw new IllegalStateException("Tenant changed while copied: " + current + " on source, "
+                        + checksum + " copied");
+            }
+            directory.place(tenant, target);
+        } catch (RuntimeException | InterruptedException e) {
+            log.error("Error moving tenant {} from shard {} to {}, rolling back ", tenant, source, target, e);
+            rollback(tenant, source, target);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new TenantMoveBadResponseException(TENANT_MOVE_FAILED.name());
+        }
+
+        try {
+            awaitPropagation();
+            String current = router.callOn(source, () -> tenantDao.checksum(tenant));
+            if (checksum.equals(current)) {
+                router.runOn(source, () -> tenantDao.deleteTenant(tenant));
+            } else {
+                log.error("Tenant {} changed on shard {} after it was copied to {}, its old rows are kept", tenant,
+                        source, target);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Tenant {} moved to shard {}, its old rows stay on shard {}", tenant, target, source);
+        }
+        log.info("Moved tenant {} from shard {} to {}: {} tasks, {} history events, {} idempotency keys", tenant,
+                source, target, tasks, events, keys);
+        return result(tenant, source, target, tasks, events);
+    }
+
+    private long copyTasks(String tenant, String source, String target) {
+        long copied = 0;
+        Integer afterId = 0;
+        List<Task> page;
+        do {
+            Integer from = afterId;
+            page = router.callOn(source, () -> tenantDao.findTasks(tenant, from, pageSize));
+            if (!page.isEmpty()) {
+                List<Task> tasks = page;
+                router.runOn(target, () -> tenantDao.insertTasks(tasks));
+                afterId = page.get(page.size() - 1).getId();
+                copied += page.size();
+            }
+        } while (page.size() == pageSize);
+        return copied;
+    }
+
+    /**
+     * Events get new ids on the target, but keep their order: pages are read in id order and each is
+     * inserted with one multi-row statement, whose rows draw ids from the sequence in list order. The
+     * previous status derived from that order is therefore the same on both shards.
+     */
+    private long copyHistory(String tenant, String source, String target) {
+        long copied = 0;
+        long afterId = 0;
+        List<TaskTenantDao.HistoryRow> page;
+        do {
+            long from = afterId;
+            page = router.callOn(source, () -> tenantDao.findHistory(tenant, from, pageSize));
+            if (!page.isEmpty()) {
+                List<TaskHistoryEvent> events = page.stream()
+                        .map(TaskTenantDao.HistoryRow::getEvent)
+                        .collect(Collectors.toList());
+                router.runOn(target, () -> historyDao.insertBatch(events, "on"));
+                afterId = page.get(page.size() - 1).getId();
+                copied += page.size();
+            }
+        } while (page.size() == pageSize);
+        return copied;
+    }
+
+    private long copyIdempotencyKeys(String tenant, String source, String target) {
+        long copied = 0;
+        String afterKey = "";
+        List<TaskTenantDao.IdempotencyKeyRow> page;
+        do {
+            String from = afterKey;
+            page = router.callOn(source, () -> tenantDao.findIdempotencyKeys(tenant, from, pageSize));
+            if (!page.isEmpty()) {
+                List<TaskTenantDao.IdempotencyKeyRow> keys = page;
+                router.runOn(target, () -> tenantDao.insertIdempotencyKeys(keys));
+                afterKey = page.get(page.size() - 1).getKey();
+                copied += page.size();
+            }
+        } while (page.size() == pageSize);
+        return copied;
+    }
+
+    private void rollback(String tenant, String source, String target) {
+        try {
+            router.runOn(target, () -> tenantDao.deleteTenant(tenant));
+        } catch (RuntimeException e) {
+            log.error("Error removing partial copy of tenant {} from shard {} ", tenant, target, e);
+        }
+        directory.place(tenant, source);
+    }
+
+    private void awaitPropagation() throws InterruptedException {
+        Thread.sleep(directory.getPropagationDelay().toMillis());
+    }
+
+    private static TenantMoveResultDto result(String tenant, String source, String target, long tasks, long events) {
+        return TenantMoveResultDto.builder()
+                .tenantId(tenant)
+                .fromShard(source)
+                .toShard(target)
+                .tasks(tasks)
+                .historyEvents(events)
+                .build();
+    }
+}
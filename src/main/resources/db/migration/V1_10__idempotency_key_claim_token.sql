@@ -0,0 +1,3 @@
+-- Each claim of a key gets a token of its own. Only the holder of the current claim may renew its lease,
+-- complete it or release it, so a node whose lease ran out cannot store a response over the next claim.
+ALTER TABLE public.idempotency_key ADD COLUMN claim_token VARCHAR(36);
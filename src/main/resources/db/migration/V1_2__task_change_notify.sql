@@ -0,0 +1,43 @@
+-- Publishes changed task ids on the task_changes channel, one notification per statement.
+-- Large statements publish '*' and listeners resync everything instead.
+CREATE OR REPLACE FUNCTION public.task_notify_change() RETURNS trigger AS $$
+DECLARE
+    ids TEXT;
+    changed INTEGER;
+BEGIN
+    IF TG_OP = 'TRUNCATE' THEN
+        PERFORM pg_notify('task_changes', '*');
+        RETURN NULL;
+    END IF;
+    IF TG_OP = 'DELETE' THEN
+        SELECT count(*), string_agg(id::text, ',') INTO changed, ids FROM (SELECT id FROM old_rows LIMIT 101) t;
+    ELSE
+        SELECT count(*), string_agg(id::text, ',') INTO changed, ids FROM (SELECT id FROM new_rows LIMIT 101) t;
+    END IF;
+    IF changed > 100 THEN
+        PERFORM pg_notify('task_changes', '*');
+    ELSIF changed > 0 THEN
+        PERFORM pg_notify('task_changes', ids);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS task_notify_insert ON public.task;
+CREATE TRIGGER task_notify_insert AFTER INSERT ON public.task
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE PROCEDURE public.task_notify_change();
+
+DROP TRIGGER IF EXISTS task_notify_update ON public.task;
+CREATE TRIGGER task_notify_update AFTER UPDATE ON public.task
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE PROCEDURE public.task_notify_change();
+
+DROP TRIGGER IF EXISTS task_notify_delete ON public.task;
+CREATE TRIGGER task_notify_delete AFTER DELETE ON public.task
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE PROCEDURE public.task_notify_change();
+
+DROP TRIGGER IF EXISTS task_notify_truncate ON public.task;
+CREATE TRIGGER task_notify_truncate AFTER TRUNCATE ON public.task
+    FOR EACH STATEMENT EXECUTE PROCEDURE public.task_notify_change();
@@ -0,0 +1,4 @@
+ALTER TABLE public.task ADD COLUMN IF NOT EXISTS due_at TIMESTAMP WITH TIME ZONE;
+
+CREATE INDEX IF NOT EXISTS task_locked_due_at_idx ON public.task (due_at, id)
+    WHERE status = 'LOCKED' AND due_at IS NOT NULL;
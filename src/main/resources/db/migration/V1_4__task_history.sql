@@ -0,0 +1,14 @@
+CREATE TABLE IF NOT EXISTS public.task_history
+(
+    id BIGSERIAL PRIMARY KEY,
+    task_id INTEGER NOT NULL,
+    operation VARCHAR(32) NOT NULL,
+    status VARCHAR(255),
+    changed_at TIMESTAMP WITH TIME ZONE NOT NULL
+)
+    TABLESPACE pg_default;
+
+CREATE INDEX IF NOT EXISTS task_history_task_id_idx ON public.task_history (task_id, id);
+
+ALTER TABLE public.task_history
+    OWNER to taskapp_admin;
@@ -0,0 +1,24 @@
+ALTER TABLE public.task ADD COLUMN IF NOT EXISTS tenant_id VARCHAR(64) NOT NULL DEFAULT 'default';
+
+ALTER TABLE public.task DROP CONSTRAINT IF EXISTS uk_lerptdo9d67pejjpbfau899tm;
+ALTER TABLE public.task DROP CONSTRAINT IF EXISTS task_tenant_name_key;
+ALTER TABLE public.task ADD CONSTRAINT task_tenant_name_key UNIQUE (tenant_id, name);
+
+CREATE INDEX IF NOT EXISTS task_tenant_id_idx ON public.task (tenant_id, id);
+
+ALTER TABLE public.task_history ADD COLUMN IF NOT EXISTS tenant_id VARCHAR(64) NOT NULL DEFAULT 'default';
+
+CREATE INDEX IF NOT EXISTS task_history_tenant_id_idx ON public.task_history (tenant_id, id);
+
+-- Directory of tenants pinned to a shard, only used on the first (home) shard.
+CREATE TABLE IF NOT EXISTS public.tenant_placement
+(
+    tenant_id VARCHAR(64) PRIMARY KEY,
+    shard VARCHAR(64) NOT NULL,
+    moving BOOLEAN NOT NULL DEFAULT FALSE,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+)
+    TABLESPACE pg_default;
+
+ALTER TABLE public.tenant_placement
+    OWNER to taskapp_admin;
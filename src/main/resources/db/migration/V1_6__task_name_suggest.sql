@@ -0,0 +1,4 @@
+-- Name suggestions: lower-cased names in byte order per tenant, so "lower(name) COLLATE "C" LIKE 'abc%'"
+-- is a range scan that also yields the ORDER BY and stops at the LIMIT. A text_pattern_ops index would
+-- serve the LIKE but not the ordering, and a broad prefix would sort every match.
+CREATE INDEX IF NOT EXISTS task_tenant_name_prefix_idx ON public.task (tenant_id, (lower(name)) COLLATE "C");
@@ -0,0 +1,19 @@
+-- Responses of writes sent with an Idempotency-Key, shared by all nodes. A row is claimed before the
+-- write runs, holding a short lease in expires_at, and completed with the response and its full TTL.
+CREATE TABLE IF NOT EXISTS public.idempotency_key
+(
+    tenant_id VARCHAR(64) NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    fingerprint VARCHAR(64) NOT NULL,
+    completed BOOLEAN NOT NULL DEFAULT FALSE,
+    error_code VARCHAR(64),
+    response TEXT,
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (tenant_id, idempotency_key)
+)
+    TABLESPACE pg_default;
+
+CREATE INDEX IF NOT EXISTS idempotency_key_expires_at_idx ON public.idempotency_key (expires_at);
+
+ALTER TABLE public.idempotency_key
+    OWNER to taskapp_admin;
@@ -0,0 +1,112 @@
+-- Splits public.task into LIST partitions by status, so the few AVAILABLE and LOCKED tasks live in heaps
+-- and indexes of their own instead of among all COMPLETED ones; queries filtering on status scan only
+-- their partition, and vacuum of the hot partitions stays cheap. Changing the status of a task moves
+-- its row to the other partition. Needs PostgreSQL 12.
+--
+-- A unique index of a partitioned table must contain the partition key, so names can no longer be
+-- unique per tenant in public.task itself. They are claimed in public.task_name instead, kept by
+-- statement triggers; a duplicate fails the statement with the same unique violation as before.
+
+ALTER TABLE public.task RENAME TO task_unpartitioned;
+ALTER SEQUENCE public.task_id_seq OWNED BY NONE;
+
+CREATE TABLE public.task
+(
+    id INTEGER NOT NULL DEFAULT nextval('public.task_id_seq'),
+    tenant_id VARCHAR(64) NOT NULL DEFAULT 'default',
+    name VARCHAR(255) COLLATE pg_catalog."default" NOT NULL,
+    description TEXT COLLATE pg_catalog."default" NOT NULL,
+    status VARCHAR(255) COLLATE pg_catalog."default" NOT NULL DEFAULT 'AVAILABLE',
+    due_at TIMESTAMP WITH TIME ZONE
+)
+    PARTITION BY LIST (status);
+
+ALTER SEQUENCE public.task_id_seq OWNED BY public.task.id;
+
+CREATE TABLE public.task_available PARTITION OF public.task FOR VALUES IN ('AVAILABLE');
+CREATE TABLE public.task_locked PARTITION OF public.task FOR VALUES IN ('LOCKED');
+CREATE TABLE public.task_completed PARTITION OF public.task FOR VALUES IN ('COMPLETED');
+CREATE TABLE public.task_other PARTITION OF public.task DEFAULT;
+
+INSERT INTO public.task (id, tenant_id, name, description, status, due_at)
+SELECT id, tenant_id, name, description, COALESCE(status, 'AVAILABLE'), due_at FROM public.task_unpartitioned;
+
+DROP TABLE public.task_unpartitioned;
+
+-- Indexes are built after the copy; those on the parent are created on every partition.
+ALTER TABLE public.task ADD CONSTRAINT task_pkey PRIMARY KEY (id, status);
+CREATE INDEX task_tenant_id_idx ON public.task (tenant_id, id);
+CREATE INDEX task_tenant_name_prefix_idx ON public.task (tenant_id, (lower(name)) COLLATE "C");
+CREATE INDEX task_locked_due_at_idx ON public.task_locked (due_at, id) WHERE due_at IS NOT NULL;
+
+ALTER TABLE public.task
+    OWNER to taskapp_admin;
+
+CREATE TABLE public.task_name
+(
+    tenant_id VARCHAR(64) NOT NULL,
+    name VARCHAR(255) COLLATE pg_catalog."default" NOT NULL,
+    task_id INTEGER NOT NULL,
+    CONSTRAINT task_tenant_name_key PRIMARY KEY (tenant_id, name)
+)
+    TABLESPACE pg_default;
+
+INSERT INTO public.task_name (tenant_id, name, task_id) SELECT tenant_id, name, id FROM public.task;
+
+ALTER TABLE public.task_name
+    OWNER to taskapp_admin;
+
+-- Set-based, once per statement. An UPDATE moving rows between partitions still reports them as updated,
+-- and only renamed tasks touch task_name; old names are released before new ones are claimed, so tasks
+-- may swap names within one statement.
+CREATE OR REPLACE FUNCTION public.task_name_sync() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'TRUNCATE' THEN
+        TRUNCATE public.task_name;
+    ELSIF TG_OP = 'INSERT' THEN
+        INSERT INTO public.task_name (tenant_id, name, task_id) SELECT tenant_id, name, id FROM new_rows;
+    ELSIF TG_OP = 'DELETE' THEN
+        DELETE FROM public.task_name n USING old_rows o
+            WHERE n.tenant_id = o.tenant_id AND n.name = o.name AND n.task_id = o.id;
+    ELSE
+        DELETE FROM public.task_name n USING old_rows o JOIN new_rows r ON r.id = o.id
+            WHERE (r.tenant_id, r.name) <> (o.tenant_id, o.name)
+              AND n.tenant_id = o.tenant_id AND n.name = o.name AND n.task_id = o.id;
+        INSERT INTO public.task_name (tenant_id, name, task_id)
+            SELECT r.tenant_id, r.name, r.id FROM new_rows r JOIN old_rows o ON o.id = r.id
+            WHERE (r.tenant_id, r.name) <> (o.tenant_id, o.name);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER task_name_insert AFTER INSERT ON public.task
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE PROCEDURE public.task_name_sync();
+
+CREATE TRIGGER task_name_update AFTER UPDATE ON public.task
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE PROCEDURE public.task_name_sync();
+
+CREATE TRIGGER task_name_delete AFTER DELETE ON public.task
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE PROCEDURE public.task_name_sync();
+
+CREATE TRIGGER task_name_truncate AFTER TRUNCATE ON public.task
+    FOR EACH STATEMENT EXECUTE PROCEDURE public.task_name_sync();
+
+-- The change notifications of V1_2 went with the old table.
+CREATE TRIGGER task_notify_insert AFTER INSERT ON public.task
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE PROCEDURE public.task_notify_change();
+
+CREATE TRIGGER task_notify_update AFTER UPDATE ON public.task
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE PROCEDURE public.task_notify_change();
+
+CREATE TRIGGER task_notify_delete AFTER DELETE ON public.task
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE PROCEDURE public.task_notify_change();
+
+CREATE TRIGGER task_notify_truncate AFTER TRUNCATE ON public.task
+    FOR EACH STATEMENT EXECUTE PROCEDURE public.task_notify_change();
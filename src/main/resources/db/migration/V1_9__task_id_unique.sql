@@ -0,0 +1,4 @@
+-- The primary key of the partitioned task table is (id, status), so it no longer stops two tasks from sharing
+-- an id; ids given explicitly, as when a tenant is moved in from another shard, could collide. Every task
+-- claims exactly one row of task_name, so a unique task_id there keeps ids unique over all partitions.
+ALTER TABLE public.task_name ADD CONSTRAINT task_name_task_id_key UNIQUE (task_id);
@@ -0,0 +1,29 @@
+package net.erply.demo.alloc;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Budget checks on measured allocations, e.g. {@code assertThatAllocation(meter).atMost(64 * 1024)}.
+ */
+public final class AllocationAssertions {
+
+    private final AllocationMeter meter;
+
+    private AllocationAssertions(AllocationMeter meter) {
+        this.meter = meter;
+    }
+
+    public static AllocationAssertions assertThatAllocation(AllocationMeter meter) {
+        return new AllocationAssertions(meter);
+    }
+
+    /**
+     * Fails when the median call allocates more than {@code budget} bytes.
+     */
+    public AllocationAssertions atMost(long budget) {
+        if (meter.median() > budget) {
+            fail("Allocation budget of " + budget + " B/call exceeded: " + meter);
+        }
+        return this;
+    }
+}
@@ -0,0 +1,96 @@
+package net.erply.demo.alloc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Assumptions;
+
+/**
+ * Measured allocation figures in bytes, read from the classpath resource {@code allocation/<name>.properties},
+ * that budgets are derived from: a budget is its baseline plus {@link #HEADROOM}. With
+ * {@code -Dallocation.rebaseline=true} nothing is asserted against the baseline; the figures of the run are
+ * written to {@code build/reports/allocation/<name>.properties} instead, to be reviewed and copied over the
+ * checked-in file. Until a measured file is checked in there is nothing to hold the figures against, and the
+ * checks are skipped rather than passed.
+ */
+public class AllocationBaseline {
+
+    /**
+     * Covers run to run noise of the medians (JIT, TLAB sizing, GC timing) without hiding a real regression,
+     * which usually adds a whole object graph per call.
+     */
+    public static final double HEADROOM = 1.25;
+
+    private static final Path REPORT_DIR = Paths.get("build", "reports", "allocation");
+
+    private final String name;
+
+    private final Properties baseline = new Properties();
+
+    private final Map<String, Long> measured = new TreeMap<>();
+
+    private final boolean rebaseline = Boolean.getBoolean("allocation.rebaseline");
+
+    private final boolean measuredBaseline;
+
+    public AllocationBaseline(String name) {
+        this.name = name;
+        try (InputStream in = AllocationBaseline.class.getResourceAsStream("/allocation/" + name + ".properties")) {
+            measuredBaseline = in != null;
+            if (measuredBaseline) {
+                baseline.load(in);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Budget for {@code key}, or no limit while rebaselining. Aborts the calling test when no baseline has been
+     * checked in yet.
+     *
+     * @throws IllegalStateException when the baseline has no figure for {@code key}
+     */
+    public long budget(String key) {
+        if (rebaseline) {
+            return Long.MAX_VALUE;
+        }
+        Assumptions.assumeTrue(measuredBaseline, () -> "No measured allocation baseline " + name
+                + ".properties, run with -Pallocation.rebaseline=true and check in the written file");
+        String value = baseline.getProperty(key);
+        if (value == null) {
+            throw new IllegalStateException("No allocation baseline for '" + key + "' in " + name
+                    + ", run with -Pallocation.rebaseline=true");
+        }
+        return (long) Math.ceil(Long.parseLong(value.trim()) * HEADROOM);
+    }
+
+    /**
+     * Keeps the largest figure seen for {@code key}, the one a new baseline would need to hold.
+     */
+    public synchronized void record(String key, long bytes) {
+        measured.merge(key, bytes, Math::max);
+    }
+
+    public synchronized void write() {
+        if (!rebaseline) {
+            return;
+        }
+        StringBuilder properties = new StringBuilder();
+        measured.forEach((key, value) -> properties.append(key).append('=').append(value)
+                .append(System.lineSeparator()));
+        try {
+            Files.createDirectories(REPORT_DIR);
+            Files.writeString(REPORT_DIR.resolve(name + ".properties"), properties);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package net.erply.demo.alloc;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Arrays;
+
+/**
+ * Measures the bytes allocated on the calling thread between {@link #start()} and {@link #stop()},
+ * through the HotSpot per-thread allocation counter. Work handed to background threads (history writer,
+ * deadline scheduler) is not counted. The counter's own cost is calibrated once and subtracted.
+ */
+public class AllocationMeter {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    private static final long OVERHEAD = calibrate();
+
+    private final long[] samples;
+
+    private int count;
+
+    private long startedAt = -1;
+
+    /**
+     * @param capacity number of measurements to keep
+     */
+    public AllocationMeter(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public void start() {
+        startedAt = allocated();
+    }
+
+    public void stop() {
+        long now = allocated();
+        if (startedAt < 0) {
+            throw new IllegalStateException("Meter was not started");
+        }
+        if (count == samples.length) {
+            throw new IllegalStateException("Meter is full");
+        }
+        samples[count++] = Math.max(0, now - startedAt - OVERHEAD);
+        startedAt = -1;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Bytes of the median measurement, insensitive to the odd call that refills a cache or a pool.
+     */
+    public long median() {
+        return sorted()[count / 2];
+    }
+
+    public long max() {
+        return sorted()[count - 1];
+    }
+
+    @Override
+    public String toString() {
+        return count == 0 ? "no samples" : median() + " B/call median, " + max() + " B max, " + count + " calls";
+    }
+
+    /**
+     * Heap still in use after full collections; run between phases to see what a workload retains.
+     */
+    public static long retainedHeap() {
+        long retained = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            retained = Math.min(retained, MEMORY.getHeapMemoryUsage().getUsed());
+        }
+        return retained;
+    }
+
+    private long[] sorted() {
+        if (count == 0) {
+            throw new IllegalStateException("Nothing measured");
+        }
+        long[] copy = Arrays.copyOf(samples, count);
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    private static long allocated() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long calibrate() {
+        if (!THREADS.isThreadAllocatedMemorySupported()) {
+            throw new IllegalStateException("This JVM does not count allocated bytes per thread");
+        }
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 100; i++) {
+            long start = allocated();
+            overhead = Math.min(overhead, allocated() - start);
+        }
+        return overhead;
+    }
+}
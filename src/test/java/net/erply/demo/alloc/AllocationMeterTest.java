@@ -0,0 +1,48 @@
+package net.erply.demo.alloc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class AllocationMeterTest {
+
+    private static final int MB = 1024 * 1024;
+
+    private static volatile Object sink;
+
+    @Test
+    void shouldMeasureAllocatedBytes() {
+        AllocationMeter victim = new AllocationMeter(10);
+        for (int i = 0; i < 10; i++) {
+            victim.start();
+            sink = new byte[MB];
+            victim.stop();
+        }
+        assertEquals(10, victim.count());
+        assertTrue(victim.median() >= MB, victim::toString);
+        assertTrue(victim.median() < MB + 1024, victim::toString);
+    }
+
+    @Test
+    void shouldMeasureNothingForEmptyCall() {
+        AllocationMeter victim = new AllocationMeter(10);
+        for (int i = 0; i < 10; i++) {
+            victim.start();
+            victim.stop();
+        }
+        assertEquals(0, victim.median(), victim::toString);
+    }
+
+    @Test
+    void shouldFailOverBudget() {
+        AllocationMeter victim = new AllocationMeter(1);
+        victim.start();
+        sink = new byte[MB];
+        victim.stop();
+
+        AllocationAssertions.assertThatAllocation(victim).atMost(2 * MB);
+        assertThrows(AssertionError.class, () -> AllocationAssertions.assertThatAllocation(victim).atMost(MB / 2));
+    }
+}
@@ -0,0 +1,45 @@
+package net.erply.demo.alloc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects allocation figures per operation and writes them to {@code build/reports/allocation/<name>.txt}.
+ */
+public class AllocationReport {
+
+    private static final Path REPORT_DIR = Paths.get("build", "reports", "allocation");
+
+    private final String name;
+
+    private final Map<String, String> lines = new TreeMap<>();
+
+    public AllocationReport(String name) {
+        this.name = name;
+    }
+
+    public synchronized AllocationMeter add(String operation, int tasks, AllocationMeter meter) {
+        lines.put(String.format("%s @ %6d tasks", operation, tasks), meter.toString());
+        return meter;
+    }
+
+    public synchronized void note(String key, String value) {
+        lines.put(key, value);
+    }
+
+    public synchronized void write() {
+        StringBuilder report = new StringBuilder();
+        lines.forEach((key, value) -> report.append(key).append(": ").append(value).append(System.lineSeparator()));
+        try {
+            Files.createDirectories(REPORT_DIR);
+            Files.writeString(REPORT_DIR.resolve(name + ".txt"), report);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package net.erply.demo.base.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class AdaptiveLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void shouldRejectAboveLimit() {
+        AdaptiveLimiter victim = new AdaptiveLimiter(2, 1, 10, 100, 0.5);
+        assertTrue(victim.tryAcquire(1.0));
+        assertTrue(victim.tryAcquire(1.0));
+        assertFalse(victim.tryAcquire(1.0));
+        assertEquals(2, victim.getInFlight());
+    }
+
+    @Test
+    void shouldReserveCapacityForHigherPriority() {
+        AdaptiveLimiter victim = new AdaptiveLimiter(10, 1, 10, 100, 0.5);
+        assertTrue(victim.tryAcquire(RequestPriority.BULK.getShare()));
+        assertTrue(victim.tryAcquire(RequestPriority.BULK.getShare()));
+        assertFalse(victim.tryAcquire(RequestPriority.BULK.getShare()));
+        assertTrue(victim.tryAcquire(RequestPriority.READ.getShare()));
+    }
+
+    @Test
+    void shouldBackOffOnSlowAndGrowOnFastRequests() {
+        AdaptiveLimiter victim = new AdaptiveLimiter(8, 2, 10, 100, 0.5);
+        victim.tryAcquire(1.0);
+        victim.release(SLOW);
+        assertEquals(4, victim.getLimit());
+        victim.tryAcquire(1.0);
+        victim.tryAcquire(1.0);
+        victim.release(FAST);
+        assertEquals(5, victim.getLimit());
+    }
+
+    @Test
+    void shouldBackOffOncePerLimitOfSlowSamples() {
+        AdaptiveLimiter victim = new AdaptiveLimiter(8, 1, 10, 100, 0.5);
+        for (int i = 0; i < 8; i++) {
+            victim.tryAcquire(1.0);
+        }
+        for (int i = 0; i < 8; i++) {
+            victim.release(SLOW);
+        }
+        assertEquals(4, victim.getLimit());
+        victim.tryAcquire(1.0);
+        victim.release(SLOW);
+        assertEquals(2, victim.getLimit());
+    }
+}
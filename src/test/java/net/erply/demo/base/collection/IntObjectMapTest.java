@@ -0,0 +1,47 @@
+package net.erply.demo.base.collection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class IntObjectMapTest {
+
+    @Test
+    void shouldPutReplaceAndRemove() {
+        IntObjectMap<String> victim = new IntObjectMap<>();
+        assertNull(victim.put(1, "a"));
+        assertEquals("a", victim.put(1, "b"));
+        assertEquals("b", victim.get(1));
+        assertEquals(1, victim.size());
+        assertEquals("b", victim.remove(1));
+        assertNull(victim.get(1));
+        assertNull(victim.remove(1));
+        assertTrue(victim.isEmpty());
+    }
+
+    @Test
+    void shouldBehaveLikeHashMapUnderRandomChurn() {
+        IntObjectMap<Integer> victim = new IntObjectMap<>(4);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            int key = random.nextInt(5_000) - 2_500;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), victim.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), victim.put(key, i));
+            }
+        }
+        assertEquals(expected.size(), victim.size());
+        expected.forEach((key, value) -> assertEquals(value, victim.get(key)));
+        Map<Integer, Integer> values = new HashMap<>();
+        victim.forEachValue(value -> values.merge(value, 1, Integer::sum));
+        assertEquals(expected.size(), values.size());
+    }
+}
@@ -0,0 +1,55 @@
+package net.erply.demo.base.concurrent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class HierarchicalTimingWheelTest {
+
+    @Test
+    void shouldFireOnlyWhenDeadlinePassed() {
+        HierarchicalTimingWheel<Integer> victim = new HierarchicalTimingWheel<>(10, 4, 3, 0);
+        victim.schedule(1, 25);
+        assertTrue(victim.advanceTo(29).isEmpty());
+        assertEquals(List.of(1), victim.advanceTo(30));
+        assertEquals(0, victim.size());
+    }
+
+    @Test
+    void shouldCascadeFromHigherLevels() {
+        HierarchicalTimingWheel<Integer> victim = new HierarchicalTimingWheel<>(1, 4, 3, 0);
+        victim.schedule(1, 7);
+        victim.schedule(2, 37);
+        victim.schedule(3, 1000);
+        assertTrue(victim.advanceTo(6).isEmpty());
+        assertEquals(List.of(1), victim.advanceTo(7));
+        assertTrue(victim.advanceTo(36).isEmpty());
+        assertEquals(List.of(2), victim.advanceTo(37));
+        assertTrue(victim.advanceTo(999).isEmpty());
+        assertEquals(List.of(3), victim.advanceTo(1000));
+    }
+
+    @Test
+    void shouldCancelAndReschedule() {
+        HierarchicalTimingWheel<Integer> victim = new HierarchicalTimingWheel<>(1, 8, 2, 0);
+        victim.schedule(1, 5);
+        victim.schedule(2, 5);
+        assertTrue(victim.cancel(1));
+        assertFalse(victim.cancel(1));
+        victim.schedule(2, 20);
+        assertTrue(victim.advanceTo(10).isEmpty());
+        assertEquals(List.of(2), victim.advanceTo(20));
+    }
+
+    @Test
+    void shouldFireOverdueOnNextAdvance() {
+        HierarchicalTimingWheel<Integer> victim = new HierarchicalTimingWheel<>(10, 4, 2, 100);
+        victim.advanceTo(200);
+        victim.schedule(1, 50);
+        assertEquals(List.of(1), victim.advanceTo(200));
+    }
+}
@@ -0,0 +1,59 @@
+package net.erply.demo.base.concurrent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class MpscRingBufferTest {
+
+    @Test
+    void shouldRejectWhenFullAndKeepOrder() {
+        MpscRingBuffer<Integer> victim = new MpscRingBuffer<>(3);
+        assertEquals(4, victim.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(victim.offer(i));
+        }
+        assertFalse(victim.offer(4));
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(2, victim.drain(drained::add, 2));
+        assertTrue(victim.offer(4));
+        victim.drain(drained::add, 10);
+        assertEquals(List.of(0, 1, 2, 3, 4), drained);
+        assertEquals(0, victim.size());
+    }
+
+    @Test
+    void shouldNotLoseElementsFromConcurrentProducers() throws InterruptedException {
+        MpscRingBuffer<Integer> victim = new MpscRingBuffer<>(64);
+        int producers = 4;
+        int perProducer = 10_000;
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            pool.execute(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!victim.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+        }
+        Set<Integer> seen = new HashSet<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (seen.size() < producers * perProducer && System.nanoTime() < deadline) {
+            victim.drain(seen::add, 128);
+        }
+        pool.shutdownNow();
+        assertEquals(producers * perProducer, seen.size());
+    }
+}
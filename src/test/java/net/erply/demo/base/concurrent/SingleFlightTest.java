@@ -0,0 +1,116 @@
+package net.erply.demo.base.concurrent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class SingleFlightTest {
+
+    @Test
+    void shouldShareInFlightCall() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger collapsed = new AtomicInteger();
+        SingleFlight<String, Integer> victim = new SingleFlight<>(0, collapsed::incrementAndGet);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<Integer> leader = pool.submit(() -> victim.execute("k", () -> {
+                started.countDown();
+                await(release);
+                return calls.incrementAndGet();
+            }));
+            started.await(5, TimeUnit.SECONDS);
+            List<Future<Integer>> followers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                followers.add(pool.submit(() -> victim.execute("k", calls::incrementAndGet)));
+            }
+            while (collapsed.get() < 3) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            assertEquals(1, leader.get(5, TimeUnit.SECONDS));
+            for (Future<Integer> f : followers) {
+                assertEquals(1, f.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, calls.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldRunAgainAfterCompletionWithoutWindow() {
+        AtomicInteger calls = new AtomicInteger();
+        SingleFlight<String, Integer> victim = new SingleFlight<>(0, () -> { });
+        assertEquals(1, victim.execute("k", calls::incrementAndGet));
+        assertEquals(2, victim.execute("k", calls::incrementAndGet));
+    }
+
+    @Test
+    void shouldReuseResultWithinWindowUntilForgotten() {
+        AtomicInteger calls = new AtomicInteger();
+        SingleFlight<String, Integer> victim = new SingleFlight<>(60_000, () -> { });
+        assertEquals(1, victim.execute("k", calls::incrementAndGet));
+        assertEquals(1, victim.execute("k", calls::incrementAndGet));
+        victim.forget("k");
+        assertEquals(2, victim.execute("k", calls::incrementAndGet));
+    }
+
+    @Test
+    void shouldNotCacheFailures() {
+        SingleFlight<String, Integer> victim = new SingleFlight<>(60_000, () -> { });
+        assertThrows(IllegalStateException.class, () -> victim.execute("k", () -> {
+            throw new IllegalStateException();
+        }));
+        assertEquals(1, victim.execute("k", () -> 1));
+    }
+
+    @Test
+    void shouldReleaseWaitersWhenCallFailsWithError() throws Exception {
+        AtomicInteger collapsed = new AtomicInteger();
+        SingleFlight<String, Integer> victim = new SingleFlight<>(0, collapsed::incrementAndGet);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> leader = pool.submit(() -> victim.execute("k", () -> {
+                started.countDown();
+                await(release);
+                throw new StackOverflowError();
+            }));
+            started.await(5, TimeUnit.SECONDS);
+            Future<Integer> follower = pool.submit(() -> victim.execute("k", () -> 1));
+            while (collapsed.get() < 1) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            ExecutionException failed = assertThrows(ExecutionException.class,
+                    () -> follower.get(5, TimeUnit.SECONDS));
+            assertTrue(failed.getCause() instanceof StackOverflowError);
+            assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package net.erply.demo.base.journal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MappedJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void shouldReplayAppendedRecordsAcrossGrowth() throws IOException {
+        Path file = dir.resolve("journal");
+        try (MappedJournal victim = new MappedJournal(file, 64, false)) {
+            victim.replay(record -> { });
+            for (int i = 0; i < 100; i++) {
+                victim.append(record("record " + i));
+            }
+        }
+        List<String> replayed = replay(file);
+        assertEquals(100, replayed.size());
+        assertEquals("record 99", replayed.get(99));
+    }
+
+    @Test
+    void shouldDropTornRecordAndKeepAppending() throws IOException {
+        Path file = dir.resolve("journal");
+        try (MappedJournal victim = new MappedJournal(file, 1024, false)) {
+            victim.replay(record -> { });
+            victim.append(record("first"));
+            victim.append(record("second"));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 'X' }), 8 + 5 + 8 + 2);
+        }
+        try (MappedJournal victim = new MappedJournal(file, 1024, false)) {
+            assertEquals(1, victim.replay(record -> { }));
+            victim.append(record("third"));
+        }
+        assertEquals(List.of("first", "third"), replay(file));
+    }
+
+    @Test
+    void shouldRewriteContent() throws IOException {
+        Path file = dir.resolve("journal");
+        try (MappedJournal victim = new MappedJournal(file, 1024, false)) {
+            victim.replay(record -> { });
+            for (int i = 0; i < 10; i++) {
+                victim.append(record("old " + i));
+            }
+            victim.rewrite(sink -> sink.append(record("kept")));
+            victim.append(record("after"));
+        }
+        assertEquals(List.of("kept", "after"), replay(file));
+    }
+
+    private static ByteBuffer record(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> replay(Path file) throws IOException {
+        List<String> records = new ArrayList<>();
+        try (MappedJournal journal = new MappedJournal(file, 64, false)) {
+            journal.replay(record -> records.add(StandardCharsets.UTF_8.decode(record).toString()));
+        }
+        return records;
+    }
+}
@@ -0,0 +1,72 @@
+package net.erply.demo.base.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.erply.demo.base.entity.ErrorCode;
+
+public class SampledErrorLogTest {
+
+    @Test
+    void shouldCountEveryErrorButLogOnlyPermits() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Logger log = mock(Logger.class);
+        when(log.isWarnEnabled()).thenReturn(true);
+        SampledErrorLog victim = new SampledErrorLog(registry, 3);
+
+        for (int i = 0; i < 10; i++) {
+            victim.warn(log, ErrorCode.TASK_NOT_FOUND, "Task {} not found", i);
+        }
+
+        verify(log, times(3)).warn(anyString(), (Object[]) any());
+        assertEquals(10, registry.counter("task.errors", "code", "TASK_NOT_FOUND").count());
+        assertEquals(7, registry.counter("task.errors.suppressed", "code", "TASK_NOT_FOUND").count());
+    }
+
+    @Test
+    void shouldLimitEachCodeSeparately() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Logger log = mock(Logger.class);
+        when(log.isWarnEnabled()).thenReturn(true);
+        SampledErrorLog victim = new SampledErrorLog(registry, 1);
+
+        victim.warn(log, ErrorCode.TASK_NOT_FOUND, "not found");
+        victim.warn(log, ErrorCode.TASK_NOT_FOUND, "not found");
+        victim.warn(log, ErrorCode.WRONG_TASK_ID, "wrong id");
+
+        verify(log).warn(eq("[TASK_NOT_FOUND] not found"), (Object[]) any());
+        verify(log).warn(eq("[WRONG_TASK_ID] wrong id"), (Object[]) any());
+    }
+
+    @Test
+    void shouldReduceWarnThrowableToMessage() {
+        Logger log = mock(Logger.class);
+        when(log.isWarnEnabled()).thenReturn(true);
+        SampledErrorLog victim = new SampledErrorLog(new SimpleMeterRegistry(), 5);
+        IllegalStateException cause = new IllegalStateException("boom");
+
+        victim.warn(log, ErrorCode.WRONG_TASK_ID, "Wrong id {}", 7, cause);
+
+        verify(log).warn("[WRONG_TASK_ID] Wrong id {}: {}", 7, cause.toString());
+    }
+
+    @Test
+    void shouldOnlyCountWhenAsked() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SampledErrorLog victim = new SampledErrorLog(registry, 5);
+
+        victim.count(ErrorCode.WRONG_TASK_ID);
+
+        assertEquals(1, registry.counter("task.errors", "code", "WRONG_TASK_ID").count());
+        assertEquals(0, registry.counter("task.errors.suppressed", "code", "WRONG_TASK_ID").count());
+    }
+}
@@ -0,0 +1,101 @@
+package net.erply.demo.base.profiling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import net.erply.demo.base.exception.TaskException;
+
+public class ContinuousRecordingTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void shouldDumpOperationEventsWithDbTime() throws IOException {
+        ContinuousRecording victim = new ContinuousRecording(true, "default", false, 5, 50, 0, dir.toString(), 5);
+        victim.start();
+        try {
+            TaskOperationEvent.profile("get", 7, () -> DbTime.measure(() -> sleep(20)));
+            assertThrows(TaskException.class, () -> TaskOperationEvent.profile("delete", 8, () -> {
+                throw new TaskException("TASK_NOT_FOUND");
+            }));
+
+            ContinuousRecording.Dump dump = victim.dump(Duration.ofMinutes(1));
+
+            assertTrue(dump.getFile().startsWith(dir.toAbsolutePath()));
+            List<RecordedEvent> events = RecordingFile.readAllEvents(dump.getFile()).stream()
+                    .filter(event -> event.getEventType().getName().equals(TaskOperationEvent.NAME))
+                    .collect(Collectors.toList());
+            RecordedEvent get = operation(events, "get");
+            assertEquals(7, get.getInt("taskId"));
+            assertNull(get.getString("errorCode"));
+            assertTrue(get.getDuration("dbTime").toMillis() >= 20);
+            assertTrue(get.getDuration().compareTo(get.getDuration("dbTime")) >= 0);
+            RecordedEvent delete = operation(events, "delete");
+            assertEquals("TASK_NOT_FOUND", delete.getString("errorCode"));
+            assertEquals(0, delete.getDuration("dbTime").toNanos());
+        } finally {
+            victim.stop();
+        }
+    }
+
+    @Test
+    void shouldKeepOnlyNewestDumps() throws Exception {
+        ContinuousRecording victim = new ContinuousRecording(true, "default", false, 5, 50, 0, dir.toString(), 2);
+        victim.start();
+        try {
+            ContinuousRecording.Dump first = victim.dump(Duration.ofMinutes(1));
+            Thread.sleep(5);
+            ContinuousRecording.Dump second = victim.dump(Duration.ofMinutes(1));
+            Thread.sleep(5);
+            ContinuousRecording.Dump third = victim.dump(Duration.ofMinutes(1));
+
+            try (Stream<Path> files = Files.list(dir)) {
+                assertEquals(List.of(second.getFile(), third.getFile()),
+                        files.map(Path::toAbsolutePath).sorted().collect(Collectors.toList()));
+            }
+            assertFalse(Files.exists(first.getFile()));
+        } finally {
+            victim.stop();
+        }
+    }
+
+    @Test
+    void shouldRefuseDumpWhenDisabled() {
+        ContinuousRecording victim = new ContinuousRecording(false, "default", false, 5, 50, 0, dir.toString(), 5);
+        victim.start();
+
+        assertFalse(victim.isRunning());
+        assertThrows(IllegalStateException.class, () -> victim.dump(Duration.ofMinutes(1)));
+    }
+
+    private static RecordedEvent operation(List<RecordedEvent> events, String operation) {
+        return events.stream()
+                .filter(event -> operation.equals(event.getString("operation")))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No " + operation + " event recorded"));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package net.erply.demo.base.shard;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class ConsistentHashRingTest {
+
+    private static final int TENANTS = 10_000;
+
+    @Test
+    void shouldSpreadKeysEvenly() {
+        ConsistentHashRing victim = new ConsistentHashRing(List.of("a", "b", "c", "d"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < TENANTS; i++) {
+            counts.merge(victim.nodeFor("tenant-" + i), 1, Integer::sum);
+        }
+        assertEquals(4, counts.size());
+        counts.values().forEach(count -> assertTrue(count > TENANTS / 4 * 0.7 && count < TENANTS / 4 * 1.3,
+                "unbalanced: " + counts));
+    }
+
+    @Test
+    void shouldOnlyMoveKeysToAddedNode() {
+        ConsistentHashRing before = new ConsistentHashRing(List.of("a", "b", "c"), 128);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("a", "b", "c", "d"), 128);
+        int moved = 0;
+        for (int i = 0; i < TENANTS; i++) {
+            String tenant = "tenant-" + i;
+            String now = after.nodeFor(tenant);
+            if (!now.equals(before.nodeFor(tenant))) {
+                assertEquals("d", now);
+                moved++;
+            }
+        }
+        assertTrue(moved > TENANTS / 4 * 0.7 && moved < TENANTS / 4 * 1.3, "moved " + moved);
+    }
+
+    @Test
+    void shouldBeStable() {
+        assertEquals(new ConsistentHashRing(List.of("a", "b"), 16).nodeFor("acme"),
+                new ConsistentHashRing(List.of("b", "a"), 16).nodeFor("acme"));
+    }
+}
@@ -0,0 +1,58 @@
+package net.erply.demo.base.shard;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class ShardRouterTest {
+
+    private final ShardRouter victim = new ShardRouter(List.of("s0", "s1", "s2"), 64);
+
+    @AfterEach
+    void clearTenant() {
+        TenantContext.clear();
+    }
+
+    @Test
+    void shouldPreferPlacementOverHash() {
+        String hashed = victim.shardFor("acme");
+        String other = hashed.equals("s0") ? "s1" : "s0";
+        victim.setPlacements(Map.of("acme", new TenantPlacement("acme", other, false)));
+        assertEquals(other, victim.shardFor("acme"));
+        assertTrue(victim.isPlaced("acme"));
+        assertFalse(victim.isMoving("acme"));
+    }
+
+    @Test
+    void shouldReportMovingTenant() {
+        victim.putPlacement(new TenantPlacement("acme", "s2", true));
+        assertTrue(victim.isMoving("acme"));
+        assertFalse(victim.isMoving("globex"));
+    }
+
+    @Test
+    void shouldRouteByTenantUnlessPinned() {
+        victim.setPlacements(Map.of("acme", new TenantPlacement("acme", "s2", false)));
+        TenantContext.set("acme");
+        assertEquals("s2", victim.currentShard());
+        victim.runOn("s0", () -> {
+            assertEquals("s0", victim.currentShard());
+            assertEquals("s1", victim.callOn("s1", victim::currentShard));
+            assertEquals("s0", victim.currentShard());
+        });
+        assertEquals("s2", victim.currentShard());
+    }
+
+    @Test
+    void shouldHomeOnFirstShard() {
+        assertEquals("s0", victim.getHomeShard());
+        assertTrue(victim.isSharded());
+        assertFalse(new ShardRouter(List.of("main"), 64).isSharded());
+    }
+}
@@ -0,0 +1,70 @@
+package net.erply.demo.sql;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Fluent checks on recorded statements, e.g.
+ * {@code assertThatSql(statements).selects(1).updates(1).inserts(0).deletes(0).noNPlusOne()}.
+ */
+public final class SqlAssertions {
+
+    private static final int N_PLUS_ONE_THRESHOLD = 2;
+
+    private final SqlStatements statements;
+
+    private SqlAssertions(SqlStatements statements) {
+        this.statements = statements;
+    }
+
+    public static SqlAssertions assertThatSql(SqlStatements statements) {
+        return new SqlAssertions(statements);
+    }
+
+    public SqlAssertions selects(int expected) {
+        return count(SqlStatements.Type.SELECT, expected);
+    }
+
+    public SqlAssertions inserts(int expected) {
+        return count(SqlStatements.Type.INSERT, expected);
+    }
+
+    public SqlAssertions updates(int expected) {
+        return count(SqlStatements.Type.UPDATE, expected);
+    }
+
+    public SqlAssertions deletes(int expected) {
+        return count(SqlStatements.Type.DELETE, expected);
+    }
+
+    public SqlAssertions roundTrips(int expected) {
+        assertEquals(expected, statements.getRoundTrips(), () -> "Unexpected round-trips: " + describe());
+        return this;
+    }
+
+    /**
+     * Fails when the same SELECT shape runs more than once, the usual sign of an N+1 lookup.
+     */
+    public SqlAssertions noNPlusOne() {
+        Map<String, Long> repeated = statements.countByShape().entrySet().stream()
+                .filter(e -> SqlStatements.typeOf(e.getKey()) == SqlStatements.Type.SELECT)
+                .filter(e -> e.getValue() >= N_PLUS_ONE_THRESHOLD)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        if (!repeated.isEmpty()) {
+            fail("Possible N+1 selects " + repeated + ": " + describe());
+        }
+        return this;
+    }
+
+    private SqlAssertions count(SqlStatements.Type type, int expected) {
+        assertEquals(expected, statements.count(type), () -> "Unexpected " + type + " count: " + describe());
+        return this;
+    }
+
+    private String describe() {
+        return statements + "\n" + String.join("\n", statements.getStatements());
+    }
+}
@@ -0,0 +1,42 @@
+package net.erply.demo.sql;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects statement counts per operation and writes them to {@code build/reports/sql-cost/<name>.txt}.
+ */
+public class SqlCostReport {
+
+    private static final Path REPORT_DIR = Paths.get("build", "reports", "sql-cost");
+
+    private final String name;
+
+    private final Map<String, SqlStatements> operations = new TreeMap<>();
+
+    public SqlCostReport(String name) {
+        this.name = name;
+    }
+
+    public synchronized SqlStatements add(String operation, SqlStatements statements) {
+        operations.put(operation, statements);
+        return statements;
+    }
+
+    public synchronized void write() {
+        StringBuilder report = new StringBuilder();
+        operations.forEach((operation, statements) ->
+                report.append(operation).append(": ").append(statements).append(System.lineSeparator()));
+        try {
+            Files.createDirectories(REPORT_DIR);
+            Files.writeString(REPORT_DIR.resolve(name + ".txt"), report);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
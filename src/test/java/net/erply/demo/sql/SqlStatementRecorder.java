@@ -0,0 +1,51 @@
+package net.erply.demo.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+/**
+ * Records JDBC statements executed on the calling thread between {@link #start()} and {@link #stop()}.
+ * Statements of background threads (history writer, deadline scheduler) are ignored.
+ */
+public class SqlStatementRecorder implements QueryExecutionListener {
+
+    private final ThreadLocal<Recording> active = new ThreadLocal<>();
+
+    public void start() {
+        active.set(new Recording());
+    }
+
+    public SqlStatements stop() {
+        Recording recording = active.get();
+        active.remove();
+        if (recording == null) {
+            throw new IllegalStateException("Recording was not started");
+        }
+        return new SqlStatements(recording.statements, recording.roundTrips);
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Recording recording = active.get();
+        if (recording == null) {
+            return;
+        }
+        recording.roundTrips++;
+        for (QueryInfo query : queryInfoList) {
+            recording.statements.add(query.getQuery());
+        }
+    }
+
+    private static class Recording {
+        private final List<String> statements = new ArrayList<>();
+        private int roundTrips;
+    }
+}
@@ -0,0 +1,96 @@
+package net.erply.demo.sql;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import lombok.Getter;
+
+/**
+ * Statements recorded for one operation.
+ */
+@Getter
+public class SqlStatements {
+
+    public enum Type {
+        SELECT, INSERT, UPDATE, DELETE, OTHER
+    }
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+\\b");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\([^)]*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final List<String> statements;
+
+    private final int roundTrips;
+
+    SqlStatements(List<String> statements, int roundTrips) {
+        this.statements = Collections.unmodifiableList(statements);
+        this.roundTrips = roundTrips;
+    }
+
+    public long count(Type type) {
+        return statements.stream().filter(sql -> typeOf(sql) == type).count();
+    }
+
+    public int total() {
+        return statements.size();
+    }
+
+    /**
+     * Statements grouped by shape, literals and IN lists stripped, so repeated lookups fall together.
+     */
+    public Map<String, Long> countByShape() {
+        return statements.stream()
+                .collect(Collectors.groupingBy(SqlStatements::normalize, Collectors.counting()));
+    }
+
+    static Type typeOf(String sql) {
+        String head = sql.stripLeading();
+        int end = 0;
+        while (end < head.length() && Character.isLetter(head.charAt(end))) {
+            end++;
+        }
+        String keyword = head.substring(0, end).toUpperCase(Locale.ROOT);
+        if ("WITH".equals(keyword)) {
+            return typeOfCte(head);
+        }
+        try {
+            return Type.valueOf(keyword);
+        } catch (IllegalArgumentException e) {
+            return Type.OTHER;
+        }
+    }
+
+    private static Type typeOfCte(String sql) {
+        String upper = sql.toUpperCase(Locale.ROOT);
+        if (upper.contains("INSERT ")) {
+            return Type.INSERT;
+        }
+        if (upper.contains("UPDATE ")) {
+            return Type.UPDATE;
+        }
+        if (upper.contains("DELETE ")) {
+            return Type.DELETE;
+        }
+        return Type.SELECT;
+    }
+
+    static String normalize(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = IN_LIST.matcher(shape).replaceAll("in (?)");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d statements (%d select, %d insert, %d update, %d delete, %d other) in %d round-trips",
+                total(), count(Type.SELECT), count(Type.INSERT), count(Type.UPDATE), count(Type.DELETE),
+                count(Type.OTHER), roundTrips);
+    }
+}
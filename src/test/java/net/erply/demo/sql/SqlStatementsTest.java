@@ -0,0 +1,35 @@
+package net.erply.demo.sql;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class SqlStatementsTest {
+
+    @Test
+    void shouldCountByType() {
+        SqlStatements victim = new SqlStatements(List.of(
+                "select t.id from task t where t.id=?",
+                " UPDATE task set name=? where id=?",
+                "with merged as (insert into task values (1)) select count(*) from merged",
+                "SET LOCAL synchronous_commit = off"), 3);
+        assertEquals(1, victim.count(SqlStatements.Type.SELECT));
+        assertEquals(1, victim.count(SqlStatements.Type.UPDATE));
+        assertEquals(1, victim.count(SqlStatements.Type.INSERT));
+        assertEquals(1, victim.count(SqlStatements.Type.OTHER));
+        SqlAssertions.assertThatSql(victim).selects(1).updates(1).inserts(1).deletes(0).roundTrips(3);
+    }
+
+    @Test
+    void shouldDetectNPlusOne() {
+        SqlStatements victim = new SqlStatements(List.of(
+                "select * from task where id = 1",
+                "select * from task where id = 2",
+                "select * from task_history where task_id in (1, 2)"), 3);
+        assertEquals(2L, victim.countByShape().get("select * from task where id = ?"));
+        assertThrows(AssertionError.class, () -> SqlAssertions.assertThatSql(victim).noNPlusOne());
+    }
+}
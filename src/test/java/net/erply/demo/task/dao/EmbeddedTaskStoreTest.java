@@ -0,0 +1,149 @@
+package net.erply.demo.task.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import net.erply.demo.base.entity.Task;
+import net.erply.demo.task.entity.TaskOperation;
+import net.erply.demo.task.entity.TaskStatus;
+
+public class EmbeddedTaskStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void shouldKeepNamesUniquePerTenant() throws IOException {
+        try (EmbeddedTaskStore victim = open()) {
+            victim.insert(task("acme", "same"));
+            victim.insert(task("globex", "same"));
+            assertThrows(DataIntegrityViolationException.class, () -> victim.insert(task("acme", "same")));
+            Task other = victim.insert(task("acme", "other"));
+            other.setName("same");
+            assertThrows(DataIntegrityViolationException.class, () -> victim.update(other));
+            assertEquals(List.of("same", "other"), names(victim.findAll("acme")));
+        }
+    }
+
+    @Test
+    void shouldScopeAccessToTenant() throws IOException {
+        try (EmbeddedTaskStore victim = open()) {
+            Task task = victim.insert(task("acme", "task"));
+            assertTrue(victim.find("globex", task.getId()).isEmpty());
+            assertFalse(victim.delete("globex", task.getId()));
+            assertFalse(victim.updateStatus("globex", task.getId(), TaskStatus.COMPLETED));
+            assertTrue(victim.find("acme", task.getId()).isPresent());
+        }
+    }
+
+    @Test
+    void shouldRecoverFromJournal() throws IOException {
+        int deletedId;
+        try (EmbeddedTaskStore victim = open()) {
+            Task kept = victim.insert(task("acme", "kept"));
+            deletedId = victim.insert(task("acme", "deleted")).getId();
+            kept.setName("renamed");
+            kept.setDueAt(Instant.ofEpochSecond(1_600_000_000L, 123_456_789));
+            assertTrue(victim.update(kept));
+            assertTrue(victim.updateStatus("acme", kept.getId(), TaskStatus.COMPLETED));
+            assertTrue(victim.delete("acme", deletedId));
+        }
+        try (EmbeddedTaskStore victim = open()) {
+            List<Task> tasks = victim.findAll("acme");
+            assertEquals(1, tasks.size());
+            assertEquals("renamed", tasks.get(0).getName());
+            assertEquals(TaskStatus.COMPLETED, tasks.get(0).getStatus());
+            assertEquals(Instant.ofEpochSecond(1_600_000_000L, 123_456_789), tasks.get(0).getDueAt());
+            assertTrue(victim.insert(task("acme", "next")).getId() > deletedId);
+        }
+    }
+
+    @Test
+    void shouldKeepStateAndIdsOverCompaction() throws IOException {
+        int lastId;
+        try (EmbeddedTaskStore victim = open()) {
+            for (int i = 0; i < 50; i++) {
+                victim.insert(task("acme", "task " + i));
+            }
+            lastId = victim.insert(task("acme", "last")).getId();
+            for (Task task : victim.findAll("acme")) {
+                if (task.getId() != 1) {
+                    victim.delete("acme", task.getId());
+                }
+            }
+            victim.compact();
+        }
+        try (EmbeddedTaskStore victim = open()) {
+            assertEquals(List.of("task 0"), names(victim.findAll("acme")));
+            assertEquals(lastId + 1, victim.insert(task("acme", "after")).getId());
+        }
+    }
+
+    @Test
+    void shouldMergeByName() throws IOException {
+        try (EmbeddedTaskStore victim = open()) {
+            victim.insert(task("acme", "existing"));
+            Task changed = task("acme", "existing");
+            changed.setDescription("changed");
+            List<TaskCopyDao.MergedTask> inserted = victim.merge("acme", List.of(changed, task("acme", "new")), false);
+            assertEquals(1, inserted.size());
+            assertEquals(TaskOperation.ADD, inserted.get(0).getOperation());
+            assertEquals("descr", victim.findAll("acme").get(0).getDescription());
+            List<TaskCopyDao.MergedTask> updated = victim.merge("acme", List.of(changed), true);
+            assertEquals(1, updated.size());
+            assertEquals(TaskOperation.EDIT, updated.get(0).getOperation());
+            assertEquals(victim.findAll("acme").get(0).getId(), updated.get(0).getId());
+            assertEquals("changed", victim.findAll("acme").get(0).getDescription());
+        }
+    }
+
+    @Test
+    void shouldReleaseExpiredLockedTasks() throws IOException {
+        try (EmbeddedTaskStore victim = open()) {
+            Instant now = Instant.now();
+            Task expired = task("acme", "expired");
+            expired.setStatus(TaskStatus.LOCKED);
+            expired.setDueAt(now.minusSeconds(1));
+            int expiredId = victim.insert(expired).getId();
+            Task pending = task("globex", "pending");
+            pending.setStatus(TaskStatus.LOCKED);
+            pending.setDueAt(now.plusSeconds(60));
+            int pendingId = victim.insert(pending).getId();
+
+            assertEquals(List.of(expiredId, pendingId), victim.findLockedDeadlines(now.plusSeconds(120), 0, 10)
+                    .stream().map(TaskDeadline::getId).collect(Collectors.toList()));
+            List<TaskRef> released = victim.releaseExpired(List.of(expiredId, pendingId), now);
+            assertEquals(1, released.size());
+            assertEquals("acme", released.get(0).getTenantId());
+            assertEquals(TaskStatus.AVAILABLE, victim.find("acme", expiredId).orElseThrow().getStatus());
+        }
+    }
+
+    private EmbeddedTaskStore open() throws IOException {
+        return new EmbeddedTaskStore(dir.resolve("tasks.journal").toString(), 1, false, 4, 1000, 4);
+    }
+
+    private static Task task(String tenantId, String name) {
+        return Task.builder()
+                .tenantId(tenantId)
+                .name(name)
+                .description("descr")
+                .status(TaskStatus.AVAILABLE)
+                .build();
+    }
+
+    private static List<String> names(List<Task> tasks) {
+        return tasks.stream().map(Task::getName).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,28 @@
+package net.erply.demo.task.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class TaskChangeListenerTest {
+
+    @Test
+    void shouldCollectDistinctIds() {
+        Set<Integer> changed = new HashSet<>();
+        assertFalse(TaskChangeListener.collect("1,2", changed));
+        assertFalse(TaskChangeListener.collect("2,3", changed));
+        assertEquals(Set.of(1, 2, 3), changed);
+    }
+
+    @Test
+    void shouldAskForResync() {
+        assertTrue(TaskChangeListener.collect(TaskChangeListener.RESYNC_PAYLOAD, new HashSet<>()));
+        assertTrue(TaskChangeListener.collect("1,x", new HashSet<>()));
+        assertTrue(TaskChangeListener.collect(null, new HashSet<>()));
+    }
+}
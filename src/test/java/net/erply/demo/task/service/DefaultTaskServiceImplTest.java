@@ -7,23 +7,26 @@ import static net.erply.demo.base.entity.ErrorCode.TASK_NOT_FOUND;
 import static net.erply.demo.base.entity.ErrorCode.UNEXPECTED_ERROR;
 import static net.erply.demo.base.entity.ErrorCode.WRONG_TASK_ID;
 import static net.erply.demo.task.entity.TaskStatus.AVAILABLE;
+import static net.erply.demo.task.entity.TaskStatus.COMPLETED;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.IsInstanceOf.instanceOf;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.io.IOException;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Optional;
 
 import javax.inject.Inject;
-import javax.persistence.EntityNotFoundException;
 
 import org.hibernate.PropertyValueException;
 import org.hibernate.exception.ConstraintViolationException;
@@ -32,14 +35,16 @@ import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import net.erply.demo.base.exception.AddTaskBadResponseException;
 import net.erply.demo.base.exception.DeleteTaskBadResponseException;
 import net.erply.demo.base.exception.EditTaskBadResponseException;
+import net.erply.demo.base.exception.GetTaskBadResponseException;
 import net.erply.demo.task.api.TaskDto;
 import net.erply.demo.task.dao.TaskJpaRepo;
 import net.erply.demo.base.entity.Task;
+import net.erply.demo.base.shard.TenantContext;
 
 @SpringBootTest
 public class DefaultTaskServiceImplTest {
@@ -50,6 +55,9 @@ public class DefaultTaskServiceImplTest {
     @Inject
     DefaultTaskServiceImpl victim;
 
+    @Inject
+    ObjectMapper objectMapper;
+
     private static final Task TEST_TASK = Task.builder()
                                         .name("aa").description("bb")
                                         .status(AVAILABLE).build();
@@ -67,10 +75,12 @@ public class DefaultTaskServiceImplTest {
     public void setup() {
         doReturn(TEST_TASK)
                 .when(mockRepo).save(any());
-        doReturn(TEST_TASK)
-                .when(mockRepo).getOne(any());
+        doReturn(1)
+                .when(mockRepo).updateOwned(any());
+        doReturn(1)
+                .when(mockRepo).updateStatus(any(), anyString(), any());
         doReturn(List.of(TEST_TASK))
-                .when(mockRepo).findAll();
+                .when(mockRepo).findByTenantId(anyString());
     }
 
     @Test
@@ -133,56 +143,65 @@ public class DefaultTaskServiceImplTest {
 
     @Test
     void shouldDeleteTask() {
-        doNothing()
-                .when(mockRepo).deleteById(anyInt());
+        doReturn(1)
+                .when(mockRepo).deleteOwned(anyInt(), anyString());
         victim.deleteTask(0);
-        verify(mockRepo, times(1)).deleteById(anyInt());
+        verify(mockRepo, times(1)).deleteOwned(eq(0), eq(TenantContext.DEFAULT_TENANT));
     }
 
     @Test
     void shouldThrowErrorIfWrongInput() {
-        doThrow(new InvalidDataAccessApiUsageException("TEST")).when(mockRepo).deleteById(any());
-        DeleteTaskBadResponseException e = assertThrows(DeleteTaskBadResponseException.class, () -> victim.deleteTask(anyInt()));
+        doThrow(new InvalidDataAccessApiUsageException("TEST")).when(mockRepo).deleteOwned(any(), any());
+        DeleteTaskBadResponseException e = assertThrows(DeleteTaskBadResponseException.class, () -> victim.deleteTask(1));
         assertThat(e, instanceOf(DeleteTaskBadResponseException.class));
         assertEquals(e.getCode(), WRONG_TASK_ID.name());
     }
 
     @Test
     void shouldThrowErrorIfNotFound() {
-        doThrow(new EmptyResultDataAccessException(0)).when(mockRepo).deleteById(any());
-        DeleteTaskBadResponseException e = assertThrows(DeleteTaskBadResponseException.class, () -> victim.deleteTask(anyInt()));
+        doReturn(0).when(mockRepo).deleteOwned(any(), any());
+        DeleteTaskBadResponseException e = assertThrows(DeleteTaskBadResponseException.class, () -> victim.deleteTask(1));
         assertThat(e, instanceOf(DeleteTaskBadResponseException.class));
         assertEquals(e.getCode(), TASK_NOT_FOUND.name());
     }
 
     @Test
     void shouldThrowUnexpectedError() {
-        doThrow(new RuntimeException("TEST")).when(mockRepo).deleteById(any());
-        DeleteTaskBadResponseException e = assertThrows(DeleteTaskBadResponseException.class, () -> victim.deleteTask(anyInt()));
+        doThrow(new RuntimeException("TEST")).when(mockRepo).deleteOwned(any(), any());
+        DeleteTaskBadResponseException e = assertThrows(DeleteTaskBadResponseException.class, () -> victim.deleteTask(1));
         assertThat(e, instanceOf(DeleteTaskBadResponseException.class));
         assertEquals(e.getCode(), UNEXPECTED_ERROR.name());
     }
 
     @Test
     void shouldEditTask() {
-        assertEquals(TEST_TASK_DTO, victim.editTask(1, TEST_TASK_DTO));
+        TaskDto edited = TaskDto.builder().id(1).name("aa")
+                .description("bb").status(AVAILABLE).build();
+        assertEquals(edited, victim.editTask(1, TEST_TASK_DTO));
     }
 
     @Test
     void shouldThrowEmptyNameException_editTask() {
         Exception srcE = new DataIntegrityViolationException("test");
         srcE.initCause(new PropertyValueException("test", "test", "name"));
-        doThrow(srcE).when(mockRepo).save(any());
+        doThrow(srcE).when(mockRepo).updateOwned(any());
         EditTaskBadResponseException e = assertThrows(EditTaskBadResponseException.class, () -> victim.editTask(1, TEST_TASK_DTO));
         assertThat(e, instanceOf(EditTaskBadResponseException.class));
         assertEquals(e.getCode(), EMPTY_TASK_FIELD_NAME.name());
     }
 
+    @Test
+    void shouldKeepValidationCode_editTask() {
+        EditTaskBadResponseException e = assertThrows(EditTaskBadResponseException.class, () -> victim.editTask(1, TEST_TASK_DTO_NO_NAME));
+        assertEquals(EMPTY_TASK_FIELD_NAME.name(), e.getCode());
+        assertEquals(0, e.getStackTrace().length);
+    }
+
     @Test
     void shouldThrowDuplicateNameException_editTask() {
         Exception srcE = new DataIntegrityViolationException("test");
         srcE.initCause(new ConstraintViolationException("test", new SQLException(), "description"));
-        doThrow(srcE).when(mockRepo).save(any());
+        doThrow(srcE).when(mockRepo).updateOwned(any());
         EditTaskBadResponseException e = assertThrows(EditTaskBadResponseException.class, () -> victim.editTask(1, TEST_TASK_DTO));
         assertThat(e, instanceOf(EditTaskBadResponseException.class));
         assertEquals(e.getCode(), DUPLICATED_TASK_NAME.name());
@@ -192,7 +211,7 @@ public class DefaultTaskServiceImplTest {
     void shouldThrowEmptyDescriptionException_editTask() {
         Exception srcE = new DataIntegrityViolationException("test");
         srcE.initCause(new PropertyValueException("test", "test", "description"));
-        doThrow(srcE).when(mockRepo).save(any());
+        doThrow(srcE).when(mockRepo).updateOwned(any());
         EditTaskBadResponseException e = assertThrows(EditTaskBadResponseException.class, () -> victim.editTask(1, TEST_TASK_DTO));
         assertThat(e, instanceOf(EditTaskBadResponseException.class));
         assertEquals(e.getCode(), EMPTY_TASK_FIELD_DESCRIPTION.name());
@@ -200,8 +219,8 @@ public class DefaultTaskServiceImplTest {
 
     @Test
     void shouldThrowEntityNotFoundException_editTask() {
-        Exception srcE = new EntityNotFoundException("test");
-        doThrow(srcE).when(mockRepo).save(any());
+        doReturn(0)
+                .when(mockRepo).updateOwned(any());
         EditTaskBadResponseException e = assertThrows(EditTaskBadResponseException.class, () -> victim.editTask(1, TEST_TASK_DTO));
         assertThat(e, instanceOf(EditTaskBadResponseException.class));
         assertEquals(e.getCode(), TASK_NOT_FOUND.name());
@@ -210,7 +229,7 @@ public class DefaultTaskServiceImplTest {
     @Test
     void shouldThrowUnexpectedException_editTask() {
         Exception srcE = new RuntimeException("test_runtime_exception");
-        doThrow(srcE).when(mockRepo).save(any());
+        doThrow(srcE).when(mockRepo).updateOwned(any());
         EditTaskBadResponseException e = assertThrows(EditTaskBadResponseException.class, () -> victim.editTask(1, TEST_TASK_DTO));
         assertThat(e, instanceOf(EditTaskBadResponseException.class));
         assertEquals(e.getCode(), UNEXPECTED_ERROR.name());
@@ -223,17 +242,47 @@ public class DefaultTaskServiceImplTest {
         assertEquals(gotList.get(0), TEST_TASK_DTO);
     }
 
+    @Test
+    void shouldListAllTasksAsJson() throws IOException {
+        List<byte[]> gotList = victim.listJson();
+        assertEquals(1, gotList.size());
+        assertEquals(TEST_TASK_DTO, objectMapper.readValue(gotList.get(0), TaskDto.class));
+    }
+
+    @Test
+    void shouldGetTask() {
+        doReturn(Optional.of(TEST_TASK))
+                .when(mockRepo).findByIdAndTenantId(anyInt(), anyString());
+        assertEquals(TEST_TASK_DTO, victim.getTask(1));
+    }
+
+    @Test
+    void shouldThrowErrorIfNotFound_Get() {
+        doReturn(Optional.empty())
+                .when(mockRepo).findByIdAndTenantId(anyInt(), anyString());
+        GetTaskBadResponseException e = assertThrows(GetTaskBadResponseException.class, () -> victim.getTask(1));
+        assertEquals(e.getCode(), TASK_NOT_FOUND.name());
+    }
+
+    @Test
+    void shouldSuggestByEscapedPrefixWithinMaxLimit() {
+        doReturn(List.of())
+                .when(mockRepo).suggest(anyString(), anyString(), anyInt());
+        assertEquals(List.of(), victim.suggest("50%_OFF", 1000));
+        verify(mockRepo, times(1)).suggest(eq(TenantContext.DEFAULT_TENANT), eq("50\\%\\_off%"), eq(50));
+    }
+
     @Test
     void shouldCompleteTask() {
         victim.completeTask(0);
-        verify(mockRepo, times(1)).save(any());
+        verify(mockRepo, times(1)).updateStatus(eq(0), eq(TenantContext.DEFAULT_TENANT), eq(COMPLETED));
     }
 
     @Test
     void shouldThrowErrorIfNotFound_Complete() {
-        doThrow(new EntityNotFoundException())
-                .when(mockRepo).getOne(anyInt());
-        EditTaskBadResponseException e = assertThrows(EditTaskBadResponseException.class, () -> victim.completeTask(anyInt()));
+        doReturn(0)
+                .when(mockRepo).updateStatus(anyInt(), anyString(), any());
+        EditTaskBadResponseException e = assertThrows(EditTaskBadResponseException.class, () -> victim.completeTask(1));
         assertThat(e, instanceOf(EditTaskBadResponseException.class));
         assertEquals(e.getCode(), TASK_NOT_FOUND.name());
     }
@@ -241,8 +290,8 @@ public class DefaultTaskServiceImplTest {
     @Test
     void shouldThrowUnexpectedError_Complete() {
         doThrow(new RuntimeException("TEST"))
-                .when(mockRepo).getOne(anyInt());
-        EditTaskBadResponseException e = assertThrows(EditTaskBadResponseException.class, () -> victim.completeTask(anyInt()));
+                .when(mockRepo).updateStatus(anyInt(), anyString(), any());
+        EditTaskBadResponseException e = assertThrows(EditTaskBadResponseException.class, () -> victim.completeTask(1));
         assertThat(e, instanceOf(EditTaskBadResponseException.class));
         assertEquals(e.getCode(), UNEXPECTED_ERROR.name());
     }
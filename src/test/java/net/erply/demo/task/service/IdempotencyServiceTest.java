@@ -0,0 +1,219 @@
+package net.erply.demo.task.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.erply.demo.base.entity.ErrorCode;
+import net.erply.demo.base.exception.AddTaskBadResponseException;
+import net.erply.demo.base.exception.IdempotencyBadResponseException;
+import net.erply.demo.base.exception.IdempotencyConflictException;
+import net.erply.demo.base.exception.TaskException;
+import net.erply.demo.base.shard.TenantContext;
+import net.erply.demo.task.api.TaskDto;
+import net.erply.demo.task.dao.IdempotencyKeyDao;
+
+public class IdempotencyServiceTest {
+
+    private final AtomicInteger writes = new AtomicInteger();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final IdempotencyService victim = service(100, 2000);
+
+    @AfterEach
+    void clearTenant() {
+        TenantContext.clear();
+    }
+
+    @Test
+    void shouldRunWriteOnceAndReplayItsResponse() {
+        TaskDto first = add("k1", task("first"));
+        TaskDto replay = add("k1", task("first"));
+
+        assertSame(first, replay);
+        assertEquals(1, writes.get());
+        assertEquals(1, meterRegistry.counter("task.idempotency", "result", "replayed").count());
+    }
+
+    @Test
+    void shouldRunEveryWriteWithoutKey() {
+        add(null, task("first"));
+        add(null, task("first"));
+
+        assertEquals(2, writes.get());
+    }
+
+    @Test
+    void shouldKeepKeysOfTenantsApart() {
+        add("k1", task("first"));
+        TenantContext.set("other");
+        add("k1", task("first"));
+
+        assertEquals(2, writes.get());
+    }
+
+    @Test
+    void shouldRejectKeyReusedForAnotherRequest() {
+        add("k1", task("first"));
+
+        TaskException e = assertThrows(IdempotencyBadResponseException.class, () -> add("k1", task("second")));
+        assertEquals(ErrorCode.IDEMPOTENCY_KEY_REUSED.name(), e.getCode());
+        assertThrows(IdempotencyBadResponseException.class,
+                () -> victim.execute("k1", "edit", 1, task("first"), AddTaskBadResponseException::new, this::write));
+    }
+
+    @Test
+    void shouldRejectBlankKey() {
+        TaskException e = assertThrows(IdempotencyBadResponseException.class, () -> add(" ", task("first")));
+        assertEquals(ErrorCode.WRONG_IDEMPOTENCY_KEY.name(), e.getCode());
+    }
+
+    @Test
+    void shouldReplayBusinessErrorButRetryUnexpectedOne() {
+        TaskException first = assertThrows(AddTaskBadResponseException.class, () -> victim.execute("k1", "add", null,
+                task("first"), AddTaskBadResponseException::new, () -> fail(ErrorCode.DUPLICATED_TASK_NAME)));
+        TaskException replay = assertThrows(AddTaskBadResponseException.class, () -> add("k1", task("first")));
+        assertEquals(first.getCode(), replay.getCode());
+
+        assertThrows(AddTaskBadResponseException.class, () -> victim.execute("k2", "add", null,
+                task("first"), AddTaskBadResponseException::new, () -> fail(ErrorCode.UNEXPECTED_ERROR)));
+        add("k2", task("first"));
+        assertEquals(1, writes.get());
+    }
+
+    @Test
+    void shouldMakeConcurrentDuplicateWaitForOriginal() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<TaskDto> original = CompletableFuture.supplyAsync(() -> victim.execute("k1", "add", null,
+                task("first"), AddTaskBadResponseException::new, () -> {
+                    started.countDown();
+                    await(release);
+                    return write();
+                }));
+        started.await(5, TimeUnit.SECONDS);
+        CompletableFuture<TaskDto> duplicate = CompletableFuture.supplyAsync(() -> add("k1", task("first")));
+
+        release.countDown();
+        assertSame(original.get(5, TimeUnit.SECONDS), duplicate.get(5, TimeUnit.SECONDS));
+        assertEquals(1, writes.get());
+    }
+
+    @Test
+    void shouldGiveUpWaitingForOriginalAfterTimeout() throws Exception {
+        IdempotencyService impatient = service(100, 50);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<TaskDto> original = CompletableFuture.supplyAsync(() -> impatient.execute("k1", "add", null,
+                task("first"), AddTaskBadResponseException::new, () -> {
+                    started.countDown();
+                    await(release);
+                    return write();
+                }));
+        started.await(5, TimeUnit.SECONDS);
+
+        TaskException e = assertThrows(IdempotencyConflictException.class, () -> impatient.execute("k1", "add",
+                null, task("first"), AddTaskBadResponseException::new, this::write));
+        assertEquals(ErrorCode.IDEMPOTENCY_KEY_IN_FLIGHT.name(), e.getCode());
+        release.countDown();
+        original.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void shouldEvictOldestKeysOverBound() {
+        IdempotencyService small = service(2, 2000);
+        for (String key : new String[] { "k1", "k2", "k3" }) {
+            small.execute(key, "add", null, task("first"), AddTaskBadResponseException::new, this::write);
+        }
+        small.execute("k3", "add", null, task("first"), AddTaskBadResponseException::new, this::write);
+        assertEquals(3, writes.get());
+        small.execute("k1", "add", null, task("first"), AddTaskBadResponseException::new, this::write);
+        assertEquals(4, writes.get());
+    }
+
+    @Test
+    void shouldRenewLeaseOfClaimWhileWriteRuns() {
+        IdempotencyKeyDao dao = mock(IdempotencyKeyDao.class);
+        doReturn(true).when(dao).claim(anyString(), anyString(), anyString(), anyString(), anyLong());
+        doReturn(true).when(dao).renew(anyString(), anyString(), anyString(), anyLong());
+        doReturn(true).when(dao).complete(anyString(), anyString(), anyString(), any(), any(), anyLong());
+        StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.<String, Object>of("dao", dao));
+        IdempotencyService leasing = new IdempotencyService(Jackson2ObjectMapperBuilder.json().build(),
+                meterRegistry, beans.getBeanProvider(IdempotencyKeyDao.class), true, "database", 60, 100, 2000, 30, 10);
+        try {
+            leasing.execute("k1", "add", null, task("first"), AddTaskBadResponseException::new, () -> {
+                sleep(100);
+                return write();
+            });
+        } finally {
+            leasing.shutdown();
+        }
+
+        ArgumentCaptor<String> token = ArgumentCaptor.forClass(String.class);
+        verify(dao).claim(eq(TenantContext.DEFAULT_TENANT), eq("k1"), anyString(), token.capture(), eq(30L));
+        verify(dao, atLeast(2)).renew(TenantContext.DEFAULT_TENANT, "k1", token.getValue(), 30L);
+        verify(dao).complete(eq(TenantContext.DEFAULT_TENANT), eq("k1"), eq(token.getValue()), isNull(), anyString(),
+                anyLong());
+    }
+
+    private IdempotencyService service(int maxEntries, long waitTimeoutMillis) {
+        return new IdempotencyService(Jackson2ObjectMapperBuilder.json().build(), meterRegistry,
+                new StaticListableBeanFactory().getBeanProvider(IdempotencyKeyDao.class),
+                true, "memory", 60, maxEntries, waitTimeoutMillis, 30000, 10);
+    }
+
+    private TaskDto add(String key, TaskDto request) {
+        return victim.execute(key, "add", null, request, AddTaskBadResponseException::new, this::write);
+    }
+
+    private TaskDto write() {
+        return TaskDto.builder().id(writes.incrementAndGet()).name("written").build();
+    }
+
+    private static TaskDto fail(ErrorCode code) {
+        throw new AddTaskBadResponseException(code.name());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static TaskDto task(String name) {
+        return TaskDto.builder().name(name).description(name + " description").build();
+    }
+}
@@ -0,0 +1,101 @@
+package net.erply.demo.task.service;
+
+import static net.erply.demo.base.entity.ErrorCode.MALFORMED_IMPORT_ROW;
+import static net.erply.demo.task.entity.TaskStatus.COMPLETED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.erply.demo.task.api.TaskImportFormat;
+
+public class TaskImportRowReaderTest {
+
+    private static TaskImportRowReader reader(TaskImportFormat format, String body) {
+        return TaskImportRowReader.of(format, new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)),
+                new ObjectMapper());
+    }
+
+    @Test
+    void shouldReadCsvWithHeaderAndQuotes() throws IOException {
+        TaskImportRowReader victim = reader(TaskImportFormat.CSV,
+                "status,name,description\r\ncompleted,\"a, \"\"b\"\"\",\"multi\nline\"\r\n\r\n,c,d\n");
+        TaskImportRow first = victim.next();
+        assertEquals("a, \"b\"", first.getTask().getName());
+        assertEquals("multi\nline", first.getTask().getDescription());
+        assertEquals(COMPLETED, first.getTask().getStatus());
+        TaskImportRow second = victim.next();
+        assertEquals("c", second.getTask().getName());
+        assertNull(second.getTask().getStatus());
+        assertNull(victim.next());
+    }
+
+    @Test
+    void shouldReadFirstCsvRowAsTaskUnlessAllFieldsAreColumns() throws IOException {
+        TaskImportRowReader victim = reader(TaskImportFormat.CSV, "name,buy milk,completed\nb,c\n");
+        TaskImportRow first = victim.next();
+        assertEquals("name", first.getTask().getName());
+        assertEquals("buy milk", first.getTask().getDescription());
+        assertEquals(COMPLETED, first.getTask().getStatus());
+        assertEquals("b", victim.next().getTask().getName());
+        assertNull(victim.next());
+
+        victim = reader(TaskImportFormat.CSV, "description,name\nc,d\n");
+        TaskImportRow only = victim.next();
+        assertEquals("d", only.getTask().getName());
+        assertEquals(2, only.getLineNo());
+    }
+
+    @Test
+    void shouldRejectCsvRowWithUnknownStatus() throws IOException {
+        TaskImportRowReader victim = reader(TaskImportFormat.CSV, "a,b,UNKNOWN\n");
+        TaskImportRow row = victim.next();
+        assertNull(row.getTask());
+        assertEquals(MALFORMED_IMPORT_ROW.name(), row.getErrorCode());
+        assertEquals(1, row.getLineNo());
+    }
+
+    @Test
+    void shouldReadNdjson() throws IOException {
+        TaskImportRowReader victim = reader(TaskImportFormat.NDJSON,
+                "{\"id\":7,\"name\":\"a\",\"description\":\"b\"}\n\n{broken\n");
+        TaskImportRow first = victim.next();
+        assertEquals("a", first.getTask().getName());
+        assertNull(first.getTask().getId());
+        TaskImportRow second = victim.next();
+        assertEquals(3, second.getLineNo());
+        assertEquals(MALFORMED_IMPORT_ROW.name(), second.getErrorCode());
+        assertNull(victim.next());
+    }
+
+    @Test
+    void shouldRejectOversizedNdjsonLineAndReadOn() throws IOException {
+        String oversized = "{\"name\":\"" + "x".repeat(TaskImportRowReader.MAX_ROW_LENGTH) + "\"}";
+        TaskImportRowReader victim = reader(TaskImportFormat.NDJSON,
+                oversized + "\n{\"name\":\"a\",\"description\":\"b\"}\n");
+        TaskImportRow first = victim.next();
+        assertEquals(MALFORMED_IMPORT_ROW.name(), first.getErrorCode());
+        assertEquals(TaskImportRowReader.MAX_ROW_LENGTH, first.getRaw().length());
+        TaskImportRow second = victim.next();
+        assertEquals(2, second.getLineNo());
+        assertEquals("a", second.getTask().getName());
+        assertNull(victim.next());
+    }
+
+    @Test
+    void shouldRejectOversizedCsvRowAndReadOn() throws IOException {
+        String oversized = "\"" + "x".repeat(TaskImportRowReader.MAX_ROW_LENGTH) + "\",d";
+        TaskImportRowReader victim = reader(TaskImportFormat.CSV, oversized + "\nb,c\n");
+        TaskImportRow first = victim.next();
+        assertEquals(MALFORMED_IMPORT_ROW.name(), first.getErrorCode());
+        assertEquals(1, first.getLineNo());
+        TaskImportRow second = victim.next();
+        assertEquals(2, second.getLineNo());
+        assertEquals("b", second.getTask().getName());
+        assertNull(victim.next());
+    }
+}
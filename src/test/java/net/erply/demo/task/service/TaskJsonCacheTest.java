@@ -0,0 +1,72 @@
+package net.erply.demo.task.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.erply.demo.base.entity.Task;
+import net.erply.demo.task.api.TaskMapper;
+import net.erply.demo.task.api.TaskMapperImpl;
+import net.erply.demo.task.entity.TaskStatus;
+
+public class TaskJsonCacheTest {
+
+    private final TaskMapper mapper = new TaskMapperImpl();
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldEncodeLikeJacksonAndReuseUnchangedTasks() throws Exception {
+        TaskJsonCache victim = new TaskJsonCache(mapper, objectMapper, meterRegistry, true, 100);
+        Task task = task(1, "first");
+        byte[] json = victim.encode(task);
+        assertArrayEquals(objectMapper.writeValueAsBytes(mapper.mapToDto(task)), json);
+        assertSame(json, victim.encode(task(1, "first")));
+        assertEquals(1, meterRegistry.counter("task.read.json-cache", "result", "hit").count());
+    }
+
+    @Test
+    void shouldReencodeChangedTaskEvenWithoutInvalidation() {
+        TaskJsonCache victim = new TaskJsonCache(mapper, objectMapper, meterRegistry, true, 100);
+        Task task = task(1, "first");
+        byte[] json = victim.encode(task);
+        task.setStatus(TaskStatus.COMPLETED);
+        byte[] changed = victim.encode(task);
+        assertNotSame(json, changed);
+        assertTrue(new String(changed).contains("COMPLETED"));
+    }
+
+    @Test
+    void shouldDropInvalidatedAndStayBounded() {
+        TaskJsonCache victim = new TaskJsonCache(mapper, objectMapper, meterRegistry, true, 10);
+        byte[] json = victim.encode(task(1, "first"));
+        victim.invalidate(1);
+        assertNotSame(json, victim.encode(task(1, "first")));
+        for (int id = 2; id < 100; id++) {
+            victim.encode(task(id, "task " + id));
+        }
+        assertTrue(meterRegistry.get("task.read.json-cache.size").gauge().value() <= 10);
+    }
+
+    private static Task task(int id, String name) {
+        return Task.builder()
+                .id(id)
+                .tenantId("default")
+                .name(name)
+                .description("descr")
+                .status(TaskStatus.AVAILABLE)
+                .dueAt(Instant.parse("2021-05-01T10:00:00Z"))
+                .build();
+    }
+}
@@ -0,0 +1,85 @@
+package net.erply.demo.task.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import net.erply.demo.task.api.TaskSuggestionDto;
+import net.erply.demo.task.dao.TaskName;
+
+public class TaskNameIndexTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final TaskNameIndex victim = new TaskNameIndex(true, 2);
+
+    @Test
+    void shouldSuggestByPrefixIgnoringCaseInOrder() {
+        Supplier<List<TaskName>> loader = loader(name(1, "Write report"), name(2, "water plants"),
+                name(3, "Wash car"), name(4, "wash dishes"), name(5, "Buy milk"));
+
+        assertEquals(List.of("Wash car", "wash dishes", "water plants"), names(victim.suggest("t1", "WA", 10, loader)));
+        assertEquals(List.of("Wash car"), names(victim.suggest("t1", "wa", 1, loader)));
+        assertEquals(List.of(), names(victim.suggest("t1", "x", 10, loader)));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void shouldFollowWritesOfLoadedTenant() {
+        Supplier<List<TaskName>> loader = loader(name(1, "alpha"), name(2, "beta"));
+        victim.suggest("t1", "", 10, loader);
+
+        victim.put("t1", 3, "alphabet");
+        victim.put("t1", 2, "alpine");
+        victim.remove("t1", 1);
+
+        assertEquals(List.of("alphabet", "alpine"), names(victim.suggest("t1", "al", 10, loader)));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void shouldIgnoreWritesOfUnloadedTenantAndReloadAfterInvalidation() {
+        victim.put("t1", 9, "ghost");
+        Supplier<List<TaskName>> loader = loader(name(1, "alpha"));
+
+        assertEquals(List.of("alpha"), names(victim.suggest("t1", "", 10, loader)));
+        victim.invalidateAll();
+        assertEquals(List.of("alpha"), names(victim.suggest("t1", "", 10, loader)));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void shouldKeepTenantsApart() {
+        assertEquals(List.of("alpha"), names(victim.suggest("t1", "a", 10, loader(name(1, "alpha")))));
+        assertEquals(List.of("apple"), names(victim.suggest("t2", "a", 10, loader(name(2, "apple")))));
+    }
+
+    private Supplier<List<TaskName>> loader(TaskName... names) {
+        return () -> {
+            loads.incrementAndGet();
+            return List.of(names);
+        };
+    }
+
+    private static List<String> names(List<TaskSuggestionDto> suggestions) {
+        return suggestions.stream().map(TaskSuggestionDto::getName).collect(Collectors.toList());
+    }
+
+    private static TaskName name(Integer id, String name) {
+        return new TaskName() {
+            @Override
+            public Integer getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+        };
+    }
+}